@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.appium.uiautomator2.utils.Logger;
+
+import static io.appium.uiautomator2.utils.ReflectionUtils.invoke;
+import static io.appium.uiautomator2.utils.ReflectionUtils.method;
+
+/**
+ * Counts requests sent to the accessibility service by the current thread.
+ * <p>
+ * Each thread uses its own accessibility interaction client, which assigns a new
+ * interaction id to every cross-process request. Requests answered from the accessibility
+ * cache get no id, so the difference between two readings of the counter is the exact
+ * count of binder round trips made in between.
+ */
+public class AccessibilityIpcCounter {
+    private static final String INTERACTION_CLIENT_CLASS = "android.view.accessibility.AccessibilityInteractionClient";
+    private static final ThreadLocal<long[]> delegatedCalls = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[]{0};
+        }
+    };
+    private static Method METHOD_GET_INSTANCE;
+    private static Field FIELD_INTERACTION_ID_COUNTER;
+    private static Boolean isAvailable = null;
+
+    private AccessibilityIpcCounter() {
+    }
+
+    private static synchronized boolean bind() {
+        if (isAvailable == null) {
+            try {
+                final Class<?> clientClass = Class.forName(INTERACTION_CLIENT_CLASS);
+                METHOD_GET_INSTANCE = method(clientClass, "getInstance");
+                FIELD_INTERACTION_ID_COUNTER = clientClass.getDeclaredField("mInteractionIdCounter");
+                FIELD_INTERACTION_ID_COUNTER.setAccessible(true);
+                isAvailable = true;
+            } catch (Exception e) {
+                Logger.warn(String.format("Accessibility requests cannot be counted: %s", e.getMessage()));
+                isAvailable = false;
+            }
+        }
+        return isAvailable;
+    }
+
+    /**
+     * @return The count of accessibility requests sent by the current thread, including
+     * the ones delegated to other threads, or -1 if the counter is not available
+     */
+    public static long getCount() {
+        if (!bind()) {
+            return -1;
+        }
+        try {
+            final Object client = invoke(METHOD_GET_INSTANCE, null);
+            final AtomicInteger counter = (AtomicInteger) FIELD_INTERACTION_ID_COUNTER.get(client);
+            return counter.get() + delegatedCalls.get()[0];
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Attributes requests sent by other threads to the current thread.
+     *
+     * @param count the count of requests sent on behalf of the current thread
+     */
+    public static void addDelegatedCalls(long count) {
+        if (count > 0) {
+            delegatedCalls.get()[0] += count;
+        }
+    }
+}
@@ -38,12 +38,13 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.concurrent.Semaphore;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import androidx.annotation.Nullable;
 import io.appium.uiautomator2.common.exceptions.InvalidSelectorException;
 import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
-import io.appium.uiautomator2.model.NotificationListener;
 import io.appium.uiautomator2.model.UiElement;
 import io.appium.uiautomator2.model.settings.NormalizeTagNames;
 import io.appium.uiautomator2.model.settings.Settings;
@@ -52,7 +53,6 @@ import io.appium.uiautomator2.utils.Logger;
 import io.appium.uiautomator2.utils.NodeInfoList;
 
 import static io.appium.uiautomator2.model.UiAutomationElement.rebuildForNewRoots;
-import static io.appium.uiautomator2.utils.AXWindowHelpers.getCachedWindowRoots;
 import static io.appium.uiautomator2.utils.XMLHelpers.toNodeName;
 import static io.appium.uiautomator2.utils.XMLHelpers.toSafeString;
 import static net.gcardone.junidecode.Junidecode.unidecode;
@@ -66,15 +66,19 @@ public class AccessibilityNodeInfoDumper {
     private static final String DEFAULT_VIEW_CLASS_NAME = View.class.getName();
     private static final String XML_ENCODING = "UTF-8";
     private static final XPathFactory XPATH = XPathFactory.instance();
-    private static final SAXBuilder SAX_BUILDER = new SAXBuilder();
-    private final Semaphore RESOURCES_GUARD = new Semaphore(1);
+    // SAXBuilder instances cannot be shared between threads
+    private static final ThreadLocal<SAXBuilder> SAX_BUILDER = new ThreadLocal<SAXBuilder>() {
+        @Override
+        protected SAXBuilder initialValue() {
+            return new SAXBuilder();
+        }
+    };
+    private static final int MAX_CACHED_NODE_NAMES = 1024;
+    private static volatile XmlNodeNamesCache xmlNodeNamesCache = new XmlNodeNamesCache(false);
 
+    // The dumper keeps no mutable state, so the same instance could be used by multiple threads
     @Nullable
     private final AccessibilityNodeInfo root;
-    @Nullable
-    private SparseArray<UiElement<?, ?>> uiElementsMapping = null;
-    private boolean shouldAddDisplayInfo;
-    private XmlSerializer serializer;
 
     public AccessibilityNodeInfoDumper() {
         this(null);
@@ -84,7 +88,7 @@ public class AccessibilityNodeInfoDumper {
         this.root = root;
     }
 
-    private void addDisplayInfo() throws IOException {
+    private static void addDisplayInfo(XmlSerializer serializer) throws IOException {
         Display display = UiAutomatorBridge.getInstance().getDefaultDisplay();
         Point size = new Point();
         display.getSize(size);
@@ -93,17 +97,34 @@ public class AccessibilityNodeInfoDumper {
         serializer.attribute(NAMESPACE, "height", Integer.toString(size.y));
     }
 
-    private static String toXmlNodeName(@Nullable String className) {
+    static String toXmlNodeName(@Nullable String className) {
         if (StringUtils.isBlank(className)) {
             return DEFAULT_VIEW_CLASS_NAME;
         }
 
+        final boolean shouldNormalize = ((NormalizeTagNames) Settings.NORMALIZE_TAG_NAMES.getSetting()).getValue();
+        XmlNodeNamesCache cache = xmlNodeNamesCache;
+        if (cache.isNormalized != shouldNormalize || cache.nodeNames.size() >= MAX_CACHED_NODE_NAMES) {
+            // Cached names are not valid anymore if the setting value has been changed.
+            // The cache is also reset if it grows too large
+            cache = new XmlNodeNamesCache(shouldNormalize);
+            xmlNodeNamesCache = cache;
+        }
+        String result = cache.nodeNames.get(className);
+        if (result == null) {
+            result = buildXmlNodeName(className, shouldNormalize);
+            cache.nodeNames.put(className, result);
+        }
+        return result;
+    }
+
+    private static String buildXmlNodeName(String className, boolean shouldNormalize) {
         String fixedName = className
                 .replaceAll("[$@#&]", ".")
                 .replaceAll("\\.+", ".")
                 .replaceAll("(^\\.|\\.$)", "");
 
-        if (((NormalizeTagNames) Settings.NORMALIZE_TAG_NAMES.getSetting()).getValue()) {
+        if (shouldNormalize) {
             // A workaround for the Apache Harmony bug described in https://github.com/appium/appium/issues/11854
             // The buggy implementation: https://android.googlesource.com/platform/dalvik/+/21d27c095fee51fd6eac6a68d50b79df4dc97d85/libcore/xml/src/main/java/org/apache/harmony/xml/dom/DocumentImpl.java#84
             fixedName = unidecode(fixedName).replaceAll("[^A-Za-z0-9\\-._]", "_");
@@ -119,7 +140,26 @@ public class AccessibilityNodeInfoDumper {
         return fixedName;
     }
 
-    private void serializeUiElement(UiElement<?, ?> uiElement, final int depth) throws IOException {
+    /**
+     * Maps raw class names to XML node names. A screen usually only contains
+     * a few dozen distinct class names, so each of them is only sanitized once.
+     */
+    private static class XmlNodeNamesCache {
+        private final boolean isNormalized;
+        private final Map<String, String> nodeNames = new ConcurrentHashMap<>();
+
+        XmlNodeNamesCache(boolean isNormalized) {
+            this.isNormalized = isNormalized;
+        }
+    }
+
+    /**
+     * @param uiElementsMapping if not null then each serialized element is added to this mapping
+     *                          and its key is stored in the {@link #UI_ELEMENT_INDEX} attribute
+     */
+    private void serializeUiElement(XmlSerializer serializer, UiElement<?, ?> uiElement, final int depth,
+                                    @Nullable SparseArray<UiElement<?, ?>> uiElementsMapping)
+            throws IOException {
         final String className = uiElement.getClassName();
         final String nodeName = toXmlNodeName(className);
         serializer.startTag(NAMESPACE, nodeName);
@@ -134,10 +174,9 @@ public class AccessibilityNodeInfoDumper {
             }
             serializer.attribute(NAMESPACE, attr.getName(), toSafeString(String.valueOf(value), NON_XML_CHAR_REPLACEMENT));
         }
-        if (shouldAddDisplayInfo) {
-            addDisplayInfo();
+        if (depth == 0 && root == null) {
             // Display info is only added once to the root node
-            shouldAddDisplayInfo = false;
+            addDisplayInfo(serializer);
         }
 
         if (uiElementsMapping != null) {
@@ -151,24 +190,27 @@ public class AccessibilityNodeInfoDumper {
                     "'%s'. The recursion is stopped to avoid StackOverflowError", MAX_DEPTH, className));
         } else {
             for (UiElement<?, ?> child : uiElement.getChildren()) {
-                serializeUiElement(child, depth + 1);
+                serializeUiElement(serializer, child, depth + 1, uiElementsMapping);
             }
         }
         serializer.endTag(NAMESPACE, nodeName);
     }
 
-    private InputStream toStream() throws IOException {
+    private UiElement<?, ?> buildXPathRoot() {
+        return root == null
+                ? UiSnapshot.get().getRoot()
+                : rebuildForNewRoots(new AccessibilityNodeInfo[]{root});
+    }
+
+    private InputStream toStream(UiElement<?, ?> xpathRoot,
+                                 @Nullable SparseArray<UiElement<?, ?>> uiElementsMapping) throws IOException {
         final long startTime = SystemClock.uptimeMillis();
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            serializer = Xml.newSerializer();
-            shouldAddDisplayInfo = root == null;
+            final XmlSerializer serializer = Xml.newSerializer();
             serializer.setOutput(outputStream, XML_ENCODING);
             serializer.startDocument(XML_ENCODING, true);
             serializer.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true);
-            final UiElement<?, ?> xpathRoot = root == null
-                    ? rebuildForNewRoots(getCachedWindowRoots(), NotificationListener.getInstance().getToastMessage())
-                    : rebuildForNewRoots(new AccessibilityNodeInfo[]{root});
-            serializeUiElement(xpathRoot, 0);
+            serializeUiElement(serializer, xpathRoot, 0, uiElementsMapping);
             serializer.endDocument();
             Logger.debug(String.format("The source XML tree (%s bytes) has been fetched in %sms",
                     outputStream.size(), SystemClock.uptimeMillis() - startTime));
@@ -176,41 +218,117 @@ public class AccessibilityNodeInfoDumper {
         }
     }
 
-    private void performCleanup() {
-        uiElementsMapping = null;
-    }
-
     public String dumpToXml() {
         try {
-            RESOURCES_GUARD.acquire();
-        } catch (InterruptedException e) {
-            throw new UiAutomator2Exception(e);
-        }
-        try (InputStream xmlStream = toStream()) {
-            return IOUtils.toString(xmlStream, XML_ENCODING);
+            final UiSnapshot snapshot = root == null ? UiSnapshot.get() : null;
+            if (snapshot != null && snapshot.getXmlSource() != null) {
+                return snapshot.getXmlSource();
+            }
+            try (InputStream xmlStream = toStream(snapshot == null ? buildXPathRoot() : snapshot.getRoot(),
+                    null)) {
+                final String result = IOUtils.toString(xmlStream, XML_ENCODING);
+                if (snapshot != null) {
+                    snapshot.setXmlSource(result);
+                }
+                return result;
+            }
         } catch (IOException e) {
             throw new UiAutomator2Exception(e);
-        } finally {
-            performCleanup();
-            RESOURCES_GUARD.release();
         }
     }
 
+    /**
+     * @return The page source encoded in the compact binary format (see {@link BinarySourceFormat})
+     */
+    public byte[] dumpToBinary() {
+        final long startTime = SystemClock.uptimeMillis();
+        final int[] displayInfo = getDisplayInfo();
+        final byte[] result = new BinarySourceEncoder(MAX_DEPTH)
+                .encode(buildXPathRoot(), displayInfo[0], displayInfo[1], displayInfo[2]);
+        Logger.debug(String.format("The binary source tree (%s bytes) has been fetched in %sms",
+                result.length, SystemClock.uptimeMillis() - startTime));
+        return result;
+    }
+
+    /**
+     * The elements tree is fetched immediately, although the actual JSON is only generated
+     * while it is being written by the returned writer.
+     *
+     * @param attributes the set of attributes to include or null to include all of them
+     * @param maxDepth   the maximum depth of the tree. Greater values are limited to the XML source depth
+     * @return The writer of the JSON page source
+     */
+    public JsonSourceWriter dumpToJson(@Nullable Set<Attribute> attributes, int maxDepth) {
+        final JsonSourceWriter result = new JsonSourceWriter(buildXPathRoot(), attributes,
+                Math.min(maxDepth, MAX_DEPTH));
+        if (root == null) {
+            final int[] displayInfo = getDisplayInfo();
+            result.withDisplayInfo(displayInfo[0], displayInfo[1], displayInfo[2]);
+        }
+        return result;
+    }
+
+    /**
+     * @return Display rotation, width and height or -1 values if a custom root is set
+     */
+    private int[] getDisplayInfo() {
+        if (root != null) {
+            return new int[]{-1, -1, -1};
+        }
+        final Display display = UiAutomatorBridge.getInstance().getDefaultDisplay();
+        final Point size = new Point();
+        display.getSize(size);
+        return new int[]{display.getRotation(), size.x, size.y};
+    }
+
     public NodeInfoList findNodes(String xpathSelector, boolean multiple) {
-        try {
-            XPATH.compile(xpathSelector, Filters.element());
-        } catch (IllegalArgumentException e) {
-            throw new InvalidSelectorException(e);
+        final XPathQueryPlan plan = XPathQueryPlan.compile(xpathSelector);
+        if (plan == null) {
+            try {
+                XPATH.compile(xpathSelector, Filters.element());
+            } catch (IllegalArgumentException e) {
+                throw new InvalidSelectorException(e);
+            }
         }
 
         try {
-            RESOURCES_GUARD.acquire();
-        } catch (InterruptedException e) {
-            throw new UiAutomator2Exception(e);
-        }
-        uiElementsMapping = new SparseArray<>();
-        try (InputStream xmlStream = toStream()) {
-            final Document document = SAX_BUILDER.build(xmlStream);
+            if (plan != null) {
+                final long timeStarted = SystemClock.uptimeMillis();
+                NodeInfoList matchedNodes = null;
+                UiSnapshot snapshot = root == null ? UiSnapshot.peek() : null;
+                if (!multiple && snapshot == null && plan.canMatchNodes()) {
+                    // Window and context roots are one level deeper than the XML document root
+                    matchedNodes = FirstMatchSearch.findByXPath(plan, root, MAX_DEPTH - 1);
+                }
+                if (matchedNodes == null) {
+                    if (root == null && snapshot == null) {
+                        snapshot = UiSnapshot.get();
+                    }
+                    matchedNodes = plan.execute(snapshot == null
+                            ? buildXPathRoot()
+                            : snapshot.getRoot(), MAX_DEPTH, multiple);
+                }
+                Logger.debug(String.format("Took %sms to retrieve %s matches for '%s' XPath query " +
+                                "without building the XML document",
+                        SystemClock.uptimeMillis() - timeStarted, matchedNodes.size(), xpathSelector));
+                return matchedNodes;
+            }
+            final UiSnapshot snapshot = root == null ? UiSnapshot.get() : null;
+            Document document = snapshot == null ? null : snapshot.getXPathDocument();
+            SparseArray<UiElement<?, ?>> uiElementsMapping;
+            if (document == null) {
+                uiElementsMapping = new SparseArray<>();
+                try (InputStream xmlStream = toStream(snapshot == null
+                        ? buildXPathRoot()
+                        : snapshot.getRoot(), uiElementsMapping)) {
+                    document = SAX_BUILDER.get().build(xmlStream);
+                }
+                if (snapshot != null) {
+                    snapshot.setXPathDocument(document, uiElementsMapping);
+                }
+            } else {
+                uiElementsMapping = snapshot.getXPathElementsMapping();
+            }
             final XPathExpression<org.jdom2.Attribute> expr = XPATH
                     .compile(String.format("(%s)/@%s", xpathSelector, UI_ELEMENT_INDEX), Filters.attribute());
             final NodeInfoList matchedNodes = new NodeInfoList();
@@ -235,9 +353,6 @@ public class AccessibilityNodeInfoDumper {
                     e.getMessage(), Settings.NORMALIZE_TAG_NAMES.toString()), e);
         } catch (Exception e) {
             throw new UiAutomator2Exception(e);
-        } finally {
-            performCleanup();
-            RESOURCES_GUARD.release();
         }
     }
 }
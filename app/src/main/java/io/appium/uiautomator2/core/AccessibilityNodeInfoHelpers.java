@@ -24,11 +24,16 @@ import android.util.Range;
 import android.view.accessibility.AccessibilityNodeInfo;
 import android.view.accessibility.AccessibilityNodeInfo.AccessibilityAction;
 
+import java.lang.reflect.Method;
+
 import androidx.annotation.Nullable;
 import androidx.test.uiautomator.UiDevice;
+import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
 import io.appium.uiautomator2.utils.Logger;
 
 import static io.appium.uiautomator2.utils.Device.getUiDevice;
+import static io.appium.uiautomator2.utils.ReflectionUtils.invoke;
+import static io.appium.uiautomator2.utils.ReflectionUtils.method;
 import static io.appium.uiautomator2.utils.StringHelpers.charSequenceToNullableString;
 import static io.appium.uiautomator2.utils.StringHelpers.charSequenceToString;
 
@@ -38,6 +43,12 @@ import static io.appium.uiautomator2.utils.StringHelpers.charSequenceToString;
 public class AccessibilityNodeInfoHelpers {
     // https://github.com/appium/appium/issues/12892
     private final static int MAX_DEPTH = 70;
+    // Explicit prefetching strategies are only available since API 33
+    private final static int API_LEVEL_PREFETCHING_STRATEGIES = 33;
+    private final static int FLAG_PREFETCH_DESCENDANTS_DEPTH_FIRST = 0x00000008;
+    private final static int FLAG_PREFETCH_UNINTERRUPTIBLE = 0x00000020;
+    private static Method getChildWithStrategyMethod = null;
+    private static Boolean isPrefetchingStrategyAvailable = null;
 
     @Nullable
     public static Range<Integer> getSelectionRange(@Nullable AccessibilityNodeInfo nodeInfo) {
@@ -78,6 +89,42 @@ public class AccessibilityNodeInfoHelpers {
         return charSequenceToString(nodeInfo.getText(), replaceNull);
     }
 
+    private static synchronized boolean bindGetChildWithStrategy() {
+        if (isPrefetchingStrategyAvailable == null) {
+            isPrefetchingStrategyAvailable = false;
+            if (Build.VERSION.SDK_INT >= API_LEVEL_PREFETCHING_STRATEGIES) {
+                try {
+                    getChildWithStrategyMethod = method(AccessibilityNodeInfo.class, "getChild",
+                            int.class, int.class);
+                    isPrefetchingStrategyAvailable = true;
+                } catch (UiAutomator2Exception e) {
+                    Logger.warn("Cannot use explicit prefetching strategies to retrieve child nodes");
+                }
+            }
+        }
+        return isPrefetchingStrategyAvailable;
+    }
+
+    /**
+     * Retrieves the child node and asks the accessibility service to put up to 50 of its
+     * descendants into the accessibility cache in the depth-first order. The prefetching is
+     * not interrupted by other requests, so the following depth-first traversal of the subtree
+     * is mostly served from the cache. The default prefetching behavior of
+     * {@link AccessibilityNodeInfo#getChild(int)} is used on API levels below 33.
+     *
+     * @param node  the parent node
+     * @param index the child index
+     * @return The child node or null if it is not available anymore
+     */
+    @Nullable
+    public static AccessibilityNodeInfo getChildWithPrefetch(AccessibilityNodeInfo node, int index) {
+        if (!bindGetChildWithStrategy()) {
+            return node.getChild(index);
+        }
+        return (AccessibilityNodeInfo) invoke(getChildWithStrategyMethod, node, index,
+                FLAG_PREFETCH_DESCENDANTS_DEPTH_FIRST | FLAG_PREFETCH_UNINTERRUPTIBLE);
+    }
+
     /**
      * Returns the node's bounds clipped to the size of the display
      *
@@ -88,6 +135,53 @@ public class AccessibilityNodeInfoHelpers {
         return getVisibleBounds(node, 0);
     }
 
+    /**
+     * @return The display area in screen coordinates
+     */
+    public static Rect getDisplayRect() {
+        UiDevice uiDevice = getUiDevice();
+        return new Rect(0, 0, uiDevice.getDisplayWidth(), uiDevice.getDisplayHeight());
+    }
+
+    /**
+     * Returns the node's bounds clipped to the size of the display and to the visible bounds
+     * of its closest scrollable ancestor. The result is the same as the one of
+     * {@link #getVisibleBounds(AccessibilityNodeInfo)}, but no ancestors are retrieved,
+     * so the visible bounds of a whole tree could be computed top-down.
+     *
+     * @param node                     the node to compute visible bounds for
+     * @param displayRect              the display area (see {@link #getDisplayRect()})
+     * @param scrollableAncestorBounds visible bounds of the closest scrollable ancestor or null
+     *                                 if the node has no such ancestors
+     * @return A Rect containing visible bounds
+     */
+    @SuppressLint("CheckResult")
+    public static Rect getVisibleBounds(AccessibilityNodeInfo node, Rect displayRect,
+                                        @Nullable Rect scrollableAncestorBounds) {
+        Rect ret = new Rect();
+        node.getBoundsInScreen(ret);
+        ret.intersect(displayRect);
+        if (scrollableAncestorBounds != null) {
+            ret.intersect(scrollableAncestorBounds);
+        }
+        return ret;
+    }
+
+    /**
+     * @return Visible bounds of the closest scrollable ancestor of the node or null
+     * if the node has no such ancestors
+     */
+    @Nullable
+    public static Rect getScrollableAncestorBounds(AccessibilityNodeInfo node) {
+        int depth = 0;
+        for (AccessibilityNodeInfo ancestor = node.getParent(); ancestor != null && ++depth < MAX_DEPTH; ancestor = ancestor.getParent()) {
+            if (ancestor.isScrollable()) {
+                return getVisibleBounds(ancestor, depth);
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns the node's bounds clipped to the size of the display, limited by the MAX_DEPTH
      *
@@ -102,11 +196,9 @@ public class AccessibilityNodeInfoHelpers {
         // Get the object bounds in screen coordinates
         Rect ret = new Rect();
         node.getBoundsInScreen(ret);
-        UiDevice uiDevice = getUiDevice();
 
         // Trim any portion of the bounds that are not on the screen
-        Rect screen = new Rect(0, 0, uiDevice.getDisplayWidth(), uiDevice.getDisplayHeight());
-        ret.intersect(screen);
+        ret.intersect(getDisplayRect());
 
         // Find the visible bounds of our first scrollable ancestor 
         for (AccessibilityNodeInfo ancestor = node.getParent(); ancestor != null && ++depth < MAX_DEPTH; ancestor = ancestor.getParent()) {
@@ -0,0 +1,207 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import android.app.UiAutomation;
+import android.os.Build;
+import android.os.Bundle;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeInfo.AccessibilityAction;
+
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import androidx.annotation.Nullable;
+import androidx.test.uiautomator.UiObject;
+import androidx.test.uiautomator.UiSelector;
+import io.appium.uiautomator2.model.internal.UiSelectorMatcher;
+import io.appium.uiautomator2.model.settings.AccessibilityScrolling;
+import io.appium.uiautomator2.model.settings.ScrollAcknowledgmentTimeout;
+import io.appium.uiautomator2.model.settings.Settings;
+import io.appium.uiautomator2.utils.Logger;
+
+/**
+ * Scrolls containers using accessibility actions instead of swipe gestures.
+ * <p>
+ * The container is reset to its beginning either with a single
+ * ACTION_SCROLL_TO_POSITION action (if it exposes collection info) or with a series
+ * of ACTION_SCROLL_BACKWARD actions. Then it is scrolled forward page by page. After each
+ * step only the subtree of the scrolled container, as reported by the scroll event,
+ * is checked for the target element instead of the whole hierarchy. There is no need
+ * to wait for the idle state between steps, since actions do not inject any input.
+ */
+public class AccessibilityScroller {
+    private static final int MAX_BACKWARD_SCROLLS = 100;
+
+    private final AccessibilityNodeInfo container;
+    private final UiSelector target;
+    private final int maxScrolls;
+
+    /**
+     * @param container  the scrollable container
+     * @param target     the selector of the element to scroll to
+     * @param maxScrolls the maximum count of forward scroll actions
+     */
+    public AccessibilityScroller(AccessibilityNodeInfo container, UiSelector target, int maxScrolls) {
+        this.container = container;
+        this.target = target;
+        this.maxScrolls = maxScrolls;
+    }
+
+    /**
+     * Scrolls the container using accessibility actions if this is enabled by the corresponding setting.
+     *
+     * @param container  the scrollable container
+     * @param target     the selector of the element to scroll to
+     * @param maxScrolls the maximum count of forward scroll actions
+     * @return The same as {@link #scrollIntoView()} or null if accessibility scrolling is disabled
+     */
+    @Nullable
+    public static Boolean tryScrollIntoView(UiObject container, UiSelector target, int maxScrolls) {
+        if (!((AccessibilityScrolling) Settings.ACCESSIBILITY_SCROLLING.getSetting()).getValue()) {
+            return null;
+        }
+        final AccessibilityNodeInfo node = AccessibilityNodeInfoGetter.fromUiObject(container);
+        if (node == null) {
+            return null;
+        }
+        final Boolean result = new AccessibilityScroller(node, target, maxScrolls).scrollIntoView();
+        if (result == null) {
+            Logger.debug("The container does not support accessibility scrolling. Falling back to swipes");
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the target element is present in the container after scrolling,
+     * false if it could not be found or null if the container does not support scroll actions
+     * and other means of scrolling must be used instead
+     */
+    @Nullable
+    public Boolean scrollIntoView() {
+        // Instances are counted across the whole screen by UiAutomator, but only
+        // the container subtree is checked here, so such targets are left to the swipes
+        if (!UiSelectorMatcher.isSupported(target)
+                || UiSelectorMatcher.hasInstance(target)
+                || !container.refresh()
+                || !isScrollable(container)) {
+            return null;
+        }
+        if (isTargetPresent(container)) {
+            return true;
+        }
+
+        // A container scrolled to its end might only support backward scrolling
+        scrollToBeginning();
+        AccessibilityNodeInfo scrolledContainer = container;
+        if (!container.refresh()) {
+            return false;
+        }
+        if (isTargetPresent(container)) {
+            return true;
+        }
+        if (!container.getActionList().contains(AccessibilityAction.ACTION_SCROLL_FORWARD)) {
+            Logger.debug("The container cannot be scrolled forward from its beginning");
+            return null;
+        }
+        for (int i = 0; i < maxScrolls; ++i) {
+            final AccessibilityEvent event = performAndWaitForScroll(AccessibilityNodeInfo.ACTION_SCROLL_FORWARD);
+            if (event == null) {
+                if (i == 0) {
+                    // Custom views might claim scroll actions support, but do nothing
+                    Logger.debug("The container did not react to the scroll forward action");
+                    return null;
+                }
+                return false;
+            }
+            final AccessibilityNodeInfo source = event.getSource();
+            event.recycle();
+            // The event might also come from a nested scrollable view
+            if (source != null && source.equals(container)) {
+                scrolledContainer = source;
+            } else if (!scrolledContainer.refresh()) {
+                return false;
+            }
+            if (isTargetPresent(scrolledContainer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isScrollable(AccessibilityNodeInfo node) {
+        final List<AccessibilityAction> actions = node.getActionList();
+        return actions.contains(AccessibilityAction.ACTION_SCROLL_FORWARD)
+                || actions.contains(AccessibilityAction.ACTION_SCROLL_BACKWARD);
+    }
+
+    private boolean isTargetPresent(AccessibilityNodeInfo root) {
+        return !UiSelectorMatcher.findFirstChildMatch(target, root).isEmpty();
+    }
+
+    private void scrollToBeginning() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+                && container.getCollectionInfo() != null
+                && container.getActionList().contains(AccessibilityAction.ACTION_SCROLL_TO_POSITION)) {
+            final Bundle args = new Bundle();
+            args.putInt(AccessibilityNodeInfo.ACTION_ARGUMENT_ROW_INT, 0);
+            args.putInt(AccessibilityNodeInfo.ACTION_ARGUMENT_COLUMN_INT, 0);
+            if (container.performAction(AccessibilityAction.ACTION_SCROLL_TO_POSITION.getId(), args)) {
+                Logger.debug("Jumped to the beginning of the collection");
+                return;
+            }
+        }
+        int scrollsCount = 0;
+        while (scrollsCount < MAX_BACKWARD_SCROLLS
+                && performAndWaitForScroll(AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD) != null) {
+            ++scrollsCount;
+        }
+        Logger.debug(String.format("Scrolled backward %s times to reach the beginning", scrollsCount));
+    }
+
+    /**
+     * @return The scroll event caused by the action or null if the action
+     * has failed or no scroll has happened
+     */
+    @Nullable
+    private AccessibilityEvent performAndWaitForScroll(final int action) {
+        final boolean[] isPerformed = new boolean[]{false};
+        final UiAutomation automation = UiAutomatorBridge.getInstance().getUiAutomation();
+        final long timeout = ((ScrollAcknowledgmentTimeout) Settings.SCROLL_ACKNOWLEDGMENT_TIMEOUT.getSetting())
+                .getValue();
+        try {
+            return automation.executeAndWaitForEvent(new Runnable() {
+                @Override
+                public void run() {
+                    isPerformed[0] = container.performAction(action);
+                }
+            }, new UiAutomation.AccessibilityEventFilter() {
+                @Override
+                public boolean accept(AccessibilityEvent event) {
+                    return event.getEventType() == AccessibilityEvent.TYPE_VIEW_SCROLLED;
+                }
+            }, timeout);
+        } catch (TimeoutException e) {
+            if (isPerformed[0]) {
+                Logger.debug(String.format("No scroll event has been received within %sms", timeout));
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.Nullable;
+
+import static io.appium.uiautomator2.core.BinarySourceFormat.KIND_BOOLEAN;
+import static io.appium.uiautomator2.core.BinarySourceFormat.KIND_BOUNDS;
+import static io.appium.uiautomator2.core.BinarySourceFormat.KIND_INTEGER;
+import static io.appium.uiautomator2.core.BinarySourceFormat.KIND_STRING;
+import static io.appium.uiautomator2.core.BinarySourceFormat.MAGIC;
+import static io.appium.uiautomator2.core.BinarySourceFormat.MAX_ATTRIBUTES;
+import static io.appium.uiautomator2.core.BinarySourceFormat.VERSION;
+
+/**
+ * Decodes page sources encoded in the compact binary format (see {@link BinarySourceFormat}).
+ * The decoder has no Android dependencies, so it could be used to analyze stored
+ * page sources outside of the device.
+ */
+public class BinarySourceDecoder {
+    private final byte[] data;
+    private int position = 0;
+    private String[] strings;
+    private String[] attributeNames;
+    private int[] attributeKinds;
+
+    private BinarySourceDecoder(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * @param data the encoded page source
+     * @return The decoded page source
+     * @throws IllegalArgumentException if the data is not a valid page source
+     */
+    public static Source decode(byte[] data) {
+        return new BinarySourceDecoder(data).decode();
+    }
+
+    private Source decode() {
+        if (data.length < MAGIC.length + 1
+                || !Arrays.equals(Arrays.copyOf(data, MAGIC.length), MAGIC)) {
+            throw new IllegalArgumentException("The data is not a binary page source");
+        }
+        position = MAGIC.length;
+        final int version = data[position++];
+        if (version != VERSION) {
+            throw new IllegalArgumentException(String.format(
+                    "Binary page source version %s is not supported", version));
+        }
+        final int rotation = (int) readSignedVarint();
+        final int width = (int) readSignedVarint();
+        final int height = (int) readSignedVarint();
+
+        strings = new String[readLength()];
+        for (int i = 0; i < strings.length; ++i) {
+            final int length = readLength();
+            if (position + length > data.length) {
+                throw new IllegalArgumentException("Unexpected end of the binary page source");
+            }
+            strings[i] = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+        }
+
+        final int attributesCount = readLength();
+        if (attributesCount > MAX_ATTRIBUTES) {
+            throw new IllegalArgumentException(String.format(
+                    "The binary page source has too many attributes: %s", attributesCount));
+        }
+        attributeNames = new String[attributesCount];
+        attributeKinds = new int[attributesCount];
+        for (int i = 0; i < attributesCount; ++i) {
+            attributeNames[i] = readString();
+            attributeKinds[i] = readByte();
+        }
+
+        final Node root = readNode();
+        return new Source(root, rotation, width, height);
+    }
+
+    private Node readNode() {
+        final long presenceMask = readVarint();
+        final long booleansMask = readVarint();
+        final Map<String, Object> attributes = new LinkedHashMap<>();
+        for (int index = 0; index < attributeNames.length; ++index) {
+            if ((presenceMask & (1L << index)) == 0) {
+                continue;
+            }
+            switch (attributeKinds[index]) {
+                case KIND_BOOLEAN:
+                    attributes.put(attributeNames[index], (booleansMask & (1L << index)) != 0);
+                    break;
+                case KIND_INTEGER:
+                    attributes.put(attributeNames[index], readSignedVarint());
+                    break;
+                case KIND_BOUNDS:
+                    final long left = readSignedVarint();
+                    final long top = readSignedVarint();
+                    final long right = left + readSignedVarint();
+                    final long bottom = top + readSignedVarint();
+                    attributes.put(attributeNames[index],
+                            String.format("[%s,%s][%s,%s]", left, top, right, bottom));
+                    break;
+                case KIND_STRING:
+                    attributes.put(attributeNames[index], readString());
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format(
+                            "Unknown attribute kind %s", attributeKinds[index]));
+            }
+        }
+        final int childrenCount = readLength();
+        final List<Node> children = new ArrayList<>(Math.min(childrenCount, 64));
+        for (int i = 0; i < childrenCount; ++i) {
+            children.add(readNode());
+        }
+        return new Node(attributes, children);
+    }
+
+    private int readByte() {
+        if (position >= data.length) {
+            throw new IllegalArgumentException("Unexpected end of the binary page source");
+        }
+        return data[position++] & 0xFF;
+    }
+
+    private long readVarint() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in the binary page source");
+    }
+
+    private long readSignedVarint() {
+        final long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readLength() {
+        final long value = readVarint();
+        if (value < 0 || value > data.length) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid length %s in the binary page source", value));
+        }
+        return (int) value;
+    }
+
+    private String readString() {
+        final long index = readVarint();
+        if (index < 0 || index >= strings.length) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid string index %s in the binary page source", index));
+        }
+        return strings[(int) index];
+    }
+
+    public static class Source {
+        private final Node root;
+        private final int rotation;
+        private final int width;
+        private final int height;
+
+        Source(Node root, int rotation, int width, int height) {
+            this.root = root;
+            this.rotation = rotation;
+            this.width = width;
+            this.height = height;
+        }
+
+        public Node getRoot() {
+            return root;
+        }
+
+        /**
+         * @return Display rotation or -1 if unknown
+         */
+        public int getRotation() {
+            return rotation;
+        }
+
+        /**
+         * @return Display width or -1 if unknown
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * @return Display height or -1 if unknown
+         */
+        public int getHeight() {
+            return height;
+        }
+    }
+
+    public static class Node {
+        private final Map<String, Object> attributes;
+        private final List<Node> children;
+
+        Node(Map<String, Object> attributes, List<Node> children) {
+            this.attributes = Collections.unmodifiableMap(attributes);
+            this.children = Collections.unmodifiableList(children);
+        }
+
+        /**
+         * @return Attribute values by their names. Values are either booleans, longs or strings.
+         * Bounds are formatted the same way as in the XML page source.
+         */
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Nullable
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Nullable
+        public String getClassName() {
+            final Object className = attributes.get("class");
+            return className == null ? null : String.valueOf(className);
+        }
+
+        public List<Node> getChildren() {
+            return children;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.utils.Attribute;
+
+import static io.appium.uiautomator2.core.BinarySourceFormat.KIND_BOOLEAN;
+import static io.appium.uiautomator2.core.BinarySourceFormat.KIND_BOUNDS;
+import static io.appium.uiautomator2.core.BinarySourceFormat.KIND_INTEGER;
+import static io.appium.uiautomator2.core.BinarySourceFormat.KIND_STRING;
+import static io.appium.uiautomator2.core.BinarySourceFormat.MAGIC;
+import static io.appium.uiautomator2.core.BinarySourceFormat.MAX_ATTRIBUTES;
+import static io.appium.uiautomator2.core.BinarySourceFormat.VERSION;
+
+/**
+ * Encodes UI element trees into the compact binary page source format
+ * (see {@link BinarySourceFormat}). The same attributes are included as in the XML page source.
+ */
+public class BinarySourceEncoder {
+    private static final Pattern BOUNDS_PATTERN = Pattern.compile("\\[(-?\\d+),(-?\\d+)]\\[(-?\\d+),(-?\\d+)]");
+
+    private final int maxDepth;
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+    private final List<Attribute> attributes = new ArrayList<>();
+    private final Map<Attribute, Integer> attributeIndexes = new EnumMap<>(Attribute.class);
+    private final List<Integer> attributeKinds = new ArrayList<>();
+    private final List<Integer> attributeNameIndexes = new ArrayList<>();
+
+    /**
+     * @param maxDepth children of nodes at this depth are not encoded
+     */
+    public BinarySourceEncoder(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @param root     the root of the tree to encode
+     * @param rotation display rotation or -1 if unknown
+     * @param width    display width or -1 if unknown
+     * @param height   display height or -1 if unknown
+     * @return The encoded tree
+     */
+    public byte[] encode(UiElement<?, ?> root, int rotation, int width, int height) {
+        encodeElement(root, 0);
+
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(body.size() + 4096);
+        result.write(MAGIC, 0, MAGIC.length);
+        result.write(VERSION);
+        writeSignedVarint(result, rotation);
+        writeSignedVarint(result, width);
+        writeSignedVarint(result, height);
+        writeVarint(result, strings.size());
+        for (String string : strings) {
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarint(result, bytes.length);
+            result.write(bytes, 0, bytes.length);
+        }
+        writeVarint(result, attributes.size());
+        for (int i = 0; i < attributes.size(); ++i) {
+            writeVarint(result, attributeNameIndexes.get(i));
+            result.write(attributeKinds.get(i));
+        }
+        result.write(body.toByteArray(), 0, body.size());
+        return result.toByteArray();
+    }
+
+    private void encodeElement(UiElement<?, ?> element, int depth) {
+        long presenceMask = 0;
+        long booleansMask = 0;
+        final Object[] values = new Object[Attribute.values().length];
+        for (Attribute attribute : element.attributeKeys()) {
+            if (!attribute.isExposableToXml()) {
+                continue;
+            }
+            final Object value = element.get(attribute);
+            if (value == null) {
+                continue;
+            }
+            final int index = toAttributeIndex(attribute, value);
+            presenceMask |= 1L << index;
+            if (attributeKinds.get(index) == KIND_BOOLEAN) {
+                if ((Boolean) value) {
+                    booleansMask |= 1L << index;
+                }
+            } else {
+                values[index] = value;
+            }
+        }
+        writeVarint(body, presenceMask);
+        writeVarint(body, booleansMask);
+        for (int index = 0; index < attributes.size(); ++index) {
+            if (values[index] == null) {
+                continue;
+            }
+            switch (attributeKinds.get(index)) {
+                case KIND_INTEGER:
+                    writeSignedVarint(body, ((Number) values[index]).longValue());
+                    break;
+                case KIND_BOUNDS:
+                    final Matcher matcher = BOUNDS_PATTERN.matcher(String.valueOf(values[index]));
+                    if (!matcher.matches()) {
+                        throw new IllegalArgumentException(String.format("Cannot parse bounds '%s'",
+                                values[index]));
+                    }
+                    final int left = Integer.parseInt(matcher.group(1));
+                    final int top = Integer.parseInt(matcher.group(2));
+                    writeSignedVarint(body, left);
+                    writeSignedVarint(body, top);
+                    writeSignedVarint(body, Integer.parseInt(matcher.group(3)) - left);
+                    writeSignedVarint(body, Integer.parseInt(matcher.group(4)) - top);
+                    break;
+                default:
+                    writeVarint(body, toStringIndex(String.valueOf(values[index])));
+                    break;
+            }
+        }
+
+        final List<? extends UiElement<?, ?>> children = depth >= maxDepth
+                ? new ArrayList<UiElement<?, ?>>()
+                : element.getChildren();
+        writeVarint(body, children.size());
+        for (UiElement<?, ?> child : children) {
+            encodeElement(child, depth + 1);
+        }
+    }
+
+    private int toAttributeIndex(Attribute attribute, Object value) {
+        final Integer index = attributeIndexes.get(attribute);
+        if (index != null) {
+            return index;
+        }
+        if (attributes.size() >= MAX_ATTRIBUTES) {
+            throw new IllegalStateException(String.format("More than %s attributes cannot be encoded",
+                    MAX_ATTRIBUTES));
+        }
+        final int kind;
+        if (attribute == Attribute.BOUNDS) {
+            kind = KIND_BOUNDS;
+        } else if (value instanceof Boolean) {
+            kind = KIND_BOOLEAN;
+        } else if (value instanceof Integer || value instanceof Long) {
+            kind = KIND_INTEGER;
+        } else {
+            kind = KIND_STRING;
+        }
+        attributeIndexes.put(attribute, attributes.size());
+        attributes.add(attribute);
+        attributeKinds.add(kind);
+        // Names must be interned before the strings table is written
+        attributeNameIndexes.add(toStringIndex(attribute.getName()));
+        return attributes.size() - 1;
+    }
+
+    private int toStringIndex(String value) {
+        final Integer index = stringIndexes.get(value);
+        if (index != null) {
+            return index;
+        }
+        stringIndexes.put(value, strings.size());
+        strings.add(value);
+        return strings.size() - 1;
+    }
+
+    static void writeVarint(ByteArrayOutputStream output, long value) {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    static void writeSignedVarint(ByteArrayOutputStream output, long value) {
+        writeVarint(output, (value << 1) ^ (value >> 63));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+/**
+ * Constants of the compact binary page source format.
+ * <p>
+ * All integers are encoded as unsigned LEB128 varints, signed ones are zigzag-encoded first.
+ * Strings are UTF-8 byte sequences prefixed with their length. The layout is:
+ * <pre>
+ * magic ("UIAS"), version (1 byte)
+ * display rotation, width, height (signed, -1 if unknown)
+ * strings count, strings
+ * attributes count, for each attribute: name (string index), kind (1 byte)
+ * root node
+ * </pre>
+ * Each node is encoded in the preorder as:
+ * <pre>
+ * presence mask (a bit per attribute index)
+ * boolean values mask (a bit per attribute index, only boolean attributes)
+ * values of present non-boolean attributes in the order of their indexes
+ * children count, children
+ * </pre>
+ * Integer values are signed varints, strings are indexes in the strings table and bounds are
+ * four signed varints: left, top, width and height.
+ */
+public final class BinarySourceFormat {
+    public static final byte[] MAGIC = {'U', 'I', 'A', 'S'};
+    public static final int VERSION = 1;
+
+    public static final int KIND_BOOLEAN = 0;
+    public static final int KIND_INTEGER = 1;
+    public static final int KIND_STRING = 2;
+    public static final int KIND_BOUNDS = 3;
+
+    // Presence masks are encoded as 64-bit varints
+    public static final int MAX_ATTRIBUTES = 64;
+
+    private BinarySourceFormat() {
+    }
+}
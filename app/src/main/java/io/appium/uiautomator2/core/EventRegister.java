@@ -18,17 +18,61 @@ public abstract class EventRegister {
 
     public static final int EVENT_COOLDOWN_MS = 750;
     private static final String EVENT_COOLDOWN_CAP = "scrollEventTimeout";
-
+    // How long to wait for more scroll events after the most recent one
+    private static final long SCROLL_EVENTS_SETTLE_MS = 100;
+
+    /**
+     * Runs the given action and records the data of scroll events caused by it into
+     * the current session.
+     * <p>
+     * If the notification listener is active then scroll events are recorded
+     * by {@link ScrollEventsTracker} as soon as they arrive and the action result is returned
+     * without waiting. Otherwise the call blocks until the timeout expires while collecting
+     * scroll events.
+     */
     public static Boolean runAndRegisterScrollEvents(ReturningRunnable<Boolean> runnable, long timeout) {
-        // turn off listening to notifications since it interferes with us listening for the scroll
-        // event here
-        NotificationListener listener = NotificationListener.getInstance();
+        if (!NotificationListener.getInstance().isListening()) {
+            return runAndCollectScrollEvents(runnable, timeout);
+        }
 
-        boolean notificationListenerActive = listener.isListening();
-        if (notificationListenerActive) {
-            listener.stop();
+        ScrollEventsTracker.getInstance();
+        AppiumUIA2Driver.getInstance().getSessionOrThrow().setLastScrollData(null);
+        runnable.run();
+        return runnable.getResult();
+    }
+
+    public static Boolean runAndRegisterScrollEvents(ReturningRunnable<Boolean> runnable) {
+        return runAndRegisterScrollEvents(runnable, getScrollEventTimeout());
+    }
+
+    /**
+     * The same as {@link #runAndRegisterScrollEvents(ReturningRunnable)}, but also makes sure
+     * the scroll data is already recorded into the session (if any scroll has happened)
+     * when this call returns.
+     */
+    public static Boolean runAndWaitForScrollEvents(ReturningRunnable<Boolean> runnable) {
+        final long timeout = getScrollEventTimeout();
+        if (!NotificationListener.getInstance().isListening()) {
+            return runAndCollectScrollEvents(runnable, timeout);
+        }
+
+        final ScrollEventsTracker tracker = ScrollEventsTracker.getInstance();
+        AppiumUIA2Driver.getInstance().getSessionOrThrow().setLastScrollData(null);
+        final long eventsCount = tracker.getEventsCount();
+        runnable.run();
+        if (!tracker.waitForEvents(eventsCount, timeout, SCROLL_EVENTS_SETTLE_MS)) {
+            Logger.debug("Did not retrieve accessibility event for scroll");
         }
+        return runnable.getResult();
+    }
 
+    private static long getScrollEventTimeout() {
+        Session session = AppiumUIA2Driver.getInstance().getSessionOrThrow();
+        int timeout = session.getCapability(EVENT_COOLDOWN_CAP, EVENT_COOLDOWN_MS);
+        return timeout;
+    }
+
+    private static Boolean runAndCollectScrollEvents(ReturningRunnable<Boolean> runnable, long timeout) {
         // here we set a callback for the accessibility event stream, keeping track of any scroll
         // events we come across
         AccessibilityEvent event = null;
@@ -62,22 +106,10 @@ public abstract class EventRegister {
             eventToRecycle.recycle();
         }
 
-        // turn back on notification listener if it was active
-        if (notificationListenerActive) {
-            listener.start();
-        }
-
         // finally, return whatever the runnable set as its result
         return runnable.getResult();
     }
 
-    public static Boolean runAndRegisterScrollEvents(ReturningRunnable<Boolean> runnable) {
-        Session session = AppiumUIA2Driver.getInstance().getSessionOrThrow();
-        int timeout = session.getCapability(EVENT_COOLDOWN_CAP, EVENT_COOLDOWN_MS);
-
-        return runAndRegisterScrollEvents(runnable, timeout);
-    }
-
     // https://android.googlesource.com/platform/frameworks/testing/+/master/uiautomator/library/core-src/com/android/uiautomator/core/InteractionController.java#96
     static class EventCollectingPredicate implements UiAutomation.AccessibilityEventFilter {
         private final int mMask;
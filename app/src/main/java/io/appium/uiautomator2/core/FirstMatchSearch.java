@@ -0,0 +1,159 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import androidx.annotation.Nullable;
+import io.appium.uiautomator2.model.AppiumUIA2Driver;
+import io.appium.uiautomator2.model.NotificationListener;
+import io.appium.uiautomator2.utils.NodeInfoList;
+
+import static io.appium.uiautomator2.model.settings.Settings.ALLOW_INVISIBLE_ELEMENTS;
+import static io.appium.uiautomator2.utils.AXWindowHelpers.getCachedWindowRoots;
+import static io.appium.uiautomator2.utils.AXWindowHelpers.refreshAccessibilityCache;
+import static io.appium.uiautomator2.utils.StringHelpers.charSequenceToNullableString;
+
+/**
+ * Single element lookups, which walk the accessibility tree depth-first and stop
+ * as soon as the first match is found.
+ * <p>
+ * Unlike {@link UiSnapshot} these lookups only fetch the nodes preceding the match
+ * in the document order, so they are preferred for single element searches
+ * if there is no valid snapshot to reuse.
+ */
+public class FirstMatchSearch {
+    // The same limit is applied while UI snapshots are built
+    private static final int MAX_DEPTH = 70;
+
+    interface NodePredicate {
+        boolean matches(AccessibilityNodeInfo node, int index);
+    }
+
+    private FirstMatchSearch() {
+    }
+
+    /**
+     * Clears the accessibility cache and retrieves actual window roots.
+     *
+     * @return The list of window roots to start lookups from
+     */
+    public static AccessibilityNodeInfo[] getWindowRoots() {
+        refreshAccessibilityCache();
+        return getCachedWindowRoots();
+    }
+
+    public static NodeInfoList findByResourceId(final String resourceId) {
+        return find(getWindowRoots(), new NodePredicate() {
+            @Override
+            public boolean matches(AccessibilityNodeInfo node, int index) {
+                return resourceId.equals(node.getViewIdResourceName());
+            }
+        }, false, MAX_DEPTH);
+    }
+
+    public static NodeInfoList findByContentDescription(final String contentDescription) {
+        return find(getWindowRoots(), new NodePredicate() {
+            @Override
+            public boolean matches(AccessibilityNodeInfo node, int index) {
+                return contentDescription.equals(charSequenceToNullableString(node.getContentDescription()));
+            }
+        }, false, MAX_DEPTH);
+    }
+
+    public static NodeInfoList findByClassName(String className) {
+        final String fullClassName = UiSnapshot.toFullClassName(className);
+        return find(getWindowRoots(), new NodePredicate() {
+            @Override
+            public boolean matches(AccessibilityNodeInfo node, int index) {
+                return fullClassName.equals(charSequenceToNullableString(node.getClassName()));
+            }
+        }, false, MAX_DEPTH);
+    }
+
+    /**
+     * Finds the first node matching the given XPath plan.
+     *
+     * @param plan     the plan to match. Must be able to match raw nodes
+     * @param root     the context node or null to search in all windows
+     * @param maxDepth the maximum depth of the XML tree the plan is evaluated against
+     * @return The list containing the matched node, an empty list if nothing has been found
+     * or null if the result cannot be determined without building the full tree
+     */
+    @Nullable
+    static NodeInfoList findByXPath(final XPathQueryPlan plan, @Nullable AccessibilityNodeInfo root,
+                                    int maxDepth) {
+        final boolean areInvisibleElementsAllowed = AppiumUIA2Driver
+                .getInstance()
+                .getSessionOrThrow()
+                .getCapability(ALLOW_INVISIBLE_ELEMENTS.toString(), false);
+        final NodeInfoList result = find(root == null ? getWindowRoots() : new AccessibilityNodeInfo[]{root},
+                new NodePredicate() {
+                    @Override
+                    public boolean matches(AccessibilityNodeInfo node, int index) {
+                        return plan.matches(node, index);
+                    }
+                }, areInvisibleElementsAllowed, maxDepth);
+        // Toast messages are only added to the full tree
+        if (result.isEmpty() && root == null
+                && !NotificationListener.getInstance().getToastMessage().isEmpty()) {
+            return null;
+        }
+        return result;
+    }
+
+    private static NodeInfoList find(AccessibilityNodeInfo[] roots, NodePredicate predicate,
+                                     boolean includeInvisible, int maxDepth) {
+        final NodeInfoList result = new NodeInfoList();
+        for (int i = 0; i < roots.length; ++i) {
+            final AccessibilityNodeInfo match = find(roots[i], i, 0, predicate, includeInvisible, maxDepth);
+            if (match != null) {
+                result.add(match);
+                break;
+            }
+        }
+        return result;
+    }
+
+    @Nullable
+    private static AccessibilityNodeInfo find(AccessibilityNodeInfo node, int index, int depth,
+                                              NodePredicate predicate, boolean includeInvisible,
+                                              int maxDepth) {
+        LookupMetrics.onNodeVisited();
+        if (predicate.matches(node, index)) {
+            return node;
+        }
+        if (depth >= maxDepth) {
+            return null;
+        }
+        // Children are only fetched when the preceding subtrees have no matches
+        final int childCount = node.getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            final AccessibilityNodeInfo child = node.getChild(i);
+            if (child == null || !(includeInvisible || child.isVisibleToUser())) {
+                continue;
+            }
+            final AccessibilityNodeInfo match = find(child, i, depth + 1, predicate,
+                    includeInvisible, maxDepth);
+            if (match != null) {
+                return match;
+            }
+        }
+        return null;
+    }
+}
@@ -15,13 +15,19 @@
  */
 package io.appium.uiautomator2.core;
 
+import android.os.SystemClock;
+import android.view.InputDevice;
 import android.view.InputEvent;
+import android.view.MotionEvent;
 import android.view.MotionEvent.PointerCoords;
+import android.view.MotionEvent.PointerProperties;
 
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import androidx.test.uiautomator.Configurator;
 import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
 
-import io.appium.uiautomator2.model.AppiumUIA2Driver;
-import io.appium.uiautomator2.model.Session;
 import io.appium.uiautomator2.model.settings.Settings;
 import io.appium.uiautomator2.model.settings.TrackScrollEvents;
 import io.appium.uiautomator2.utils.Logger;
@@ -35,9 +41,20 @@ public class InteractionController {
     private static final String CLASS_INTERACTION_CONTROLLER = "androidx.test.uiautomator.InteractionController";
     private static final String METHOD_SEND_KEY = "sendKey";
     private static final String METHOD_INJECT_EVENT_SYNC = "injectEventSync";
-    private static final String METHOD_TOUCH_DOWN = "touchDown";
-    private static final String METHOD_TOUCH_UP = "touchUp";
-    private static final String METHOD_TOUCH_MOVE = "touchMove";
+    private static final long MOTION_EVENT_INJECTION_DELAY_MILLIS = 5;
+    private static Method injectEventSyncMethod;
+    /**
+     * Serializes input injection, so event streams from different threads (for example
+     * asynchronous actions chains and synchronous touch commands) never interleave.
+     * Whole gestures must be injected while holding this lock. It also guards the reused
+     * pointer arrays below, since MotionEvent.obtain copies their values.
+     */
+    public static final Object INPUT_GUARD = new Object();
+    private static final PointerProperties[] singlePointerProperties = {new PointerProperties()};
+    private static final PointerCoords[] singlePointerCoords = {new PointerCoords()};
+    private static PointerProperties[] gesturePointerProperties = new PointerProperties[0];
+    private static PointerCoords[] gesturePointerCoords = new PointerCoords[0];
+    private static long touchDownTime = 0;
     private final Object interactionController;
 
     public InteractionController(Object interactionController) {
@@ -45,23 +62,48 @@ public class InteractionController {
     }
 
     public boolean sendKey(int keyCode, int metaState) throws UiAutomator2Exception {
-        return (Boolean) invoke(method(CLASS_INTERACTION_CONTROLLER, METHOD_SEND_KEY, int.class, int.class),
-                interactionController, keyCode, metaState);
+        synchronized (INPUT_GUARD) {
+            return (Boolean) invoke(method(CLASS_INTERACTION_CONTROLLER, METHOD_SEND_KEY, int.class, int.class),
+                    interactionController, keyCode, metaState);
+        }
     }
 
-    public boolean injectEventSync(final InputEvent event, boolean shouldRegister) throws UiAutomator2Exception {
-        if (!shouldRegister) {
-            return (Boolean) invoke(method(CLASS_INTERACTION_CONTROLLER,
-                    METHOD_INJECT_EVENT_SYNC, InputEvent.class), interactionController, event);
+    private static Method getInjectEventSyncMethod() {
+        if (injectEventSyncMethod == null) {
+            injectEventSyncMethod = method(CLASS_INTERACTION_CONTROLLER,
+                    METHOD_INJECT_EVENT_SYNC, InputEvent.class);
         }
-        return EventRegister.runAndRegisterScrollEvents(new ReturningRunnable<Boolean>() {
-            @Override
-            public void run() {
-                Boolean result = (Boolean) invoke(method(CLASS_INTERACTION_CONTROLLER,
-                        METHOD_INJECT_EVENT_SYNC, InputEvent.class), interactionController, event);
-                setResult(result);
+        return injectEventSyncMethod;
+    }
+
+    public boolean injectEventSync(final InputEvent event, boolean shouldRegister) throws UiAutomator2Exception {
+        synchronized (INPUT_GUARD) {
+            if (!shouldRegister) {
+                return (Boolean) invoke(getInjectEventSyncMethod(), interactionController, event);
             }
-        });
+            return EventRegister.runAndRegisterScrollEvents(new ReturningRunnable<Boolean>() {
+                @Override
+                public void run() {
+                    Boolean result = (Boolean) invoke(getInjectEventSyncMethod(), interactionController, event);
+                    setResult(result);
+                }
+            });
+        }
+    }
+
+    /**
+     * Synthesizes a motion event from the given pointers, injects it and
+     * returns the event object back to the system pool.
+     */
+    private boolean injectMotionEvent(long downTime, int action, int pointersCount,
+                                      PointerProperties[] properties, PointerCoords[] coords) {
+        final MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action,
+                pointersCount, properties, coords, 0, 0, 1, 1, 0, 0, InputDevice.SOURCE_TOUCHSCREEN, 0);
+        try {
+            return injectEventSync(event, false);
+        } finally {
+            event.recycle();
+        }
     }
 
     public boolean injectEventSync(final InputEvent event) throws UiAutomator2Exception {
@@ -69,19 +111,33 @@ public class InteractionController {
     }
 
     public boolean shouldTrackScrollEvents() {
-        Session session = AppiumUIA2Driver.getInstance().getSessionOrThrow();
         final TrackScrollEvents trackScrollEventsSetting =
                 (TrackScrollEvents) Settings.TRACK_SCROLL_EVENTS.getSetting();
         Boolean trackScrollEvents = trackScrollEventsSetting.getValue();
-        Logger.error(String.format("Setting '%s' is set to %b",
+        Logger.debug(String.format("Setting '%s' is set to %b",
                 trackScrollEventsSetting.getName(), trackScrollEvents));
 
         return trackScrollEvents;
     }
 
+    private boolean injectSinglePointer(long downTime, int action, int x, int y) {
+        final PointerProperties properties = singlePointerProperties[0];
+        properties.id = 0;
+        properties.toolType = Configurator.getInstance().getToolType();
+        final PointerCoords coords = singlePointerCoords[0];
+        coords.clear();
+        coords.pressure = 1;
+        coords.size = 1;
+        coords.x = x;
+        coords.y = y;
+        return injectMotionEvent(downTime, action, 1, singlePointerProperties, singlePointerCoords);
+    }
+
     private boolean doTouchDown(final int x, final int y) {
-        return (Boolean) invoke(method(CLASS_INTERACTION_CONTROLLER,
-                METHOD_TOUCH_DOWN, int.class, int.class), interactionController, x, y);
+        synchronized (INPUT_GUARD) {
+            touchDownTime = SystemClock.uptimeMillis();
+            return injectSinglePointer(touchDownTime, MotionEvent.ACTION_DOWN, x, y);
+        }
     }
 
     public boolean touchDown(final int x, final int y) throws UiAutomator2Exception {
@@ -96,8 +152,11 @@ public class InteractionController {
     }
 
     private boolean doTouchUp(final int x, final int y) {
-        return (Boolean) invoke(method(CLASS_INTERACTION_CONTROLLER, METHOD_TOUCH_UP,
-                int.class, int.class), interactionController, x, y);
+        synchronized (INPUT_GUARD) {
+            final boolean result = injectSinglePointer(touchDownTime, MotionEvent.ACTION_UP, x, y);
+            touchDownTime = 0;
+            return result;
+        }
     }
 
     public boolean touchUp(final int x, final int y) throws UiAutomator2Exception {
@@ -112,8 +171,9 @@ public class InteractionController {
     }
 
     private boolean doTouchMove(final int x, final int y) {
-        return (Boolean) invoke(method(CLASS_INTERACTION_CONTROLLER,
-                METHOD_TOUCH_MOVE, int.class, int.class), interactionController, x, y);
+        synchronized (INPUT_GUARD) {
+            return injectSinglePointer(touchDownTime, MotionEvent.ACTION_MOVE, x, y);
+        }
     }
 
     public boolean touchMove(final int x, final int y) throws UiAutomator2Exception {
@@ -127,10 +187,74 @@ public class InteractionController {
             : doTouchMove(x, y);
     }
 
+    private static int getPointerAction(int motionEvent, int index) {
+        return motionEvent + (index << MotionEvent.ACTION_POINTER_INDEX_SHIFT);
+    }
+
+    private static void ensureGesturePointersCapacity(int pointersCount) {
+        if (gesturePointerProperties.length < pointersCount) {
+            final PointerProperties[] properties = new PointerProperties[pointersCount];
+            for (int i = 0; i < pointersCount; ++i) {
+                properties[i] = new PointerProperties();
+                properties[i].id = i;
+            }
+            gesturePointerProperties = properties;
+            gesturePointerCoords = new PointerCoords[pointersCount];
+        }
+        // The configured tool type might be changed between gestures
+        final int toolType = Configurator.getInstance().getToolType();
+        for (int i = 0; i < pointersCount; ++i) {
+            gesturePointerProperties[i].toolType = toolType;
+        }
+    }
+
+    private static void selectStep(PointerCoords[][] pcs, int step) {
+        for (int x = 0; x < pcs.length; x++) {
+            gesturePointerCoords[x] = pcs[x][Math.min(step, pcs[x].length - 1)];
+        }
+    }
+
+    /**
+     * The same algorithm as in androidx InteractionController.performMultiPointerGesture,
+     * but pointer arrays are reused between the steps and injected events get recycled.
+     */
     private boolean doPerformMultiPointerGesture(final PointerCoords[][] pcs) {
-        return (Boolean) invoke(method(CLASS_INTERACTION_CONTROLLER,
-                METHOD_PERFORM_MULTI_POINTER_GESTURE, PointerCoords[][].class),
-                interactionController, (Object) pcs);
+        if (pcs.length < 2) {
+            throw new IllegalArgumentException("Must provide coordinates for at least 2 pointers");
+        }
+
+        int maxSteps = 0;
+        for (PointerCoords[] pointerSteps : pcs) {
+            maxSteps = Math.max(maxSteps, pointerSteps.length);
+        }
+        synchronized (INPUT_GUARD) {
+            ensureGesturePointersCapacity(pcs.length);
+            final PointerProperties[] properties = gesturePointerProperties;
+            final PointerCoords[] coords = gesturePointerCoords;
+            boolean result = true;
+            final long downTime = SystemClock.uptimeMillis();
+            selectStep(pcs, 0);
+            result &= injectMotionEvent(downTime, MotionEvent.ACTION_DOWN, 1, properties, coords);
+            for (int x = 1; x < pcs.length; x++) {
+                result &= injectMotionEvent(downTime,
+                        getPointerAction(MotionEvent.ACTION_POINTER_DOWN, x), x + 1, properties, coords);
+            }
+            for (int i = 1; i < maxSteps - 1; i++) {
+                selectStep(pcs, i);
+                result &= injectMotionEvent(downTime, MotionEvent.ACTION_MOVE, pcs.length,
+                        properties, coords);
+                SystemClock.sleep(MOTION_EVENT_INJECTION_DELAY_MILLIS);
+            }
+            selectStep(pcs, maxSteps - 1);
+            for (int x = 1; x < pcs.length; x++) {
+                result &= injectMotionEvent(downTime,
+                        getPointerAction(MotionEvent.ACTION_POINTER_UP, x), x + 1, properties, coords);
+            }
+            result &= injectMotionEvent(downTime, MotionEvent.ACTION_UP, 1, properties, coords);
+            // Do not keep references to the gesture steps
+            Arrays.fill(coords, null);
+            return result;
+        }
     }
 
     public Boolean performMultiPointerGesture(final PointerCoords[][] pcs) throws UiAutomator2Exception {
@@ -0,0 +1,111 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import android.util.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+import androidx.annotation.Nullable;
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.utils.Attribute;
+
+/**
+ * Writes UI element trees as JSON page source. Each element is represented by an object
+ * containing its attribute values and, unless the depth limit has been reached,
+ * the <em>children</em> array. The output is generated directly from the tree,
+ * so no intermediate document is built in memory.
+ */
+public class JsonSourceWriter {
+    private static final String CHILDREN = "children";
+
+    private final UiElement<?, ?> root;
+    @Nullable
+    private final Set<Attribute> attributes;
+    private final int maxDepth;
+    private boolean shouldAddDisplayInfo = false;
+    private int rotation;
+    private int width;
+    private int height;
+
+    /**
+     * @param root       the root of the tree to write
+     * @param attributes the set of attributes to include. All attributes, which
+     *                   are exposed in the XML source, are included if this is null
+     * @param maxDepth   children of elements at this depth are not written
+     */
+    public JsonSourceWriter(UiElement<?, ?> root, @Nullable Set<Attribute> attributes, int maxDepth) {
+        this.root = root;
+        this.attributes = attributes;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Adds the display info to the root element
+     */
+    public JsonSourceWriter withDisplayInfo(int rotation, int width, int height) {
+        this.shouldAddDisplayInfo = true;
+        this.rotation = rotation;
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        final JsonWriter jsonWriter = new JsonWriter(writer);
+        writeElement(jsonWriter, root, 0);
+        jsonWriter.flush();
+    }
+
+    private void writeElement(JsonWriter writer, UiElement<?, ?> element, int depth) throws IOException {
+        writer.beginObject();
+        for (Attribute attribute : element.attributeKeys()) {
+            if (!attribute.isExposableToXml()
+                    || (attributes != null && !attributes.contains(attribute))) {
+                continue;
+            }
+            final Object value = element.get(attribute);
+            if (value == null) {
+                continue;
+            }
+            writer.name(attribute.getName());
+            if (value instanceof Boolean) {
+                writer.value((Boolean) value);
+            } else if (value instanceof Number) {
+                writer.value((Number) value);
+            } else {
+                writer.value(String.valueOf(value));
+            }
+        }
+        if (depth == 0 && shouldAddDisplayInfo) {
+            writer.name("rotation").value(rotation);
+            writer.name("width").value(width);
+            writer.name("height").value(height);
+        }
+        if (depth < maxDepth) {
+            writer.name(CHILDREN).beginArray();
+            for (UiElement<?, ?> child : element.getChildren()) {
+                writeElement(writer, child, depth + 1);
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+}
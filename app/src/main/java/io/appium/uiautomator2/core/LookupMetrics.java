@@ -0,0 +1,213 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import android.os.SystemClock;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Collects the count of accessibility nodes visited by element lookups
+ * and the cost of UI snapshots.
+ * <p>
+ * A node is counted each time it is fetched from the accessibility service while a lookup
+ * is running on the current thread, either to build a UI snapshot or during a direct tree
+ * traversal. Lookups answered from an already existing snapshot visit no nodes.
+ * UiObject instances are resolved by UiAutomator's query controller, whose traversals
+ * cannot be counted node by node, so each returned UiObject is counted as a single resolution.
+ * Snapshots taken speculatively in background (see {@link SnapshotPrefetcher}) are tracked
+ * separately as hits if they have been used by a command or waste otherwise.
+ */
+public class LookupMetrics {
+    private static final ThreadLocal<long[]> currentLookup = new ThreadLocal<>();
+    private static long lookupsCount = 0;
+    private static long totalNodesVisited = 0;
+    private static long totalUiObjectResolutions = 0;
+    @Nullable
+    private static String lastStrategy = null;
+    @Nullable
+    private static String lastSelector = null;
+    private static long lastNodesVisited = 0;
+    private static long lastUiObjectResolutions = 0;
+    private static long lastDuration = 0;
+    private static long snapshotsCount = 0;
+    private static long lastSnapshotElements = 0;
+    private static long lastSnapshotIpcCalls = -1;
+    private static long lastSnapshotDuration = 0;
+    private static long speculativeSnapshotsCount = 0;
+    private static long speculativeSnapshotsHits = 0;
+    private static long speculativeSnapshotsWasted = 0;
+
+    private LookupMetrics() {
+    }
+
+    /**
+     * Starts counting visited nodes on the current thread.
+     */
+    public static void beginLookup() {
+        currentLookup.set(new long[]{0, SystemClock.uptimeMillis(), 0});
+    }
+
+    /**
+     * Records a single node visit if a lookup is running on the current thread.
+     */
+    public static void onNodeVisited() {
+        final long[] lookup = currentLookup.get();
+        if (lookup != null) {
+            ++lookup[0];
+        }
+    }
+
+    /**
+     * Records multiple node visits if a lookup is running on the current thread.
+     * This is useful if nodes have been fetched by other threads on behalf of the lookup.
+     */
+    public static void onNodesVisited(long count) {
+        final long[] lookup = currentLookup.get();
+        if (lookup != null) {
+            lookup[0] += count;
+        }
+    }
+
+    /**
+     * Records a UiObject returned by the lookup running on the current thread.
+     * UiAutomator traverses the tree once more in order to resolve it.
+     */
+    public static void onUiObjectResolution() {
+        final long[] lookup = currentLookup.get();
+        if (lookup != null) {
+            ++lookup[2];
+        }
+    }
+
+    /**
+     * Stops counting visited nodes on the current thread and stores the result.
+     *
+     * @param strategy the lookup strategy name
+     * @param selector the lookup selector
+     * @return The count of nodes visited since the lookup has been started
+     */
+    public static long endLookup(String strategy, String selector) {
+        final long[] lookup = currentLookup.get();
+        if (lookup == null) {
+            return 0;
+        }
+        currentLookup.remove();
+        synchronized (LookupMetrics.class) {
+            ++lookupsCount;
+            totalNodesVisited += lookup[0];
+            totalUiObjectResolutions += lookup[2];
+            lastStrategy = strategy;
+            lastSelector = selector;
+            lastNodesVisited = lookup[0];
+            lastUiObjectResolutions = lookup[2];
+            lastDuration = SystemClock.uptimeMillis() - lookup[1];
+        }
+        return lookup[0];
+    }
+
+    /**
+     * Stores the details of a newly taken UI snapshot.
+     *
+     * @param elementsCount the count of searchable elements in the snapshot
+     * @param ipcCalls      the count of accessibility requests sent to build it or -1 if unknown
+     * @param duration      the time spent to build the snapshot in milliseconds
+     */
+    public static synchronized void onSnapshotTaken(long elementsCount, long ipcCalls, long duration) {
+        ++snapshotsCount;
+        lastSnapshotElements = elementsCount;
+        lastSnapshotIpcCalls = ipcCalls;
+        lastSnapshotDuration = duration;
+    }
+
+    /**
+     * Records a UI snapshot taken in background while the server has been idle.
+     */
+    public static synchronized void onSpeculativeSnapshotTaken() {
+        ++speculativeSnapshotsCount;
+    }
+
+    /**
+     * Records a speculative snapshot, which has been used by a command.
+     */
+    public static synchronized void onSpeculativeSnapshotHit() {
+        ++speculativeSnapshotsHits;
+    }
+
+    /**
+     * Records a speculative snapshot, which has been discarded without being used.
+     */
+    public static synchronized void onSpeculativeSnapshotWasted() {
+        ++speculativeSnapshotsWasted;
+    }
+
+    public static synchronized JSONObject toJSON() throws JSONException {
+        final JSONObject result = new JSONObject();
+        result.put("lookups", lookupsCount);
+        result.put("nodesVisited", totalNodesVisited);
+        result.put("uiObjectResolutions", totalUiObjectResolutions);
+        if (lastStrategy == null) {
+            result.put("lastLookup", JSONObject.NULL);
+        } else {
+            final JSONObject lastLookup = new JSONObject();
+            lastLookup.put("strategy", lastStrategy);
+            lastLookup.put("selector", lastSelector);
+            lastLookup.put("nodesVisited", lastNodesVisited);
+            lastLookup.put("uiObjectResolutions", lastUiObjectResolutions);
+            lastLookup.put("duration", lastDuration);
+            result.put("lastLookup", lastLookup);
+        }
+        result.put("snapshots", snapshotsCount);
+        if (snapshotsCount == 0) {
+            result.put("lastSnapshot", JSONObject.NULL);
+        } else {
+            final JSONObject lastSnapshot = new JSONObject();
+            lastSnapshot.put("elements", lastSnapshotElements);
+            lastSnapshot.put("ipcCalls", lastSnapshotIpcCalls < 0 ? JSONObject.NULL : lastSnapshotIpcCalls);
+            lastSnapshot.put("duration", lastSnapshotDuration);
+            result.put("lastSnapshot", lastSnapshot);
+        }
+        final JSONObject speculativeSnapshots = new JSONObject();
+        speculativeSnapshots.put("taken", speculativeSnapshotsCount);
+        speculativeSnapshots.put("hits", speculativeSnapshotsHits);
+        speculativeSnapshots.put("wasted", speculativeSnapshotsWasted);
+        result.put("speculativeSnapshots", speculativeSnapshots);
+        return result;
+    }
+
+    public static synchronized void reset() {
+        lookupsCount = 0;
+        totalNodesVisited = 0;
+        totalUiObjectResolutions = 0;
+        lastStrategy = null;
+        lastSelector = null;
+        lastNodesVisited = 0;
+        lastUiObjectResolutions = 0;
+        lastDuration = 0;
+        snapshotsCount = 0;
+        lastSnapshotElements = 0;
+        lastSnapshotIpcCalls = -1;
+        lastSnapshotDuration = 0;
+        speculativeSnapshotsCount = 0;
+        speculativeSnapshotsHits = 0;
+        speculativeSnapshotsWasted = 0;
+    }
+}
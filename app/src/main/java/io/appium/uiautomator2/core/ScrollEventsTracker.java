@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import android.os.SystemClock;
+import android.view.accessibility.AccessibilityEvent;
+
+import io.appium.uiautomator2.model.AccessibilityEventBus;
+import io.appium.uiautomator2.model.AccessibilityEventRecord;
+import io.appium.uiautomator2.model.AccessibilityEventSubscriber;
+import io.appium.uiautomator2.model.AccessibilityScrollData;
+import io.appium.uiautomator2.model.AppiumUIA2Driver;
+import io.appium.uiautomator2.model.Session;
+import io.appium.uiautomator2.utils.Logger;
+
+/**
+ * Records the data of the most recent scroll event into the current session
+ * as soon as the event arrives, so input injection never has to wait for it.
+ */
+public class ScrollEventsTracker implements AccessibilityEventSubscriber {
+    private static ScrollEventsTracker instance;
+
+    private final Object eventsGuard = new Object();
+    private long eventsCount = 0;
+    private long lastEventTimestamp = 0;
+
+    private ScrollEventsTracker() {
+    }
+
+    public static synchronized ScrollEventsTracker getInstance() {
+        if (instance == null) {
+            instance = new ScrollEventsTracker();
+            AccessibilityEventBus.getInstance()
+                    .subscribe(AccessibilityEvent.TYPE_VIEW_SCROLLED, instance);
+        }
+        return instance;
+    }
+
+    @Override
+    public void onAccessibilityEvent(AccessibilityEventRecord event) {
+        final AccessibilityScrollData data = new AccessibilityScrollData(event);
+        ScrollExtentsCache.getInstance().onScrolled(event);
+        final Session session = AppiumUIA2Driver.getInstance().getSession();
+        if (session != null) {
+            Logger.debug("Retrieved accessibility event for scroll: ", data);
+            session.setLastScrollData(data);
+        }
+        synchronized (eventsGuard) {
+            ++eventsCount;
+            lastEventTimestamp = SystemClock.uptimeMillis();
+            eventsGuard.notifyAll();
+        }
+    }
+
+    /**
+     * @return The total count of scroll events received so far
+     */
+    public long getEventsCount() {
+        synchronized (eventsGuard) {
+            return eventsCount;
+        }
+    }
+
+    /**
+     * Waits until at least one scroll event is received after the given events count
+     * and no more scroll events arrive during the settle interval.
+     *
+     * @param sinceEventsCount the value of {@link #getEventsCount()} before the action
+     * @param timeoutMs the maximum time to wait
+     * @param settleMs the quiet interval after the most recent scroll event
+     * @return true if at least one scroll event has been received
+     */
+    public boolean waitForEvents(long sinceEventsCount, long timeoutMs, long settleMs) {
+        final long deadline = SystemClock.uptimeMillis() + timeoutMs;
+        synchronized (eventsGuard) {
+            long now = SystemClock.uptimeMillis();
+            while (now < deadline) {
+                final long waitMs = eventsCount > sinceEventsCount
+                        ? lastEventTimestamp + settleMs - now
+                        : deadline - now;
+                if (waitMs <= 0) {
+                    break;
+                }
+                try {
+                    eventsGuard.wait(Math.min(waitMs, deadline - now));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                now = SystemClock.uptimeMillis();
+            }
+            return eventsCount > sinceEventsCount;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeInfo.CollectionInfo;
+import android.view.accessibility.AccessibilityNodeInfo.RangeInfo;
+import android.view.accessibility.AccessibilityRecord;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.appium.uiautomator2.model.AccessibilityEventRecord;
+import io.appium.uiautomator2.model.AccessibilityScrollData;
+import io.appium.uiautomator2.utils.Logger;
+
+/**
+ * Keeps the most recent scroll extents reported by accessibility events for each
+ * scrollable view, so its content size could be calculated without touching the UI.
+ * Cached entries are replaced as soon as a new scroll event arrives from the same view.
+ */
+public class ScrollExtentsCache {
+    public static final long UNDEFINED_NODE_ID = -1;
+    private static final int MAX_ENTRIES = 32;
+    private static final Method RECORD_SOURCE_NODE_ID = resolveSourceNodeIdGetter(AccessibilityRecord.class);
+    private static final Method NODE_SOURCE_NODE_ID = resolveSourceNodeIdGetter(AccessibilityNodeInfo.class);
+    private static ScrollExtentsCache instance;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private ScrollExtentsCache() {
+    }
+
+    public static synchronized ScrollExtentsCache getInstance() {
+        if (instance == null) {
+            instance = new ScrollExtentsCache();
+        }
+        return instance;
+    }
+
+    private static Method resolveSourceNodeIdGetter(Class<?> clazz) {
+        try {
+            final Method method = clazz.getDeclaredMethod("getSourceNodeId");
+            method.setAccessible(true);
+            return method;
+        } catch (Exception e) {
+            Logger.info(String.format("%s.getSourceNodeId is not available: %s",
+                    clazz.getSimpleName(), e.getMessage()));
+            return null;
+        }
+    }
+
+    private static long invokeSourceNodeIdGetter(Method getter, Object target) {
+        if (getter == null || target == null) {
+            return UNDEFINED_NODE_ID;
+        }
+        try {
+            return (long) getter.invoke(target);
+        } catch (Exception e) {
+            return UNDEFINED_NODE_ID;
+        }
+    }
+
+    /**
+     * @param record an accessibility event or any other accessibility record
+     * @return the identifier of the view, which has fired the event, or
+     * {@link #UNDEFINED_NODE_ID} if it cannot be retrieved
+     */
+    public static long getSourceNodeId(AccessibilityRecord record) {
+        return invokeSourceNodeIdGetter(RECORD_SOURCE_NODE_ID, record);
+    }
+
+    private static long getSourceNodeId(AccessibilityNodeInfo node) {
+        return invokeSourceNodeIdGetter(NODE_SOURCE_NODE_ID, node);
+    }
+
+    /**
+     * Stores the extents of the given scroll event and drops the content size
+     * previously calculated for its source view.
+     */
+    public void onScrolled(AccessibilityEventRecord event) {
+        final AccessibilityScrollData data = new AccessibilityScrollData(event);
+        synchronized (entries) {
+            if (event.sourceNodeId == UNDEFINED_NODE_ID) {
+                // We cannot tell which view has been scrolled, so nothing in this window is reliable
+                removeWindowEntries(event.windowId);
+                return;
+            }
+            entries.put(new Key(event.windowId, event.sourceNodeId), new Entry(data));
+        }
+    }
+
+    private void removeWindowEntries(int windowId) {
+        for (Iterator<Key> it = entries.keySet().iterator(); it.hasNext(); ) {
+            if (it.next().windowId == windowId) {
+                it.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return the most recent scroll data reported by the given scrollable or null
+     * if no scroll events have been received from it yet
+     */
+    public AccessibilityScrollData getScrollData(AccessibilityNodeInfo node) {
+        final Key key = toKey(node);
+        if (key == null) {
+            return null;
+        }
+        synchronized (entries) {
+            final Entry entry = entries.get(key);
+            return entry == null ? null : entry.scrollData;
+        }
+    }
+
+    /**
+     * @return the previously calculated scrollable offset of the given view or null
+     * if it has not been calculated since the most recent scroll event
+     */
+    public Integer getScrollableOffset(AccessibilityNodeInfo node) {
+        final Key key = toKey(node);
+        if (key == null) {
+            return null;
+        }
+        synchronized (entries) {
+            final Entry entry = entries.get(key);
+            return entry == null ? null : entry.scrollableOffset;
+        }
+    }
+
+    public void putScrollableOffset(AccessibilityNodeInfo node, int scrollableOffset) {
+        final Key key = toKey(node);
+        if (key == null) {
+            return;
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(null);
+                entries.put(key, entry);
+            }
+            entry.scrollableOffset = scrollableOffset;
+        }
+    }
+
+    private static Key toKey(AccessibilityNodeInfo node) {
+        final long sourceNodeId = getSourceNodeId(node);
+        return sourceNodeId == UNDEFINED_NODE_ID ? null : new Key(node.getWindowId(), sourceNodeId);
+    }
+
+    /**
+     * @return the count of items in the given collection view or -1 if the view
+     * does not expose its collection info
+     */
+    public static int getCollectionItemsCount(AccessibilityNodeInfo node) {
+        final CollectionInfo info = node.getCollectionInfo();
+        if (info == null || info.getRowCount() < 0) {
+            return -1;
+        }
+        return info.getRowCount() * Math.max(info.getColumnCount(), 1);
+    }
+
+    /**
+     * @return the scroll range in pixels exposed by the given view or -1 if the view
+     * does not expose an integer range
+     */
+    public static int getRangeExtent(AccessibilityNodeInfo node) {
+        final RangeInfo info = node.getRangeInfo();
+        if (info == null || info.getType() != RangeInfo.RANGE_TYPE_INT) {
+            return -1;
+        }
+        return (int) (info.getMax() - info.getMin());
+    }
+
+    private static class Entry {
+        final AccessibilityScrollData scrollData;
+        Integer scrollableOffset;
+
+        Entry(AccessibilityScrollData scrollData) {
+            this.scrollData = scrollData;
+        }
+    }
+
+    private static class Key {
+        final int windowId;
+        final long sourceNodeId;
+
+        Key(int windowId, long sourceNodeId) {
+            this.windowId = windowId;
+            this.sourceNodeId = sourceNodeId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return windowId == other.windowId && sourceNodeId == other.sourceNodeId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * windowId + (int) (sourceNodeId ^ (sourceNodeId >>> 32));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import io.appium.uiautomator2.model.settings.Settings;
+import io.appium.uiautomator2.model.settings.SpeculativeSnapshots;
+import io.appium.uiautomator2.utils.Device;
+import io.appium.uiautomator2.utils.Logger;
+
+/**
+ * Takes UI snapshots speculatively while the server is idle.
+ * <p>
+ * After a UI-mutating command the background thread waits until the device is idle
+ * and builds a new {@link UiSnapshot}, so the next lookup or page source request finds it
+ * ready. The pre-captured snapshot follows the usual validity rules, so it is discarded if
+ * an accessibility change event arrives or another UI-mutating command is executed
+ * before it gets used. Hits and waste are counted by {@link LookupMetrics}.
+ */
+public class SnapshotPrefetcher {
+    private static final long THREAD_KEEP_ALIVE_SEC = 30;
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private SnapshotPrefetcher() {
+    }
+
+    /**
+     * Schedules a background snapshot capture if speculative snapshots are enabled.
+     * This should be called after the current snapshot has been invalidated by a UI-mutating command.
+     */
+    public static void schedule() {
+        if (!((SpeculativeSnapshots) Settings.SPECULATIVE_SNAPSHOTS.getSetting()).getValue()) {
+            return;
+        }
+        final long invalidationsCount = UiSnapshot.getInvalidationsCount();
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Skip the capture if there has been another UI change since it has been scheduled
+                if (UiSnapshot.getInvalidationsCount() != invalidationsCount) {
+                    return;
+                }
+                Device.waitForIdle();
+                try {
+                    if (UiSnapshot.precapture(invalidationsCount)) {
+                        Logger.debug("A speculative UI snapshot has been taken");
+                    }
+                } catch (Exception e) {
+                    Logger.warn(String.format("Cannot take a speculative UI snapshot: %s", e.getMessage()));
+                }
+            }
+        });
+    }
+
+    private static ExecutorService createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+                THREAD_KEEP_ALIVE_SEC, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "appium-snapshot-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.utils.Attribute;
+
+/**
+ * Immutable copy of a UI elements tree, which is suitable for structural comparison.
+ * <p>
+ * Each node gets an identity, which only depends on its position in the tree:
+ * the id of the window it belongs to and the path of class names (with ordinals among
+ * siblings of the same class) from the window root, for example
+ * <em>window[12]/android.widget.FrameLayout[1]/android.widget.Button[2]</em>.
+ * Hashes of node attributes and whole subtrees are calculated while the tree is captured,
+ * so the comparison could skip unchanged subtrees without visiting them.
+ */
+public class SourceTree {
+    private static final int MAX_DEPTH = 70;
+    private static final String ROOT_ID = "hierarchy";
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Node root;
+
+    private SourceTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @param root the root of the hierarchy, whose children are window roots
+     * @return The captured tree
+     */
+    public static SourceTree capture(UiElement<?, ?> root) {
+        final List<Node> windows = new ArrayList<>();
+        final Map<String, Integer> ordinals = new HashMap<>();
+        for (UiElement<?, ?> window : root.getChildren()) {
+            final AccessibilityNodeInfo node = window.getNode();
+            // Toast messages and other synthetic nodes have no window id
+            final String step = node == null || node.getWindowId() < 0
+                    ? toStep(window, ordinals)
+                    : String.format("window[%s]", node.getWindowId());
+            windows.add(capture(window, step, 1));
+        }
+        return new SourceTree(new Node(ROOT_ID, toAttributes(root), windows));
+    }
+
+    private static Node capture(UiElement<?, ?> element, String id, int depth) {
+        final List<Node> children = new ArrayList<>();
+        if (depth < MAX_DEPTH) {
+            final Map<String, Integer> ordinals = new HashMap<>();
+            for (UiElement<?, ?> child : element.getChildren()) {
+                children.add(capture(child, id + "/" + toStep(child, ordinals), depth + 1));
+            }
+        }
+        return new Node(id, toAttributes(element), children);
+    }
+
+    private static String toStep(UiElement<?, ?> element, Map<String, Integer> ordinals) {
+        final String className = String.valueOf(element.getClassName());
+        final Integer previousOrdinal = ordinals.get(className);
+        final int ordinal = previousOrdinal == null ? 1 : previousOrdinal + 1;
+        ordinals.put(className, ordinal);
+        return String.format("%s[%s]", className, ordinal);
+    }
+
+    private static Map<String, Object> toAttributes(UiElement<?, ?> element) {
+        final Map<String, Object> result = new LinkedHashMap<>();
+        for (Attribute attribute : element.attributeKeys()) {
+            if (!attribute.isExposableToXml()) {
+                continue;
+            }
+            final Object value = element.get(attribute);
+            if (value != null) {
+                result.put(attribute.getName(), value);
+            }
+        }
+        return result;
+    }
+
+    private static long hash(long seed, String value) {
+        long result = seed;
+        for (int i = 0; i < value.length(); ++i) {
+            result ^= value.charAt(i);
+            result *= FNV_PRIME;
+        }
+        // Separate consecutive values
+        return (result ^ 0xff) * FNV_PRIME;
+    }
+
+    public Node getRoot() {
+        return root;
+    }
+
+    public static class Node {
+        private final String id;
+        private final Map<String, Object> attributes;
+        private final List<Node> children;
+        private final long attributesHash;
+        private final long subtreeHash;
+        private final int subtreeSize;
+
+        private Node(String id, Map<String, Object> attributes, List<Node> children) {
+            this.id = id;
+            this.attributes = Collections.unmodifiableMap(attributes);
+            this.children = Collections.unmodifiableList(children);
+
+            long attributesHash = FNV_OFFSET_BASIS;
+            for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+                attributesHash = hash(hash(attributesHash, entry.getKey()), String.valueOf(entry.getValue()));
+            }
+            this.attributesHash = attributesHash;
+
+            long subtreeHash = hash(attributesHash, id);
+            int subtreeSize = 1;
+            for (Node child : children) {
+                subtreeHash = (subtreeHash ^ child.subtreeHash) * FNV_PRIME;
+                subtreeSize += child.subtreeSize;
+            }
+            this.subtreeHash = subtreeHash;
+            this.subtreeSize = subtreeSize;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        public List<Node> getChildren() {
+            return children;
+        }
+
+        public long getAttributesHash() {
+            return attributesHash;
+        }
+
+        public long getSubtreeHash() {
+            return subtreeHash;
+        }
+
+        /**
+         * @return The count of nodes in the subtree including this one
+         */
+        public int getSubtreeSize() {
+            return subtreeSize;
+        }
+    }
+}
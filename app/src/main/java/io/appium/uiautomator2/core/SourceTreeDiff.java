@@ -0,0 +1,189 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.annotation.Nullable;
+
+import static io.appium.uiautomator2.utils.JSONUtils.formatNull;
+
+/**
+ * Structural difference between two captured UI trees (see {@link SourceTree}).
+ * <p>
+ * Nodes are matched by their identities. Matched subtrees with equal hashes are skipped
+ * entirely. Only roots of inserted and removed subtrees are listed. Inserted subtrees
+ * are serialized as a whole, since their contents are not known to the client yet.
+ */
+public class SourceTreeDiff {
+    private final boolean isBaseline;
+    private final List<SourceTree.Node> inserted = new ArrayList<>();
+    private final List<SourceTree.Node> removed = new ArrayList<>();
+    private final List<Change> changed = new ArrayList<>();
+    private int skippedSubtrees = 0;
+
+    private SourceTreeDiff(boolean isBaseline) {
+        this.isBaseline = isBaseline;
+    }
+
+    /**
+     * @param previous the previously captured tree or null if there is none. The whole
+     *                 current tree is reported as inserted in such case
+     * @param current  the recently captured tree
+     * @return The difference
+     */
+    public static SourceTreeDiff compute(@Nullable SourceTree previous, SourceTree current) {
+        if (previous == null) {
+            final SourceTreeDiff result = new SourceTreeDiff(true);
+            result.inserted.add(current.getRoot());
+            return result;
+        }
+        final SourceTreeDiff result = new SourceTreeDiff(false);
+        result.compare(previous.getRoot(), current.getRoot());
+        return result;
+    }
+
+    private void compare(SourceTree.Node previous, SourceTree.Node current) {
+        if (previous.getSubtreeHash() == current.getSubtreeHash()) {
+            skippedSubtrees++;
+            return;
+        }
+        if (previous.getAttributesHash() != current.getAttributesHash()) {
+            changed.add(new Change(current.getId(), previous.getAttributes(), current.getAttributes()));
+        }
+        final Map<String, SourceTree.Node> previousChildren = new LinkedHashMap<>();
+        for (SourceTree.Node child : previous.getChildren()) {
+            previousChildren.put(child.getId(), child);
+        }
+        for (SourceTree.Node child : current.getChildren()) {
+            final SourceTree.Node previousChild = previousChildren.remove(child.getId());
+            if (previousChild == null) {
+                inserted.add(child);
+            } else {
+                compare(previousChild, child);
+            }
+        }
+        removed.addAll(previousChildren.values());
+    }
+
+    public boolean isBaseline() {
+        return isBaseline;
+    }
+
+    public boolean isEmpty() {
+        return inserted.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    public List<SourceTree.Node> getInserted() {
+        return Collections.unmodifiableList(inserted);
+    }
+
+    public List<SourceTree.Node> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    public List<Change> getChanged() {
+        return Collections.unmodifiableList(changed);
+    }
+
+    public int getSkippedSubtrees() {
+        return skippedSubtrees;
+    }
+
+    public JSONObject toJSON() throws JSONException {
+        final JSONArray insertedJson = new JSONArray();
+        for (SourceTree.Node node : inserted) {
+            insertedJson.put(toJSON(node).put("subtreeSize", node.getSubtreeSize()));
+        }
+        final JSONArray removedJson = new JSONArray();
+        for (SourceTree.Node node : removed) {
+            removedJson.put(new JSONObject()
+                    .put("id", node.getId())
+                    .put("subtreeSize", node.getSubtreeSize()));
+        }
+        final JSONArray changedJson = new JSONArray();
+        for (Change change : changed) {
+            final JSONObject deltas = new JSONObject();
+            for (Map.Entry<String, Object[]> delta : change.getDeltas().entrySet()) {
+                deltas.put(delta.getKey(), new JSONObject()
+                        .put("old", formatNull(delta.getValue()[0]))
+                        .put("new", formatNull(delta.getValue()[1])));
+            }
+            changedJson.put(new JSONObject()
+                    .put("id", change.getId())
+                    .put("attributes", deltas));
+        }
+        return new JSONObject()
+                .put("baseline", isBaseline)
+                .put("inserted", insertedJson)
+                .put("removed", removedJson)
+                .put("changed", changedJson)
+                .put("skippedSubtrees", skippedSubtrees);
+    }
+
+    private static JSONObject toJSON(SourceTree.Node node) throws JSONException {
+        final JSONArray childrenJson = new JSONArray();
+        for (SourceTree.Node child : node.getChildren()) {
+            childrenJson.put(toJSON(child));
+        }
+        return new JSONObject()
+                .put("id", node.getId())
+                .put("attributes", new JSONObject(node.getAttributes()))
+                .put("children", childrenJson);
+    }
+
+    public static class Change {
+        private final String id;
+        private final Map<String, Object[]> deltas = new LinkedHashMap<>();
+
+        private Change(String id, Map<String, Object> previous, Map<String, Object> current) {
+            this.id = id;
+            final Set<String> names = new LinkedHashSet<>(previous.keySet());
+            names.addAll(current.keySet());
+            for (String name : names) {
+                final Object previousValue = previous.get(name);
+                final Object currentValue = current.get(name);
+                if (previousValue == null ? currentValue != null : !previousValue.equals(currentValue)) {
+                    deltas.put(name, new Object[]{previousValue, currentValue});
+                }
+            }
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return Attribute names mapped to pairs of their previous and current values.
+         * Missing values are represented by nulls
+         */
+        public Map<String, Object[]> getDeltas() {
+            return Collections.unmodifiableMap(deltas);
+        }
+    }
+}
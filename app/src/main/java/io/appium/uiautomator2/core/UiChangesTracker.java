@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import android.os.SystemClock;
+import android.view.accessibility.AccessibilityEvent;
+
+import io.appium.uiautomator2.model.AccessibilityEventBus;
+import io.appium.uiautomator2.model.AccessibilityEventRecord;
+import io.appium.uiautomator2.model.AccessibilityEventSubscriber;
+import io.appium.uiautomator2.utils.AXWindowHelpers;
+
+/**
+ * Keeps the count of UI changes reported by accessibility events and
+ * drops the cached window roots as soon as the windows set changes.
+ */
+public class UiChangesTracker implements AccessibilityEventSubscriber {
+    private static final int WINDOW_EVENTS_MASK = AccessibilityEvent.TYPE_WINDOWS_CHANGED
+            | AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED;
+    private static final int EVENTS_MASK = WINDOW_EVENTS_MASK
+            | AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED
+            // Toast messages are a part of the page source
+            | AccessibilityEvent.TYPE_NOTIFICATION_STATE_CHANGED;
+    private static UiChangesTracker instance;
+
+    private final Object changesGuard = new Object();
+    private long generation = 0;
+
+    private UiChangesTracker() {
+    }
+
+    public static synchronized UiChangesTracker getInstance() {
+        if (instance == null) {
+            instance = new UiChangesTracker();
+            AccessibilityEventBus.getInstance().subscribe(EVENTS_MASK, instance);
+        }
+        return instance;
+    }
+
+    @Override
+    public void onAccessibilityEvent(AccessibilityEventRecord event) {
+        if ((event.eventType & WINDOW_EVENTS_MASK) != 0) {
+            AXWindowHelpers.invalidateWindowRoots();
+        }
+        synchronized (changesGuard) {
+            ++generation;
+            changesGuard.notifyAll();
+        }
+    }
+
+    /**
+     * @return The count of UI changes received so far
+     */
+    public long getGeneration() {
+        synchronized (changesGuard) {
+            return generation;
+        }
+    }
+
+    /**
+     * Blocks until a UI change is received after the given generation or the timeout expires.
+     *
+     * @param sinceGeneration the value of {@link #getGeneration()} to compare to
+     * @param timeoutMs the maximum time to wait
+     * @return true if the UI has changed
+     */
+    public boolean awaitChange(long sinceGeneration, long timeoutMs) {
+        final long deadline = SystemClock.uptimeMillis() + timeoutMs;
+        synchronized (changesGuard) {
+            long remainingMs = timeoutMs;
+            while (generation <= sinceGeneration && remainingMs > 0) {
+                try {
+                    changesGuard.wait(remainingMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                remainingMs = deadline - SystemClock.uptimeMillis();
+            }
+            return generation > sinceGeneration;
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import android.os.SystemClock;
+import android.util.SparseArray;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import org.jdom2.Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.Nullable;
+import io.appium.uiautomator2.model.AccessibilityEventBus;
+import io.appium.uiautomator2.model.NotificationListener;
+import io.appium.uiautomator2.model.UiAutomationElement;
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.utils.Attribute;
+import io.appium.uiautomator2.utils.Logger;
+import io.appium.uiautomator2.utils.NodeInfoList;
+
+import static io.appium.uiautomator2.utils.AXWindowHelpers.getCachedWindowRoots;
+import static io.appium.uiautomator2.utils.AXWindowHelpers.refreshAccessibilityCache;
+
+/**
+ * An in-memory copy of the accessibility hierarchy shared by all the locator strategies.
+ * <p>
+ * The snapshot stays valid until either a UI-mutating command is executed
+ * (see {@link io.appium.uiautomator2.handler.request.BaseRequestHandler#mutatesUi()})
+ * or the accessibility events stream reports a window or content change. UI changes
+ * cannot be detected if the notification listener is disabled, so in such case
+ * a new snapshot is taken for each lookup.
+ * <p>
+ * If the corresponding setting is enabled then snapshots are also taken in background
+ * after UI-mutating commands (see {@link SnapshotPrefetcher}).
+ */
+public class UiSnapshot {
+    public static final Set<Attribute> INDEXED_ATTRIBUTES = Collections.unmodifiableSet(EnumSet.of(
+            Attribute.RESOURCE_ID, Attribute.CONTENT_DESC, Attribute.CLASS, Attribute.TEXT));
+    // Snapshots are immutable once built, so they could be read by many requests at once
+    private static volatile UiSnapshot current = null;
+    private static long invalidationsCount = 0;
+
+    private final UiAutomationElement root;
+    private final long generation;
+    private final List<UiAutomationElement> windows;
+    // Elements reachable through visible nodes in the document order
+    private final List<UiAutomationElement> searchableElements = new ArrayList<>();
+    private final Map<UiAutomationElement, UiAutomationElement> parents = new IdentityHashMap<>();
+    private final Map<AccessibilityNodeInfo, UiAutomationElement> elementsByNode = new HashMap<>();
+    // Attribute value -> searchable elements having this value, in the document order
+    private final Map<Attribute, Map<String, List<UiAutomationElement>>> indexes =
+            new EnumMap<>(Attribute.class);
+    private volatile boolean isInvalidated = false;
+    // Speculative snapshots are taken in background by SnapshotPrefetcher
+    private boolean isSpeculative = false;
+    private final AtomicBoolean isUsed = new AtomicBoolean(false);
+    // The count of accessibility requests sent to build the snapshot or -1 if unknown
+    private long ipcCalls = -1;
+    // Lazily built representations used by the page source and XPath lookups.
+    // Only the first built value is stored if several requests build them at the same time
+    private String xmlSource = null;
+    private Document xpathDocument = null;
+    private SparseArray<UiElement<?, ?>> xpathElementsMapping = null;
+
+    private UiSnapshot(AccessibilityNodeInfo[] windowRoots, List<CharSequence> toastMessages,
+                       long generation) {
+        this.root = UiAutomationElement.rebuildForNewRoots(windowRoots, toastMessages);
+        this.generation = generation;
+        // Toast messages are appended to the root after all the windows
+        this.windows = Collections.unmodifiableList(new ArrayList<>(
+                root.getChildren().subList(0, Math.min(windowRoots.length, root.getChildren().size()))));
+        for (Attribute attribute : INDEXED_ATTRIBUTES) {
+            indexes.put(attribute, new HashMap<String, List<UiAutomationElement>>());
+        }
+        for (UiAutomationElement window : windows) {
+            parents.put(window, root);
+            addSearchableElement(window);
+            collectSearchableElements(window);
+        }
+        mapElementsByNode(root);
+    }
+
+    private void mapElementsByNode(UiAutomationElement element) {
+        final AccessibilityNodeInfo node = element.getNode();
+        if (node != null && !elementsByNode.containsKey(node)) {
+            elementsByNode.put(node, element);
+        }
+        for (UiAutomationElement child : element.getChildren()) {
+            mapElementsByNode(child);
+        }
+    }
+
+    /**
+     * @return The current snapshot. A new one is taken if the previous snapshot is not valid anymore.
+     */
+    public static UiSnapshot get() {
+        final UiSnapshot snapshot = peek();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (UiSnapshot.class) {
+            // Another request might have already taken a new snapshot
+            if (current != null && current.isValid()) {
+                current.markUsed();
+                return current;
+            }
+            discardCurrent();
+            final UiSnapshot result = take();
+            current = result;
+            return result;
+        }
+    }
+
+    /**
+     * @return The current snapshot if it is still valid or null otherwise.
+     * Unlike {@link #get()} this call never takes a new snapshot.
+     */
+    @Nullable
+    public static UiSnapshot peek() {
+        // The UI changes tracker is fed asynchronously, so it must see all the events
+        // received so far before the snapshot validity could be checked
+        AccessibilityEventBus.getInstance().dispatchPending();
+        final UiSnapshot snapshot = current;
+        if (snapshot != null && snapshot.isValid()) {
+            snapshot.markUsed();
+            return snapshot;
+        }
+        return null;
+    }
+
+    /**
+     * Takes a new snapshot in advance, so the next command could use it without waiting.
+     * Nothing is done if the current snapshot is still valid or if the UI has been
+     * invalidated since the given moment.
+     *
+     * @param invalidationsCount the value of {@link #getInvalidationsCount()} at the moment
+     *                           the capture has been requested
+     * @return true if a new snapshot has been taken
+     */
+    static boolean precapture(long invalidationsCount) {
+        synchronized (UiSnapshot.class) {
+            if (!canPublishSpeculative(invalidationsCount)
+                    || !NotificationListener.getInstance().isListening()) {
+                return false;
+            }
+        }
+        // The class lock must not be held while the snapshot is being built,
+        // otherwise invalidate() calls after UI-mutating commands would wait for it
+        final UiSnapshot result = take();
+        result.isSpeculative = true;
+        LookupMetrics.onSpeculativeSnapshotTaken();
+        synchronized (UiSnapshot.class) {
+            // The UI might have been invalidated or another snapshot taken in the meantime
+            if (!canPublishSpeculative(invalidationsCount)) {
+                LookupMetrics.onSpeculativeSnapshotWasted();
+                return false;
+            }
+            discardCurrent();
+            current = result;
+        }
+        return true;
+    }
+
+    // Must only be called while holding the class lock
+    private static boolean canPublishSpeculative(long invalidationsCount) {
+        return UiSnapshot.invalidationsCount == invalidationsCount
+                && (current == null || !current.isValid());
+    }
+
+    /**
+     * @return The count of {@link #invalidate()} calls since the server has been started
+     */
+    public static synchronized long getInvalidationsCount() {
+        return invalidationsCount;
+    }
+
+    private static UiSnapshot take() {
+        final long startTime = SystemClock.uptimeMillis();
+        refreshAccessibilityCache();
+        AccessibilityEventBus.getInstance().dispatchPending();
+        // The generation must be retrieved before the hierarchy,
+        // so changes happening while the snapshot is being built make it invalid
+        final long generation = UiChangesTracker.getInstance().getGeneration();
+        final long ipcCallsBefore = AccessibilityIpcCounter.getCount();
+        final UiSnapshot result = new UiSnapshot(getCachedWindowRoots(),
+                NotificationListener.getInstance().getToastMessage(), generation);
+        result.ipcCalls = ipcCallsBefore < 0 ? -1 : AccessibilityIpcCounter.getCount() - ipcCallsBefore;
+        final long duration = SystemClock.uptimeMillis() - startTime;
+        Logger.debug(String.format("The UI snapshot with %s searchable elements has been taken in %sms " +
+                        "with %s accessibility requests", result.searchableElements.size(), duration,
+                result.ipcCalls < 0 ? "unknown" : result.ipcCalls));
+        LookupMetrics.onSnapshotTaken(result.searchableElements.size(), result.ipcCalls, duration);
+        return result;
+    }
+
+    // Must only be called while holding the class lock
+    private static void discardCurrent() {
+        if (current != null && current.isUsed.compareAndSet(false, true) && current.isSpeculative) {
+            LookupMetrics.onSpeculativeSnapshotWasted();
+        }
+        current = null;
+    }
+
+    private void markUsed() {
+        if (isUsed.compareAndSet(false, true) && isSpeculative) {
+            LookupMetrics.onSpeculativeSnapshotHit();
+        }
+    }
+
+    /**
+     * Marks the current snapshot as outdated. This must be called after each
+     * command, which might change the UI.
+     */
+    public static void invalidate() {
+        final UiSnapshot snapshot;
+        synchronized (UiSnapshot.class) {
+            snapshot = current;
+            discardCurrent();
+            ++invalidationsCount;
+        }
+        if (snapshot != null) {
+            snapshot.isInvalidated = true;
+        }
+    }
+
+    public boolean isValid() {
+        return !isInvalidated
+                && NotificationListener.getInstance().isListening()
+                && UiChangesTracker.getInstance().getGeneration() == generation;
+    }
+
+    private void collectSearchableElements(UiAutomationElement parent) {
+        for (UiAutomationElement child : parent.getChildren()) {
+            parents.put(child, parent);
+            // Invisible subtrees are skipped by UiAutomator lookups
+            if (!Boolean.TRUE.equals(child.get(Attribute.DISPLAYED))) {
+                continue;
+            }
+            addSearchableElement(child);
+            collectSearchableElements(child);
+        }
+    }
+
+    private void addSearchableElement(UiAutomationElement element) {
+        searchableElements.add(element);
+        if (element.getNode() == null) {
+            return;
+        }
+        for (Map.Entry<Attribute, Map<String, List<UiAutomationElement>>> index : indexes.entrySet()) {
+            final Object value = element.get(index.getKey());
+            if (value == null) {
+                continue;
+            }
+            final String key = String.valueOf(value);
+            List<UiAutomationElement> elements = index.getValue().get(key);
+            if (elements == null) {
+                elements = new ArrayList<>(1);
+                index.getValue().put(key, elements);
+            }
+            elements.add(element);
+        }
+    }
+
+    /**
+     * @return The count of accessibility requests sent to build the snapshot or -1 if
+     * requests cannot be counted on this device
+     */
+    public long getIpcCalls() {
+        return ipcCalls;
+    }
+
+    /**
+     * @return The hierarchy root element, which contains all window roots and toast messages
+     */
+    public UiAutomationElement getRoot() {
+        return root;
+    }
+
+    /**
+     * @return Window root elements
+     */
+    public List<UiAutomationElement> getWindows() {
+        return windows;
+    }
+
+    /**
+     * @return Window roots and their descendants, which are visible to the user,
+     * in the document order
+     */
+    public List<UiAutomationElement> getSearchableElements() {
+        return Collections.unmodifiableList(searchableElements);
+    }
+
+    @Nullable
+    public UiAutomationElement getParent(UiAutomationElement element) {
+        return parents.get(element);
+    }
+
+    /**
+     * @param node the node to look for
+     * @return The element wrapping the given node or null if the node is not a part of the snapshot
+     */
+    @Nullable
+    public UiAutomationElement getElement(AccessibilityNodeInfo node) {
+        return elementsByNode.get(node);
+    }
+
+    public NodeInfoList findByResourceId(String resourceId, boolean multiple) {
+        return findByAttribute(Attribute.RESOURCE_ID, resourceId, multiple);
+    }
+
+    public NodeInfoList findByContentDescription(String contentDescription, boolean multiple) {
+        return findByAttribute(Attribute.CONTENT_DESC, contentDescription, multiple);
+    }
+
+    public NodeInfoList findByClassName(String className, boolean multiple) {
+        return findByAttribute(Attribute.CLASS, toFullClassName(className), multiple);
+    }
+
+    static String toFullClassName(String className) {
+        // The same shortcut is supported by UiAutomator's By.clazz
+        return className.startsWith(".")
+                ? "android.widget" + className
+                : className;
+    }
+
+    public NodeInfoList findByText(String text, boolean multiple) {
+        return findByAttribute(Attribute.TEXT, text, multiple);
+    }
+
+    /**
+     * @param attribute one of {@link #INDEXED_ATTRIBUTES}
+     * @return Searchable elements having the given attribute value
+     */
+    public List<UiAutomationElement> getIndexedElements(Attribute attribute, String value) {
+        final Map<String, List<UiAutomationElement>> index = indexes.get(attribute);
+        if (index == null) {
+            throw new IllegalArgumentException(String.format("The '%s' attribute is not indexed",
+                    attribute.getName()));
+        }
+        final List<UiAutomationElement> result = index.get(value);
+        return result == null
+                ? Collections.<UiAutomationElement>emptyList()
+                : Collections.unmodifiableList(result);
+    }
+
+    private NodeInfoList findByAttribute(Attribute attribute, String value, boolean multiple) {
+        final NodeInfoList result = new NodeInfoList();
+        for (UiAutomationElement element : getIndexedElements(attribute, value)) {
+            result.add(element.getNode());
+            if (!multiple) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    @Nullable
+    synchronized String getXmlSource() {
+        return xmlSource;
+    }
+
+    synchronized void setXmlSource(String xmlSource) {
+        if (this.xmlSource == null) {
+            this.xmlSource = xmlSource;
+        }
+    }
+
+    @Nullable
+    synchronized Document getXPathDocument() {
+        return xpathDocument;
+    }
+
+    @Nullable
+    synchronized SparseArray<UiElement<?, ?>> getXPathElementsMapping() {
+        return xpathElementsMapping;
+    }
+
+    synchronized void setXPathDocument(Document document, SparseArray<UiElement<?, ?>> elementsMapping) {
+        if (this.xpathDocument == null) {
+            this.xpathDocument = document;
+            this.xpathElementsMapping = elementsMapping;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import androidx.annotation.Nullable;
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.utils.Attribute;
+import io.appium.uiautomator2.utils.NodeInfoList;
+
+import static io.appium.uiautomator2.utils.StringHelpers.charSequenceToNullableString;
+import static io.appium.uiautomator2.utils.XMLHelpers.toSafeString;
+
+/**
+ * Execution plan for the most common XPath locator shapes:
+ * <ul>
+ * <li>//tag</li>
+ * <li>//tag[@attribute='value']</li>
+ * <li>//tag[contains(@attribute, 'value')]</li>
+ * <li>//tag[starts-with(@attribute, 'value')]</li>
+ * </ul>
+ * where tag is either a node name or an asterisk. Such queries are evaluated as a direct
+ * predicate scan over the UI elements tree, which avoids the XML serialization and parsing
+ * required by the generic XPath engine. All other expressions are not recognized and must be
+ * evaluated by the generic engine.
+ */
+class XPathQueryPlan {
+    private static final String ANY_TAG = "*";
+    private static final String STRING_LITERAL = "(?:'([^']*)'|\"([^\"]*)\")";
+    private static final Pattern QUERY_PATTERN = Pattern.compile(
+            "^\\s*//\\s*(\\*|[A-Za-z_][\\w.\\-]*)\\s*(?:\\[\\s*(?:" +
+                    "@([\\w\\-]+)\\s*=\\s*" + STRING_LITERAL +
+                    "|(contains|starts-with)\\s*\\(\\s*@([\\w\\-]+)\\s*,\\s*" + STRING_LITERAL + "\\s*\\)" +
+                    ")\\s*\\])?\\s*$");
+    private static final String NON_XML_CHAR_REPLACEMENT = "?";
+    // Attributes, which are cheap to read from raw nodes
+    private static final Set<Attribute> NODE_ATTRIBUTES = EnumSet.of(Attribute.INDEX,
+            Attribute.PACKAGE, Attribute.CLASS, Attribute.TEXT, Attribute.CONTENT_DESC,
+            Attribute.RESOURCE_ID);
+
+    enum Operator {EQUALS, CONTAINS, STARTS_WITH}
+
+    private final String tagName;
+    @Nullable
+    private final Attribute attribute;
+    @Nullable
+    private final Operator operator;
+    @Nullable
+    private final String value;
+
+    private XPathQueryPlan(String tagName, @Nullable Attribute attribute,
+                           @Nullable Operator operator, @Nullable String value) {
+        this.tagName = tagName;
+        this.attribute = attribute;
+        this.operator = operator;
+        this.value = value;
+    }
+
+    /**
+     * @param xpathSelector XPath expression
+     * @return The plan instance or null if the expression cannot be evaluated
+     * without the generic XPath engine
+     */
+    @Nullable
+    static XPathQueryPlan compile(String xpathSelector) {
+        final Matcher matcher = QUERY_PATTERN.matcher(xpathSelector);
+        if (!matcher.matches()) {
+            return null;
+        }
+        final String tagName = matcher.group(1);
+        if (matcher.group(2) != null) {
+            final Attribute attribute = toXmlAttribute(matcher.group(2));
+            return attribute == null
+                    ? null
+                    : new XPathQueryPlan(tagName, attribute, Operator.EQUALS,
+                    matcher.group(3) == null ? matcher.group(4) : matcher.group(3));
+        }
+        if (matcher.group(5) != null) {
+            final Attribute attribute = toXmlAttribute(matcher.group(6));
+            return attribute == null
+                    ? null
+                    : new XPathQueryPlan(tagName, attribute,
+                    "contains".equals(matcher.group(5)) ? Operator.CONTAINS : Operator.STARTS_WITH,
+                    matcher.group(7) == null ? matcher.group(8) : matcher.group(7));
+        }
+        return new XPathQueryPlan(tagName, null, null, null);
+    }
+
+    @Nullable
+    private static Attribute toXmlAttribute(String name) {
+        for (Attribute attribute : Attribute.values()) {
+            if (attribute.isExposableToXml() && attribute.getName().equals(name)) {
+                return attribute;
+            }
+        }
+        // Other attributes, like display info, are only present in the generated XML
+        return null;
+    }
+
+    String getTagName() {
+        return tagName;
+    }
+
+    @Nullable
+    Attribute getAttribute() {
+        return attribute;
+    }
+
+    @Nullable
+    Operator getOperator() {
+        return operator;
+    }
+
+    @Nullable
+    String getValue() {
+        return value;
+    }
+
+    /**
+     * Scans the tree in the document order, which is the same order the generic
+     * XPath engine returns its matches in.
+     *
+     * @param xpathRoot the root of the tree the XML document would be built from
+     * @param maxDepth  the maximum depth of the serialized tree
+     * @param multiple  whether to collect all matches or to stop at the first one
+     * @return The list of matched nodes
+     */
+    NodeInfoList execute(UiElement<?, ?> xpathRoot, int maxDepth, boolean multiple) {
+        final NodeInfoList result = new NodeInfoList();
+        final Deque<UiElement<?, ?>> elements = new ArrayDeque<>();
+        final Deque<Integer> depths = new ArrayDeque<>();
+        elements.push(xpathRoot);
+        depths.push(0);
+        while (!elements.isEmpty()) {
+            final UiElement<?, ?> element = elements.pop();
+            final int depth = depths.pop();
+            if (matches(element)) {
+                final AccessibilityNodeInfo node = element.getNode();
+                if (node != null) {
+                    result.add(node);
+                    if (!multiple) {
+                        break;
+                    }
+                }
+            }
+            if (depth >= maxDepth) {
+                continue;
+            }
+            final List<? extends UiElement<?, ?>> children = element.getChildren();
+            for (int i = children.size() - 1; i >= 0; --i) {
+                elements.push(children.get(i));
+                depths.push(depth + 1);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the plan could be matched against raw accessibility nodes
+     * with {@link #matches(AccessibilityNodeInfo, int)}
+     */
+    boolean canMatchNodes() {
+        return attribute == null || NODE_ATTRIBUTES.contains(attribute);
+    }
+
+    /**
+     * Matches the plan against a raw node without creating a UI element for it.
+     *
+     * @param node  the node to match
+     * @param index the index of the node in its parent
+     * @return true if the UI element built for this node would be matched
+     */
+    boolean matches(AccessibilityNodeInfo node, int index) {
+        if (attribute != null && !matchesValue(toNodeAttributeValue(node, attribute, index))) {
+            return false;
+        }
+        return matchesTag(charSequenceToNullableString(node.getClassName()));
+    }
+
+    @Nullable
+    private static Object toNodeAttributeValue(AccessibilityNodeInfo node, Attribute attribute, int index) {
+        // Values must be the same as the ones UiAutomationElement stores
+        switch (attribute) {
+            case INDEX:
+                return index;
+            case PACKAGE:
+                return charSequenceToNullableString(node.getPackageName());
+            case CLASS:
+                return charSequenceToNullableString(node.getClassName());
+            case TEXT:
+                return AccessibilityNodeInfoHelpers.getText(node, true);
+            case CONTENT_DESC:
+                return charSequenceToNullableString(node.getContentDescription());
+            case RESOURCE_ID:
+                return node.getViewIdResourceName();
+            default:
+                throw new IllegalArgumentException(String.format(
+                        "The '%s' attribute cannot be matched against raw nodes", attribute.getName()));
+        }
+    }
+
+    private boolean matches(UiElement<?, ?> element) {
+        return (attribute == null || matchesValue(element.get(attribute)))
+                && matchesTag(element.getClassName());
+    }
+
+    private boolean matchesValue(@Nullable Object attributeValue) {
+        if (attributeValue == null) {
+            // Missing attributes are not put to the XML document. XPath string functions
+            // convert such attributes to empty strings, while comparisons are always false
+            return operator != Operator.EQUALS && value.isEmpty();
+        }
+        final String actualValue = toSafeString(String.valueOf(attributeValue), NON_XML_CHAR_REPLACEMENT);
+        switch (operator) {
+            case EQUALS:
+                return actualValue.equals(value);
+            case CONTAINS:
+                return actualValue.contains(value);
+            case STARTS_WITH:
+                return actualValue.startsWith(value);
+            default:
+                return false;
+        }
+    }
+
+    private boolean matchesTag(@Nullable String className) {
+        return ANY_TAG.equals(tagName)
+                || tagName.equals(AccessibilityNodeInfoDumper.toXmlNodeName(className));
+    }
+}
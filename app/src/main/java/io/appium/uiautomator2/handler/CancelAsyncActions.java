@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.handler;
+
+import org.json.JSONException;
+
+import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.http.AppiumResponse;
+import io.appium.uiautomator2.http.IHttpRequest;
+import io.appium.uiautomator2.utils.Logger;
+import io.appium.uiautomator2.utils.w3c.AsyncActionsHandle;
+
+import static io.appium.uiautomator2.handler.PerformActionsAsync.getHandleOrThrow;
+
+public class CancelAsyncActions extends SafeRequestHandler {
+
+    public CancelAsyncActions(String mappedUri) {
+        super(mappedUri);
+    }
+
+    @Override
+    protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException {
+        final AsyncActionsHandle handle = getHandleOrThrow(getNameAttribute(request));
+        Logger.info(String.format("Cancel asynchronous actions chain '%s' command", handle.getId()));
+        handle.cancel();
+        return new AppiumResponse(getSessionId(request), handle.toJSON());
+    }
+}
@@ -22,6 +22,7 @@ import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.NotificationListener;
 import io.appium.uiautomator2.server.ServerInstrumentation;
 import io.appium.uiautomator2.utils.Logger;
+import io.appium.uiautomator2.utils.w3c.AsyncActionsRunner;
 
 public class DeleteSession extends SafeRequestHandler {
 
@@ -33,6 +34,7 @@ public class DeleteSession extends SafeRequestHandler {
     protected AppiumResponse safeHandle(IHttpRequest request) {
         Logger.info("Delete session command");
         String sessionId = getSessionId(request);
+        AsyncActionsRunner.getInstance().cancelAll();
         NotificationListener.getInstance().stop();
         ServerInstrumentation.getInstance().stopServer();
         return new AppiumResponse(sessionId);
@@ -16,6 +16,8 @@
 
 package io.appium.uiautomator2.handler;
 
+import android.view.accessibility.AccessibilityNodeInfo;
+
 import org.apache.commons.lang.StringUtils;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -28,6 +30,9 @@ import androidx.test.uiautomator.UiSelector;
 import io.appium.uiautomator2.common.exceptions.ElementNotFoundException;
 import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
 import io.appium.uiautomator2.common.exceptions.UiSelectorSyntaxException;
+import io.appium.uiautomator2.core.FirstMatchSearch;
+import io.appium.uiautomator2.core.LookupMetrics;
+import io.appium.uiautomator2.core.UiSnapshot;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
@@ -39,12 +44,15 @@ import io.appium.uiautomator2.model.By.ById;
 import io.appium.uiautomator2.model.Session;
 import io.appium.uiautomator2.model.internal.CustomUiDevice;
 import io.appium.uiautomator2.model.internal.NativeAndroidBySelector;
+import io.appium.uiautomator2.model.internal.UiSelectorMatcher;
 import io.appium.uiautomator2.utils.ElementHelpers;
+import io.appium.uiautomator2.utils.ElementWaitHelpers;
 import io.appium.uiautomator2.utils.Logger;
 import io.appium.uiautomator2.utils.NodeInfoList;
 
-import static io.appium.uiautomator2.utils.AXWindowHelpers.refreshAccessibilityCache;
+import static io.appium.uiautomator2.utils.AXWindowHelpers.getActiveWindowRoot;
 import static io.appium.uiautomator2.utils.Device.getAndroidElement;
+import static io.appium.uiautomator2.utils.Device.getUiDevice;
 import static io.appium.uiautomator2.utils.ElementLocationHelpers.getXPathNodeMatch;
 import static io.appium.uiautomator2.utils.ElementLocationHelpers.rewriteIdLocator;
 import static io.appium.uiautomator2.utils.ElementLocationHelpers.toSelector;
@@ -55,6 +63,11 @@ public class FindElement extends SafeRequestHandler {
         super(mappedUri);
     }
 
+    @Override
+    public boolean mutatesUi() {
+        return false;
+    }
+
     @Override
     protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException, UiObjectNotFoundException {
         final JSONObject payload = toJSON(request);
@@ -68,9 +81,7 @@ public class FindElement extends SafeRequestHandler {
 
         final Object element;
         try {
-            element = StringUtils.isBlank(contextId)
-                    ? this.findElement(by)
-                    : this.findElement(by, contextId);
+            element = locateElement(by, contextId);
         } catch (ClassNotFoundException e) {
             throw new UiAutomator2Exception(e);
         }
@@ -86,16 +97,52 @@ public class FindElement extends SafeRequestHandler {
         return new AppiumResponse(getSessionId(request), result);
     }
 
+    /**
+     * Finds the first element matching the given locator. The lookup is retried
+     * while the element wait timeout setting allows it.
+     *
+     * @param by        the locator to search for
+     * @param contextId the id of the cached parent element or null/empty to search the whole tree
+     * @return The found UiObject/UiObject2 instance or null if nothing has been found
+     */
     @Nullable
-    private Object findElement(By by) throws UiAutomator2Exception, UiObjectNotFoundException {
-        refreshAccessibilityCache();
+    public static Object locateElement(final By by, @Nullable final String contextId)
+            throws ClassNotFoundException, UiObjectNotFoundException {
+        LookupMetrics.beginLookup();
+        try {
+            return ElementWaitHelpers.waitFor(new ElementWaitHelpers.Lookup<Object>() {
+                @Override
+                public Object find() throws ClassNotFoundException, UiObjectNotFoundException {
+                    return StringUtils.isBlank(contextId)
+                            ? findElement(by)
+                            : findElement(by, contextId);
+                }
+            });
+        } finally {
+            final long nodesVisited = LookupMetrics.endLookup(by.getElementStrategy(), by.getElementLocator());
+            Logger.debug(String.format("%s accessibility nodes have been visited to find the element",
+                    nodesVisited));
+        }
+    }
+
+    @Nullable
+    private static Object findElement(By by) throws UiAutomator2Exception, UiObjectNotFoundException {
+        // Without a valid snapshot it is cheaper to stop the tree traversal at the first match
+        // than to take a new snapshot of the whole tree
+        final UiSnapshot snapshot = UiSnapshot.peek();
         if (by instanceof ById) {
             String locator = rewriteIdLocator((ById) by);
-            return CustomUiDevice.getInstance().findObject(androidx.test.uiautomator.By.res(locator));
+            return toUiObject(snapshot == null
+                    ? FirstMatchSearch.findByResourceId(locator)
+                    : snapshot.findByResourceId(locator, false));
         } else if (by instanceof By.ByAccessibilityId) {
-            return CustomUiDevice.getInstance().findObject(androidx.test.uiautomator.By.desc(by.getElementLocator()));
+            return toUiObject(snapshot == null
+                    ? FirstMatchSearch.findByContentDescription(by.getElementLocator())
+                    : snapshot.findByContentDescription(by.getElementLocator(), false));
         } else if (by instanceof ByClass) {
-            return CustomUiDevice.getInstance().findObject(androidx.test.uiautomator.By.clazz(by.getElementLocator()));
+            return toUiObject(snapshot == null
+                    ? FirstMatchSearch.findByClassName(by.getElementLocator())
+                    : snapshot.findByClassName(by.getElementLocator(), false));
         } else if (by instanceof By.ByXPath) {
             final NodeInfoList matchedNodes = getXPathNodeMatch(by.getElementLocator(), null, false);
             if (matchedNodes.isEmpty()) {
@@ -107,6 +154,20 @@ public class FindElement extends SafeRequestHandler {
             if (selector == null) {
                 throw new UiSelectorSyntaxException(by.getElementLocator(), "");
             }
+            if (UiSelectorMatcher.isSupported(selector)) {
+                // The matcher only replaces the existence check. The result is still a UiObject,
+                // since some commands (like scrolling to an element) only accept these.
+                // UiObjects are only resolved in the active window, so other windows are skipped
+                final AccessibilityNodeInfo activeWindowRoot = getActiveWindowRoot();
+                final NodeInfoList matchedNodes = snapshot == null
+                        ? UiSelectorMatcher.findFirstMatch(selector, new AccessibilityNodeInfo[]{activeWindowRoot})
+                        : UiSelectorMatcher.findMatch(selector, snapshot, activeWindowRoot);
+                if (matchedNodes.isEmpty()) {
+                    return null;
+                }
+                LookupMetrics.onUiObjectResolution();
+                return getUiDevice().findObject(selector);
+            }
             return CustomUiDevice.getInstance().findObject(selector);
         }
         String msg = String.format("By locator %s is currently not supported!", by.getClass().getSimpleName());
@@ -114,7 +175,12 @@ public class FindElement extends SafeRequestHandler {
     }
 
     @Nullable
-    private Object findElement(By by, String contextId) throws ClassNotFoundException,
+    private static Object toUiObject(NodeInfoList matchedNodes) {
+        return matchedNodes.isEmpty() ? null : CustomUiDevice.getInstance().findObject(matchedNodes);
+    }
+
+    @Nullable
+    private static Object findElement(By by, String contextId) throws ClassNotFoundException,
             UiAutomator2Exception, UiObjectNotFoundException {
         Session session = AppiumUIA2Driver.getInstance().getSessionOrThrow();
         AndroidElement element = session.getKnownElements().getElementFromCache(contextId);
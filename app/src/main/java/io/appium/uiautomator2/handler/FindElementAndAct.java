@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.handler;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.UUID;
+
+import androidx.test.uiautomator.UiObjectNotFoundException;
+import io.appium.uiautomator2.common.exceptions.ElementNotFoundException;
+import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
+import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
+import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.http.AppiumResponse;
+import io.appium.uiautomator2.http.IHttpRequest;
+import io.appium.uiautomator2.model.AndroidElement;
+import io.appium.uiautomator2.model.AppiumUIA2Driver;
+import io.appium.uiautomator2.model.By;
+import io.appium.uiautomator2.model.internal.NativeAndroidBySelector;
+import io.appium.uiautomator2.utils.Device;
+import io.appium.uiautomator2.utils.ElementHelpers;
+import io.appium.uiautomator2.utils.Logger;
+
+import static io.appium.uiautomator2.handler.FindElement.locateElement;
+import static io.appium.uiautomator2.handler.SendKeysToElement.sendKeys;
+import static io.appium.uiautomator2.utils.Device.getAndroidElement;
+
+/**
+ * Finds an element and performs an action on it in a single round trip.
+ * <p>
+ * The payload contains the usual <em>strategy</em>, <em>selector</em> and optional
+ * <em>context</em> locator values and the <em>action</em> to perform: <em>click</em>,
+ * <em>sendKeys</em> (with <em>text</em> and optional <em>replace</em>) or <em>getText</em>.
+ * The found element is only added to the known elements cache if <em>register</em> is true
+ * (the default value), in which case its reference is returned in the <em>element</em>
+ * response value. The <em>value</em> response item contains the result of getText action.
+ */
+public class FindElementAndAct extends SafeRequestHandler {
+    private static final String ACTION_CLICK = "click";
+    private static final String ACTION_SEND_KEYS = "sendKeys";
+    private static final String ACTION_GET_TEXT = "getText";
+
+    public FindElementAndAct(String mappedUri) {
+        super(mappedUri);
+    }
+
+    @Override
+    public boolean mutatesUi(IHttpRequest request) {
+        try {
+            return !ACTION_GET_TEXT.equals(toJSON(request).optString("action"));
+        } catch (JSONException e) {
+            return true;
+        }
+    }
+
+    @Override
+    protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException, UiObjectNotFoundException {
+        final JSONObject payload = toJSON(request);
+        final String method = payload.getString("strategy");
+        final String selector = payload.getString("selector");
+        final String contextId = payload.optString("context", null);
+        final String action = payload.getString("action");
+        final boolean shouldRegister = payload.optBoolean("register", true);
+        if (!ACTION_CLICK.equals(action) && !ACTION_SEND_KEYS.equals(action)
+                && !ACTION_GET_TEXT.equals(action)) {
+            throw new InvalidArgumentException(String.format(
+                    "The action '%s' is not supported. Only '%s', '%s' and '%s' actions are allowed",
+                    action, ACTION_CLICK, ACTION_SEND_KEYS, ACTION_GET_TEXT));
+        }
+
+        Logger.info(String.format("Find element and %s command using '%s' with selector '%s'.",
+                action, method, selector));
+        final By by = new NativeAndroidBySelector().pickFrom(method, selector);
+        final Object element;
+        try {
+            element = locateElement(by, contextId);
+        } catch (ClassNotFoundException e) {
+            throw new UiAutomator2Exception(e);
+        }
+        if (element == null) {
+            throw new ElementNotFoundException();
+        }
+        final AndroidElement androidElement = getAndroidElement(UUID.randomUUID().toString(),
+                element, true, by, contextId);
+
+        final JSONObject result = new JSONObject();
+        if (shouldRegister) {
+            AppiumUIA2Driver.getInstance().getSessionOrThrow().getKnownElements().add(androidElement);
+            // The element might disappear after the action, so build its reference beforehand
+            result.put("element", ElementHelpers.toJSON(androidElement));
+        }
+        switch (action) {
+            case ACTION_CLICK:
+                androidElement.click();
+                Device.waitForIdle();
+                break;
+            case ACTION_SEND_KEYS:
+                sendKeys(androidElement, payload.getString("text"),
+                        payload.optBoolean("replace", false));
+                break;
+            case ACTION_GET_TEXT:
+                result.put("value", androidElement.getText());
+                break;
+            default:
+                break;
+        }
+        return new AppiumResponse(getSessionId(request), result);
+    }
+}
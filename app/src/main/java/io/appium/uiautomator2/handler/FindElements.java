@@ -16,6 +16,8 @@
 
 package io.appium.uiautomator2.handler;
 
+import android.view.accessibility.AccessibilityNodeInfo;
+
 import androidx.test.uiautomator.UiObject;
 import androidx.test.uiautomator.UiObjectNotFoundException;
 import androidx.test.uiautomator.UiSelector;
@@ -35,6 +37,8 @@ import java.util.regex.Pattern;
 import io.appium.uiautomator2.common.exceptions.ElementNotFoundException;
 import io.appium.uiautomator2.common.exceptions.InvalidSelectorException;
 import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
+import io.appium.uiautomator2.core.LookupMetrics;
+import io.appium.uiautomator2.core.UiSnapshot;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
@@ -45,11 +49,14 @@ import io.appium.uiautomator2.model.By.ById;
 import io.appium.uiautomator2.model.Session;
 import io.appium.uiautomator2.model.internal.CustomUiDevice;
 import io.appium.uiautomator2.model.internal.NativeAndroidBySelector;
+import io.appium.uiautomator2.model.internal.UiSelectorMatcher;
 import io.appium.uiautomator2.utils.ElementHelpers;
+import io.appium.uiautomator2.utils.ElementWaitHelpers;
 import io.appium.uiautomator2.utils.Logger;
 import io.appium.uiautomator2.utils.NodeInfoList;
 
-import static io.appium.uiautomator2.utils.AXWindowHelpers.refreshAccessibilityCache;
+import static io.appium.uiautomator2.core.AccessibilityNodeInfoGetter.fromUiObject;
+import static io.appium.uiautomator2.utils.AXWindowHelpers.getActiveWindowRoot;
 import static io.appium.uiautomator2.utils.Device.getAndroidElement;
 import static io.appium.uiautomator2.utils.Device.getUiDevice;
 import static io.appium.uiautomator2.utils.ElementLocationHelpers.getXPathNodeMatch;
@@ -64,6 +71,11 @@ public class FindElements extends SafeRequestHandler {
         super(mappedUri);
     }
 
+    @Override
+    public boolean mutatesUi() {
+        return false;
+    }
+
     @Override
     protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException, UiObjectNotFoundException {
         JSONArray result = new JSONArray();
@@ -74,13 +86,25 @@ public class FindElements extends SafeRequestHandler {
 
         Logger.info(String.format("Find elements command using '%s' with selector '%s'.", method, selector));
 
-        By by = new NativeAndroidBySelector().pickFrom(method, selector);
+        final By by = new NativeAndroidBySelector().pickFrom(method, selector);
 
         final List<Object> elements;
+        LookupMetrics.beginLookup();
         try {
-            elements = StringUtils.isBlank(contextId)
-                    ? this.findElements(by)
-                    : this.findElements(by, contextId);
+            final List<Object> foundElements = ElementWaitHelpers.waitFor(
+                    new ElementWaitHelpers.Lookup<List<Object>>() {
+                        @Override
+                        public List<Object> find() throws ClassNotFoundException,
+                                UiObjectNotFoundException {
+                            final List<Object> result = StringUtils.isBlank(contextId)
+                                    ? findElements(by)
+                                    : findElements(by, contextId);
+                            return result.isEmpty() ? null : result;
+                        }
+                    });
+            elements = foundElements == null
+                    ? Collections.emptyList()
+                    : foundElements;
 
             Session session = AppiumUIA2Driver.getInstance().getSessionOrThrow();
             for (Object element : elements) {
@@ -99,20 +123,23 @@ public class FindElements extends SafeRequestHandler {
             return new AppiumResponse(getSessionId(request), result);
         } catch (ClassNotFoundException e) {
             throw new UiAutomator2Exception(e);
+        } finally {
+            final long nodesVisited = LookupMetrics.endLookup(by.getElementStrategy(), by.getElementLocator());
+            Logger.debug(String.format("%s accessibility nodes have been visited to find the elements",
+                    nodesVisited));
         }
     }
 
     private List<Object> findElements(By by) throws ClassNotFoundException,
             UiAutomator2Exception, UiObjectNotFoundException {
-        refreshAccessibilityCache();
-
+        final UiSnapshot snapshot = UiSnapshot.get();
         if (by instanceof By.ById) {
             String locator = rewriteIdLocator((ById) by);
-            return CustomUiDevice.getInstance().findObjects(androidx.test.uiautomator.By.res(locator));
+            return toUiObjects(snapshot.findByResourceId(locator, true));
         } else if (by instanceof By.ByAccessibilityId) {
-            return CustomUiDevice.getInstance().findObjects(androidx.test.uiautomator.By.desc(by.getElementLocator()));
+            return toUiObjects(snapshot.findByContentDescription(by.getElementLocator(), true));
         } else if (by instanceof By.ByClass) {
-            return CustomUiDevice.getInstance().findObjects(androidx.test.uiautomator.By.clazz(by.getElementLocator()));
+            return toUiObjects(snapshot.findByClassName(by.getElementLocator(), true));
         } else if (by instanceof By.ByXPath) {
             //TODO: need to handle the context parameter in a smart way
             final NodeInfoList matchedNodes = getXPathNodeMatch(by.getElementLocator(), null, true);
@@ -128,6 +155,12 @@ public class FindElements extends SafeRequestHandler {
         throw new NotImplementedException(msg);
     }
 
+    private static List<Object> toUiObjects(NodeInfoList matchedNodes) {
+        return matchedNodes.isEmpty()
+                ? Collections.emptyList()
+                : CustomUiDevice.getInstance().findObjects(matchedNodes);
+    }
+
     private List<Object> findElements(By by, String contextId) throws ClassNotFoundException,
             UiAutomator2Exception, UiObjectNotFoundException {
         Session session = AppiumUIA2Driver.getInstance().getSessionOrThrow();
@@ -210,6 +243,34 @@ public class FindElements extends SafeRequestHandler {
         UiObject lastFoundObj;
         final AndroidElement baseEl = session.getKnownElements().getElementFromCache(key);
 
+        // Count all the matches in a single tree traversal if possible.
+        // CLASS_REGEX selectors are looked up by their index for historical reasons.
+        // Chained selectors are excluded, since their instances are counted differently
+        if (!useIndex && UiSelectorMatcher.isSupported(sel) && !UiSelectorMatcher.hasSubSelectors(sel)) {
+            final NodeInfoList matchedNodes;
+            if (baseEl == null) {
+                // UiObject instances are only resolved in the active window,
+                // so matches from other windows must not be counted
+                matchedNodes = UiSelectorMatcher.findMatches(sel, UiSnapshot.get(), getActiveWindowRoot());
+            } else {
+                final AccessibilityNodeInfo baseNode = fromUiObject(baseEl.getUiObject());
+                matchedNodes = baseNode == null
+                        ? new NodeInfoList()
+                        : UiSelectorMatcher.findChildMatches(sel, baseNode);
+            }
+            Logger.debug(String.format("Found %s matches for the selector %s in a single pass",
+                    matchedNodes.size(), selectorString));
+            // The result must consist of UiObject instances, like the ones found below,
+            // so there is no need to check the existence of each instance separately
+            for (int instance = 0; instance < matchedNodes.size(); ++instance) {
+                LookupMetrics.onUiObjectResolution();
+                elements.add(baseEl == null
+                        ? getUiDevice().findObject(sel.instance(instance))
+                        : baseEl.getChild(sel.instance(instance)));
+            }
+            return elements;
+        }
+
         UiSelector tmp;
         int counter = 0;
         while (keepSearching) {
@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.handler;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
+import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.http.AppiumResponse;
+import io.appium.uiautomator2.http.IHttpRequest;
+import io.appium.uiautomator2.model.AccessibilityEventBus;
+import io.appium.uiautomator2.model.AccessibilityEventRecord;
+
+/**
+ * Returns accessibility events received by the server.
+ * <p>
+ * The <em>since</em> query parameter is the sequence number of the first event to return.
+ * If it is omitted then only events received after the request are returned.
+ * The <em>timeout</em> query parameter (in milliseconds) makes the request wait
+ * for new events if none are available yet. The response contains the list of events,
+ * the <em>next</em> sequence number to be used in the following request and the count of
+ * events, which have been <em>dropped</em> because the client was too slow to read them.
+ */
+public class GetAccessibilityEvents extends SafeRequestHandler {
+    private static final int MAX_EVENTS_PER_RESPONSE = 256;
+    private static final long MAX_TIMEOUT_MS = 60000;
+
+    public GetAccessibilityEvents(String mappedUri) {
+        super(mappedUri);
+    }
+
+    private static long parseLong(String name, String value, long defaultValue) {
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidArgumentException(String.format(
+                    "'%s' query parameter must be a valid integer. '%s' is given instead", name, value));
+        }
+    }
+
+    @Override
+    protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException {
+        final AccessibilityEventBus eventBus = AccessibilityEventBus.getInstance();
+        final long since = parseLong("since", getQueryParameter(request, "since"),
+                eventBus.getCursor() + 1);
+        final long timeoutMs = Math.min(MAX_TIMEOUT_MS,
+                Math.max(0, parseLong("timeout", getQueryParameter(request, "timeout"), 0)));
+
+        final AccessibilityEventBus.Consumer consumer = eventBus.newConsumer(since);
+        if (timeoutMs > 0) {
+            consumer.await(timeoutMs);
+        }
+        final JSONArray events = new JSONArray();
+        AccessibilityEventRecord record;
+        while (events.length() < MAX_EVENTS_PER_RESPONSE && (record = consumer.poll()) != null) {
+            events.put(record.toJSON());
+        }
+        final JSONObject result = new JSONObject();
+        result.put("events", events);
+        result.put("next", consumer.getNextSequence());
+        result.put("dropped", consumer.getDroppedCount());
+        return new AppiumResponse(getSessionId(request), result);
+    }
+}
@@ -41,6 +41,11 @@ public class GetClipboard extends SafeRequestHandler {
         super(mappedUri);
     }
 
+    @Override
+    public boolean mutatesUi() {
+        return false;
+    }
+
     private static String toBase64String(String s) {
         return Base64.encodeToString(s.getBytes(StandardCharsets.UTF_8), Base64.DEFAULT);
     }
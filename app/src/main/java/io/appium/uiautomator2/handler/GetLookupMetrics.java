@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.handler;
+
+import org.json.JSONException;
+
+import io.appium.uiautomator2.core.LookupMetrics;
+import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.http.AppiumResponse;
+import io.appium.uiautomator2.http.IHttpRequest;
+
+/**
+ * Returns the count of accessibility nodes visited by element lookups.
+ * <p>
+ * The response contains the total count of lookups and visited nodes since
+ * the server has been started and the details of the most recent lookup. The details
+ * of the most recent UI snapshot include the count of accessibility requests sent to build it.
+ * Snapshots taken speculatively in background are reported as hits if a command has used them
+ * and as wasted otherwise.
+ */
+public class GetLookupMetrics extends SafeRequestHandler {
+
+    public GetLookupMetrics(String mappedUri) {
+        super(mappedUri);
+    }
+
+    @Override
+    protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException {
+        return new AppiumResponse(getSessionId(request), LookupMetrics.toJSON());
+    }
+}
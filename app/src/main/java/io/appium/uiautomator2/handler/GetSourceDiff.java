@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.handler;
+
+import android.os.SystemClock;
+
+import org.json.JSONException;
+
+import io.appium.uiautomator2.core.SourceTree;
+import io.appium.uiautomator2.core.SourceTreeDiff;
+import io.appium.uiautomator2.core.UiSnapshot;
+import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.http.AppiumResponse;
+import io.appium.uiautomator2.http.IHttpRequest;
+import io.appium.uiautomator2.model.AppiumUIA2Driver;
+import io.appium.uiautomator2.model.Session;
+import io.appium.uiautomator2.utils.Logger;
+
+/**
+ * Get the structural difference of the page source since the previous call
+ * of this endpoint in the current session.
+ * <p>
+ * The response contains <em>inserted</em>, <em>removed</em> and <em>changed</em> nodes
+ * identified by their window id and view path (see {@link SourceTree}). Changed nodes
+ * contain previous and current values of modified attributes. The very first call returns
+ * the whole tree as a single inserted node and has the <em>baseline</em> flag set.
+ */
+public class GetSourceDiff extends SafeRequestHandler {
+
+    public GetSourceDiff(String mappedUri) {
+        super(mappedUri);
+    }
+
+    @Override
+    protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException {
+        final long startTime = SystemClock.uptimeMillis();
+        Session session = AppiumUIA2Driver.getInstance().getSessionOrThrow();
+        SourceTree current = SourceTree.capture(UiSnapshot.get().getRoot());
+        SourceTreeDiff diff = SourceTreeDiff.compute(session.replaceLastSourceTree(current), current);
+        Logger.debug(String.format("The page source diff (%s inserted, %s removed, %s changed, " +
+                        "%s skipped subtrees) has been calculated in %sms",
+                diff.getInserted().size(), diff.getRemoved().size(), diff.getChanged().size(),
+                diff.getSkippedSubtrees(), SystemClock.uptimeMillis() - startTime));
+        return new AppiumResponse(getSessionId(request), diff.toJSON());
+    }
+}
@@ -76,15 +76,18 @@ public class MultiPointerGesture extends SafeRequestHandler {
         int i = 1;
         JSONObject current = gestures.getJSONObject(0);
         double currentTime = current.getDouble("time");
+        // Steps between two gestures share the same (read-only) coordinates instance
+        PointerCoords currentCoords = createPointerCoords(current);
         double runningTime = 0.0;
         final int gesturesLength = gestures.length();
         for (int j = 0; j < steps; j++) {
             if (runningTime > currentTime && i < gesturesLength) {
                 current = gestures.getJSONObject(i++);
                 currentTime = current.getDouble("time");
+                currentCoords = createPointerCoords(current);
             }
 
-            pc[j] = createPointerCoords(current);
+            pc[j] = currentCoords;
 
             runningTime += 0.005;
         }
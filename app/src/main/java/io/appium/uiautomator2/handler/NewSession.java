@@ -22,6 +22,9 @@ import io.appium.uiautomator2.utils.w3c.W3CCapsUtils;
 import org.json.JSONException;
 
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.core.ScrollEventsTracker;
+import io.appium.uiautomator2.core.ScrollExtentsCache;
+import io.appium.uiautomator2.core.UiChangesTracker;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.AppiumUIA2Driver;
@@ -50,6 +53,10 @@ public class NewSession extends SafeRequestHandler {
             Map<String, Object> parsedCaps = W3CCapsUtils.parseCapabilities((JSONObject) capabilities);
             String sessionID = AppiumUIA2Driver.getInstance().initializeSession(parsedCaps);
             NotificationListener.getInstance().start();
+            UiChangesTracker.getInstance();
+            ScrollExtentsCache.getInstance().clear();
+            // Collect scroll extents from the very beginning, so contentSize could be read passively
+            ScrollEventsTracker.getInstance();
             Logger.info(String.format("Created the new session with SessionID: %s",  sessionID));
             JSONObject result = new JSONObject();
             result.put("sessionId", sessionID);
@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.handler;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
+import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.http.AppiumResponse;
+import io.appium.uiautomator2.http.IHttpRequest;
+import io.appium.uiautomator2.model.AppiumUIA2Driver;
+import io.appium.uiautomator2.utils.Logger;
+import io.appium.uiautomator2.utils.w3c.ActionsExecutor;
+import io.appium.uiautomator2.utils.w3c.ActionsSchedule;
+import io.appium.uiautomator2.utils.w3c.AsyncActionsHandle;
+import io.appium.uiautomator2.utils.w3c.AsyncActionsRunner;
+
+/**
+ * Starts an actions chain on the dedicated input thread and returns its handle
+ * immediately, without waiting for the chain to be injected.
+ * <p>
+ * The payload must contain either <em>actions</em> array in the same format as
+ * {@link W3CActions} endpoint accepts or the <em>name</em> of a chain previously
+ * registered by {@link RegisterActionsChain}. Optional <em>offsetX</em> and <em>offsetY</em>
+ * values shift all the pointer coordinates of the chain.
+ * <p>
+ * Use the returned handle to check the chain status, wait for it to complete or cancel it.
+ */
+public class PerformActionsAsync extends SafeRequestHandler {
+
+    public PerformActionsAsync(String mappedUri) {
+        super(mappedUri);
+    }
+
+    @Override
+    protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException {
+        Logger.info("Perform asynchronous actions command");
+        final JSONObject payload = toJSON(request);
+        final ActionsSchedule schedule;
+        if (payload.has("actions")) {
+            schedule = W3CActions.toSchedule(payload.getJSONArray("actions"));
+        } else if (payload.has("name")) {
+            final String name = payload.getString("name");
+            schedule = AppiumUIA2Driver.getInstance().getSessionOrThrow().getActionChain(name);
+            if (schedule == null) {
+                throw new InvalidArgumentException(String.format(
+                        "The actions chain named '%s' has not been registered", name));
+            }
+        } else {
+            throw new InvalidArgumentException("Either 'actions' or 'name' must be provided");
+        }
+        final float offsetX = (float) payload.optDouble("offsetX", 0);
+        final float offsetY = (float) payload.optDouble("offsetY", 0);
+        final AsyncActionsHandle handle = AsyncActionsRunner.getInstance()
+                .submit(new ActionsExecutor(schedule), offsetX, offsetY);
+        return new AppiumResponse(getSessionId(request), handle.toJSON());
+    }
+
+    static AsyncActionsHandle getHandleOrThrow(String handleId) {
+        final AsyncActionsHandle handle = AsyncActionsRunner.getInstance().getHandle(handleId);
+        if (handle == null) {
+            throw new InvalidArgumentException(String.format(
+                    "There is no asynchronous actions chain with handle '%s'", handleId));
+        }
+        return handle;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.handler;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
+import io.appium.uiautomator2.common.exceptions.InvalidElementStateException;
+import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.http.AppiumResponse;
+import io.appium.uiautomator2.http.IHttpRequest;
+import io.appium.uiautomator2.model.AppiumUIA2Driver;
+import io.appium.uiautomator2.utils.Logger;
+import io.appium.uiautomator2.utils.w3c.ActionsExecutor;
+import io.appium.uiautomator2.utils.w3c.ActionsSchedule;
+
+/**
+ * Replays the actions chain previously registered by {@link RegisterActionsChain}.
+ * <p>
+ * Optional <em>offsetX</em> and <em>offsetY</em> payload values (in pixels) shift
+ * all the pointer coordinates of the chain for this replay.
+ */
+public class PerformActionsChain extends SafeRequestHandler {
+
+    public PerformActionsChain(String mappedUri) {
+        super(mappedUri);
+    }
+
+    @Override
+    protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException {
+        final String name = getNameAttribute(request);
+        Logger.info(String.format("Perform actions chain '%s' command", name));
+        final ActionsSchedule schedule = AppiumUIA2Driver.getInstance().getSessionOrThrow()
+                .getActionChain(name);
+        if (schedule == null) {
+            throw new InvalidArgumentException(String.format(
+                    "The actions chain named '%s' has not been registered", name));
+        }
+        final JSONObject payload = toJSON(request);
+        final float offsetX = (float) payload.optDouble("offsetX", 0);
+        final float offsetY = (float) payload.optDouble("offsetY", 0);
+        if (new ActionsExecutor(schedule).execute(offsetX, offsetY)) {
+            return new AppiumResponse(getSessionId(request));
+        }
+        throw new InvalidElementStateException(String.format(
+                "Unable to perform the actions chain '%s'. Check the logcat output " +
+                        "for possible error reports", name));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.handler;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.http.AppiumResponse;
+import io.appium.uiautomator2.http.IHttpRequest;
+import io.appium.uiautomator2.model.AppiumUIA2Driver;
+import io.appium.uiautomator2.utils.Logger;
+import io.appium.uiautomator2.utils.w3c.ActionsSchedule;
+
+/**
+ * Compiles the given W3C actions chain and stores it in the current session
+ * under the name provided in the request path, so it could be replayed later
+ * without being parsed again. An existing chain with the same name gets replaced.
+ * <p>
+ * The payload has the same format as the one of {@link W3CActions} endpoint.
+ * Element origins are resolved to absolute coordinates at registration time.
+ */
+public class RegisterActionsChain extends SafeRequestHandler {
+
+    public RegisterActionsChain(String mappedUri) {
+        super(mappedUri);
+    }
+
+    @Override
+    public boolean mutatesUi() {
+        return false;
+    }
+
+    @Override
+    protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException {
+        final String name = getNameAttribute(request);
+        Logger.info(String.format("Register actions chain '%s' command", name));
+        final ActionsSchedule schedule = W3CActions.toSchedule((JSONArray) toJSON(request).get("actions"));
+        AppiumUIA2Driver.getInstance().getSessionOrThrow().putActionChain(name, schedule);
+        return new AppiumResponse(getSessionId(request));
+    }
+}
@@ -7,6 +7,7 @@ import androidx.test.uiautomator.UiSelector;
 
 import io.appium.uiautomator2.common.exceptions.ElementNotFoundException;
 import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
+import io.appium.uiautomator2.core.AccessibilityScroller;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
@@ -89,6 +90,12 @@ public class ScrollToElement extends SafeRequestHandler {
                 return false;
             }
 
+            final Boolean isFoundByActions = AccessibilityScroller.tryScrollIntoView(this,
+                    obj.getSelector(), getMaxSearchSwipes());
+            if (isFoundByActions != null) {
+                return isFoundByActions;
+            }
+
             if (obj.exists()) {
                 return true;
             }
@@ -49,25 +49,16 @@ public class SendKeysToElement extends SafeRequestHandler {
         return text != null && !text.isEmpty();
     }
 
-    @Override
-    protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException, UiObjectNotFoundException {
-        Logger.info("send keys to element command");
-        String elementId = getElementId(request);
-        AndroidElement element;
-        if (elementId != null) {
-            Session session = AppiumUIA2Driver.getInstance().getSessionOrThrow();
-            element = session.getKnownElements().getElementFromCache(elementId);
-            if (element == null) {
-                throw new ElementNotFoundException();
-            }
-        } else {
-            //perform action on focused element
-            element = findElement(focused(true));
-        }
-        JSONObject payload = toJSON(request);
-        boolean replace = Boolean.parseBoolean(payload.getString("replace"));
-        String text = payload.getString("text");
-
+    /**
+     * Sets the text of the given element. A trailing "\\n" sequence is replaced with
+     * the Enter key press.
+     *
+     * @param element the element to change
+     * @param text    the text to set
+     * @param replace whether to replace the current text or to append to it
+     */
+    public static void sendKeys(AndroidElement element, String text, boolean replace)
+            throws UiObjectNotFoundException {
         boolean pressEnter = false;
         if (text.endsWith("\\n")) {
             pressEnter = true;
@@ -77,7 +68,11 @@ public class SendKeysToElement extends SafeRequestHandler {
 
         String currText = element.getText();
         if (isTextFieldNotClear(element)) {
-            new Clear("/wd/hub/session/:sessionId/element/:id/clear").handle(request);
+            try {
+                element.clear();
+            } catch (Exception e) {
+                Logger.debug(String.format("Cannot clear the element: %s", e.getMessage()));
+            }
         }
         if (isTextFieldNotClear(element)) {
             // clear could have failed, or we could have a hint in the field
@@ -100,6 +95,27 @@ public class SendKeysToElement extends SafeRequestHandler {
                     "Unable to send keys to the device";
         }
         Logger.debug(actionMsg);
+    }
+
+    @Override
+    protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException, UiObjectNotFoundException {
+        Logger.info("send keys to element command");
+        String elementId = getElementId(request);
+        AndroidElement element;
+        if (elementId != null) {
+            Session session = AppiumUIA2Driver.getInstance().getSessionOrThrow();
+            element = session.getKnownElements().getElementFromCache(elementId);
+            if (element == null) {
+                throw new ElementNotFoundException();
+            }
+        } else {
+            //perform action on focused element
+            element = findElement(focused(true));
+        }
+        JSONObject payload = toJSON(request);
+        boolean replace = Boolean.parseBoolean(payload.getString("replace"));
+        String text = payload.getString("text");
+        sendKeys(element, text, replace);
         return new AppiumResponse(getSessionId(request));
     }
 }
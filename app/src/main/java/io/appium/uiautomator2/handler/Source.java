@@ -16,17 +16,47 @@
 
 package io.appium.uiautomator2.handler;
 
+import android.util.Base64;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumSet;
+import java.util.Set;
+
+import androidx.annotation.Nullable;
+import io.appium.uiautomator2.common.exceptions.ElementNotFoundException;
+import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
 import io.appium.uiautomator2.core.AccessibilityNodeInfoDumper;
+import io.appium.uiautomator2.core.JsonSourceWriter;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
+import io.appium.uiautomator2.http.StreamingJsonValue;
+import io.appium.uiautomator2.model.AndroidElement;
+import io.appium.uiautomator2.model.AppiumUIA2Driver;
+import io.appium.uiautomator2.utils.Attribute;
 
-import static io.appium.uiautomator2.utils.AXWindowHelpers.refreshAccessibilityCache;
+import static io.appium.uiautomator2.core.AccessibilityNodeInfoGetter.fromUiObject;
 
 /**
- * Get page source. Return as string of XML doc
+ * Get page source. Return as string of XML doc.
+ * <p>
+ * The optional <em>format</em> query parameter selects the representation:
+ * <em>xml</em> (the default), <em>binary</em> or <em>json</em>. The binary representation is
+ * the compact encoding described in {@link io.appium.uiautomator2.core.BinarySourceFormat}
+ * wrapped into a base64 string.
+ * <p>
+ * The JSON representation is a tree of objects (see {@link JsonSourceWriter}), which
+ * is written directly into the response body. It also accepts the following query parameters:
+ * <em>attributes</em> - comma-separated list of attribute names to include, for example
+ * <em>class,resource-id,bounds,text</em>;
+ * <em>maxDepth</em> - children of elements at this depth are not included;
+ * <em>element</em> - the id of an element whose subtree should be returned instead of the whole page.
  */
 public class Source extends SafeRequestHandler {
+    private static final String FORMAT_XML = "xml";
+    private static final String FORMAT_BINARY = "binary";
+    private static final String FORMAT_JSON = "json";
 
     public Source(String mappedUri) {
         super(mappedUri);
@@ -34,7 +64,72 @@ public class Source extends SafeRequestHandler {
 
     @Override
     protected AppiumResponse safeHandle(IHttpRequest request) {
-        refreshAccessibilityCache();
-        return new AppiumResponse(getSessionId(request), new AccessibilityNodeInfoDumper().dumpToXml());
+        final String format = getQueryParameter(request, "format");
+        if (format == null || format.isEmpty() || FORMAT_XML.equalsIgnoreCase(format)) {
+            return new AppiumResponse(getSessionId(request), new AccessibilityNodeInfoDumper().dumpToXml());
+        }
+        if (FORMAT_BINARY.equalsIgnoreCase(format)) {
+            final byte[] source = new AccessibilityNodeInfoDumper().dumpToBinary();
+            return new AppiumResponse(getSessionId(request), Base64.encodeToString(source, Base64.NO_WRAP));
+        }
+        if (FORMAT_JSON.equalsIgnoreCase(format)) {
+            final JsonSourceWriter source = getJsonDumper(getQueryParameter(request, "element"))
+                    .dumpToJson(parseAttributes(getQueryParameter(request, "attributes")),
+                            parseMaxDepth(getQueryParameter(request, "maxDepth")));
+            return new AppiumResponse(getSessionId(request), new StreamingJsonValue() {
+                @Override
+                public void writeTo(Writer writer) throws IOException {
+                    source.writeTo(writer);
+                }
+            });
+        }
+        throw new InvalidArgumentException(String.format(
+                "The page source format '%s' is not supported. Only '%s', '%s' and '%s' are supported",
+                format, FORMAT_XML, FORMAT_BINARY, FORMAT_JSON));
+    }
+
+    private static AccessibilityNodeInfoDumper getJsonDumper(@Nullable String elementId) {
+        if (elementId == null || elementId.isEmpty()) {
+            return new AccessibilityNodeInfoDumper();
+        }
+        AndroidElement element = AppiumUIA2Driver.getInstance().getSessionOrThrow()
+                .getKnownElements().getElementFromCache(elementId);
+        if (element == null) {
+            throw new ElementNotFoundException();
+        }
+        return new AccessibilityNodeInfoDumper(fromUiObject(element.getUiObject()));
+    }
+
+    @Nullable
+    private static Set<Attribute> parseAttributes(@Nullable String attributes) {
+        if (attributes == null || attributes.trim().isEmpty()) {
+            return null;
+        }
+        final Set<Attribute> result = EnumSet.noneOf(Attribute.class);
+        for (String name : attributes.split(",")) {
+            final Attribute attribute = Attribute.fromString(name.trim());
+            if (attribute == null || !attribute.isExposableToXml()) {
+                throw new InvalidArgumentException(String.format(
+                        "The attribute '%s' is not supported in the page source", name.trim()));
+            }
+            result.add(attribute);
+        }
+        return result;
+    }
+
+    private static int parseMaxDepth(@Nullable String maxDepth) {
+        if (maxDepth == null || maxDepth.isEmpty()) {
+            return Integer.MAX_VALUE;
+        }
+        try {
+            final int result = Integer.parseInt(maxDepth);
+            if (result >= 0) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new InvalidArgumentException(String.format(
+                "The maximum depth must be a non-negative integer. '%s' is given instead", maxDepth));
     }
 }
@@ -18,10 +18,13 @@ package io.appium.uiautomator2.handler;
 
 import org.json.JSONException;
 
+import java.util.EnumSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import io.appium.uiautomator2.common.exceptions.UnsupportedSettingException;
+import io.appium.uiautomator2.core.UiSnapshot;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
@@ -29,19 +32,31 @@ import io.appium.uiautomator2.model.AppiumUIA2Driver;
 import io.appium.uiautomator2.model.Session;
 import io.appium.uiautomator2.model.settings.ISetting;
 import io.appium.uiautomator2.model.settings.Settings;
+import io.appium.uiautomator2.utils.AXWindowHelpers;
 import io.appium.uiautomator2.utils.Logger;
 
 public class UpdateSettings extends SafeRequestHandler {
 
+    private static final Set<Settings> HIERARCHY_SETTINGS = EnumSet.of(
+            Settings.ALLOW_INVISIBLE_ELEMENTS,
+            Settings.COMPRESSED_LAYOUT_HIERARCHY,
+            Settings.ENABLE_MULTI_WINDOWS);
+
     public UpdateSettings(String mappedUri) {
         super(mappedUri);
     }
 
+    @Override
+    public boolean mutatesUi() {
+        return false;
+    }
+
     @Override
     protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException {
         Session session = AppiumUIA2Driver.getInstance().getSessionOrThrow();
         Map<String, Object> settings = getPayload(request, "settings");
         Logger.debug("Update settings: " + settings.toString());
+        boolean isHierarchyChanged = false;
         for (Entry<String, Object> entry : settings.entrySet()) {
             String settingName = entry.getKey();
             Object settingValue = entry.getValue();
@@ -49,10 +64,25 @@ public class UpdateSettings extends SafeRequestHandler {
             //noinspection unchecked
             setting.update(settingValue);
             session.setCapability(settingName, settingValue);
+            isHierarchyChanged |= affectsHierarchy(setting);
+        }
+        // The UI itself stays the same, although the snapshot of it must be retaken
+        if (isHierarchyChanged) {
+            AXWindowHelpers.invalidateWindowRoots();
+            UiSnapshot.invalidate();
         }
         return new AppiumResponse(getSessionId(request));
     }
 
+    private static boolean affectsHierarchy(ISetting setting) {
+        for (Settings value : HIERARCHY_SETTINGS) {
+            if (value.getSetting() == setting) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public ISetting getSetting(String settingName) throws UnsupportedSettingException {
         for (final Settings value : Settings.values()) {
             if (value.toString().equals(settingName)) {
@@ -31,6 +31,7 @@ import io.appium.uiautomator2.utils.w3c.ActionTokens;
 import io.appium.uiautomator2.utils.w3c.ActionsExecutor;
 import io.appium.uiautomator2.utils.w3c.ActionsParseException;
 import io.appium.uiautomator2.utils.w3c.ActionsPreprocessor;
+import io.appium.uiautomator2.utils.w3c.ActionsSchedule;
 import io.appium.uiautomator2.utils.w3c.ActionsTokenizer;
 
 public class W3CActions extends SafeRequestHandler {
@@ -72,18 +73,30 @@ public class W3CActions extends SafeRequestHandler {
      */
     @Override
     protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException {
-        try {
-            final JSONArray actions = actionsPreprocessor.preprocess(
-                    (JSONArray) toJSON(request).get("actions")
-            );
+        final ActionsSchedule schedule = toSchedule((JSONArray) toJSON(request).get("actions"));
+        if (new ActionsExecutor(schedule).execute()) {
+            return new AppiumResponse(getSessionId(request));
+        }
+        throw new InvalidElementStateException(
+                "Unable to perform W3C actions. Check the logcat output " +
+                        "for possible error reports and make sure your input actions chain is valid.");
+    }
 
-            final ActionTokens actionTokens = actionsTokenizer.tokenize(actions);
-            if (new ActionsExecutor(actionTokens).execute()) {
-                return new AppiumResponse(getSessionId(request));
-            }
-            throw new InvalidElementStateException(
-                    "Unable to perform W3C actions. Check the logcat output " +
-                            "for possible error reports and make sure your input actions chain is valid.");
+    /**
+     * Preprocesses, tokenizes and compiles the given W3C actions chain into a schedule,
+     * which is ready to be executed.
+     * <p>
+     * Element origins are resolved to absolute coordinates at this stage.
+     *
+     * @param actions W3C actions array
+     * @return The compiled actions schedule
+     * @throws InvalidArgumentException if the actions chain cannot be parsed
+     */
+    public static ActionsSchedule toSchedule(JSONArray actions) throws JSONException {
+        try {
+            final ActionTokens actionTokens = actionsTokenizer.tokenize(
+                    actionsPreprocessor.preprocess(actions));
+            return ActionsSchedule.compile(actionTokens);
         } catch (ActionsParseException e) {
             Logger.error("Exception while reading JSON: ", e);
             throw new InvalidArgumentException("Exception while reading JSON", e);
@@ -0,0 +1,60 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.handler;
+
+import org.json.JSONException;
+
+import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.http.AppiumResponse;
+import io.appium.uiautomator2.http.IHttpRequest;
+import io.appium.uiautomator2.utils.Logger;
+import io.appium.uiautomator2.utils.w3c.AsyncActionsHandle;
+
+import static io.appium.uiautomator2.handler.PerformActionsAsync.getHandleOrThrow;
+
+/**
+ * Waits until the asynchronous actions chain is finished or the timeout expires
+ * and returns the current chain status. The timeout (in milliseconds) could be
+ * provided in the <em>timeout</em> payload value.
+ */
+public class WaitForAsyncActions extends SafeRequestHandler {
+    private static final long DEFAULT_TIMEOUT_MS = 10000;
+
+    public WaitForAsyncActions(String mappedUri) {
+        super(mappedUri);
+    }
+
+    @Override
+    public boolean mutatesUi() {
+        return false;
+    }
+
+    @Override
+    protected AppiumResponse safeHandle(IHttpRequest request) throws JSONException {
+        final AsyncActionsHandle handle = getHandleOrThrow(getNameAttribute(request));
+        final long timeoutMs = toJSON(request).optLong("timeout", DEFAULT_TIMEOUT_MS);
+        try {
+            if (!handle.await(timeoutMs)) {
+                Logger.info(String.format("The actions chain '%s' is still %s after %sms",
+                        handle.getId(), handle.getStatus(), timeoutMs));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new AppiumResponse(getSessionId(request), handle.toJSON());
+    }
+}
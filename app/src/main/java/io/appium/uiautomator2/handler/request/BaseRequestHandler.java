@@ -20,6 +20,8 @@ import androidx.annotation.Nullable;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 import java.util.*;
 
 import androidx.test.uiautomator.UiObjectNotFoundException;
@@ -69,6 +71,32 @@ public abstract class BaseRequestHandler {
         return extractRequestValue(request, AppiumServlet.NAME_ID_KEY, String.class);
     }
 
+    /**
+     * @return The decoded value of the given query string parameter or null if it is not present
+     */
+    @Nullable
+    protected static String getQueryParameter(IHttpRequest request, String name) {
+        String uri = request.uri();
+        int qPos = uri == null ? -1 : uri.indexOf('?');
+        if (qPos < 0) {
+            return null;
+        }
+        for (String pair : uri.substring(qPos + 1).split("&")) {
+            int eqPos = pair.indexOf('=');
+            String key = eqPos < 0 ? pair : pair.substring(0, eqPos);
+            if (!name.equals(key)) {
+                continue;
+            }
+            String value = eqPos < 0 ? "" : pair.substring(eqPos + 1);
+            try {
+                return URLDecoder.decode(value, "UTF-8");
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                return value;
+            }
+        }
+        return null;
+    }
+
     public static JSONObject toJSON(IHttpRequest request) throws JSONException {
         String json = request.body();
         Logger.debug("payload: " + json);
@@ -98,6 +126,27 @@ public abstract class BaseRequestHandler {
         return (String) request.data().get(AppiumServlet.SESSION_ID_KEY);
     }
 
+    /**
+     * Whether the command might change the UI. The shared UI snapshot is invalidated
+     * after each such command. GET requests are never expected to change the UI.
+     *
+     * @return true by default
+     */
+    public boolean mutatesUi() {
+        return true;
+    }
+
+    /**
+     * Same as {@link #mutatesUi()}, but allows handlers to decide depending
+     * on the request payload.
+     *
+     * @param request the handled request
+     * @return the result of {@link #mutatesUi()} by default
+     */
+    public boolean mutatesUi(IHttpRequest request) {
+        return mutatesUi();
+    }
+
     @Nullable
     public abstract AppiumResponse handle(IHttpRequest request);
 
@@ -23,6 +23,10 @@ import androidx.annotation.Nullable;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
 import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
@@ -67,6 +71,10 @@ public class AppiumResponse {
         response.setContentType("application/json");
         response.setEncoding(StandardCharsets.UTF_8);
         response.setStatus(getHttpStatus().code());
+        if (value instanceof StreamingJsonValue) {
+            renderStreamingValueTo(response, (StreamingJsonValue) value);
+            return;
+        }
         JSONObject o = new JSONObject();
         try {
             o.put("sessionId", formatNull(sessionId));
@@ -82,6 +90,35 @@ public class AppiumResponse {
         }
     }
 
+    private void renderStreamingValueTo(IHttpResponse response, final StreamingJsonValue streamingValue) {
+        try {
+            response.setContent(new IHttpResponse.ContentWriter() {
+                @Override
+                public void writeTo(OutputStream stream) throws IOException {
+                    final Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+                    writer.write("{\"sessionId\":");
+                    writer.write(sessionId == null ? "null" : JSONObject.quote(sessionId));
+                    writer.write(",\"value\":");
+                    streamingValue.writeTo(writer);
+                    writer.write("}");
+                    writer.flush();
+                }
+            });
+            Logger.info("AppiumResponse: the value has been streamed into the response body");
+        } catch (IOException | RuntimeException e) {
+            Logger.error("Unable to stream the response value", e);
+            response.setStatus(UiAutomator2Exception.DEFAULT_ERROR_STATUS.code());
+            try {
+                final JSONObject o = new JSONObject();
+                o.put("sessionId", formatNull(sessionId));
+                o.put("value", formatException(e));
+                response.setContent(o.toString());
+            } catch (JSONException e1) {
+                response.setContent("{}");
+            }
+        }
+    }
+
     public HttpResponseStatus getHttpStatus() {
         return httpStatus;
     }
@@ -1,5 +1,7 @@
 package io.appium.uiautomator2.http;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 
 public interface IHttpResponse {
@@ -12,6 +14,13 @@ public interface IHttpResponse {
 
     IHttpResponse setContent(String message);
 
+    /**
+     * Lets the writer put the response body directly into the response buffer,
+     * so the content does not have to be materialized as a separate array first.
+     * The content is left empty if the writer fails.
+     */
+    IHttpResponse setContent(ContentWriter writer) throws IOException;
+
     IHttpResponse setEncoding(Charset charset);
 
     IHttpResponse sendRedirect(String to);
@@ -21,4 +30,8 @@ public interface IHttpResponse {
     void end();
 
     boolean isClosed();
+
+    interface ContentWriter {
+        void writeTo(OutputStream stream) throws IOException;
+    }
 }
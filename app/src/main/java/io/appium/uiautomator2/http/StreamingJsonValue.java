@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.http;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A response value which is written straight into the response body
+ * instead of being converted to a JSON object first. Useful for large values,
+ * like page sources, which would otherwise be copied several times in memory.
+ */
+public interface StreamingJsonValue {
+    /**
+     * @param writer the writer to put a valid JSON value into
+     * @throws IOException if the value cannot be written
+     */
+    void writeTo(Writer writer) throws IOException;
+}
@@ -1,8 +1,10 @@
 package io.appium.uiautomator2.http.impl;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
 
 import io.appium.uiautomator2.http.IHttpResponse;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.util.CharsetUtil;
@@ -44,6 +46,18 @@ public class NettyHttpResponse implements IHttpResponse {
         return this;
     }
 
+    public IHttpResponse setContent(ContentWriter writer) throws IOException {
+        final int startIndex = response.content().writerIndex();
+        try {
+            writer.writeTo(new ByteBufOutputStream(response.content()));
+        } catch (IOException | RuntimeException e) {
+            response.content().writerIndex(startIndex);
+            throw e;
+        }
+        response.headers().add(CONTENT_LENGTH, response.content().writerIndex() - startIndex);
+        return this;
+    }
+
     public IHttpResponse sendRedirect(String to) {
         setStatus(HttpResponseStatus.MOVED_PERMANENTLY.code());
         response.headers().add(LOCATION, to);
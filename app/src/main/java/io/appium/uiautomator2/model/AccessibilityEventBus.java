@@ -0,0 +1,257 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.model;
+
+import android.view.accessibility.AccessibilityEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.appium.uiautomator2.utils.Logger;
+
+/**
+ * Fan-out point for accessibility events received by {@link NotificationListener}.
+ * <p>
+ * Each event is copied into an immutable {@link AccessibilityEventRecord}, which is
+ * published into a ring buffer, so the accessibility callback thread never waits for consumers.
+ * Each consumer reads the buffer at its own pace using its own cursor. Consumers, which fall
+ * behind by more than the buffer capacity, skip the overwritten events and the amount of such
+ * events is counted.
+ * <p>
+ * The buffer has a single producer (the accessibility events thread). Slots are only ever
+ * replaced with new records, never modified, so readers can detect overwritten slots by
+ * the sequence number of the record they get and neither side takes locks.
+ */
+public class AccessibilityEventBus {
+    private static final int CAPACITY = 2048;
+    private static final int MASK = CAPACITY - 1;
+    private static AccessibilityEventBus instance;
+
+    private final AtomicReferenceArray<AccessibilityEventRecord> slots =
+            new AtomicReferenceArray<>(CAPACITY);
+    // The sequence number of the most recently published event
+    private volatile long cursor = -1;
+    private final Object publishMonitor = new Object();
+    private final AtomicInteger waitersCount = new AtomicInteger();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Object dispatchGuard = new Object();
+    private Consumer dispatchConsumer = null;
+
+    AccessibilityEventBus() {
+    }
+
+    public static synchronized AccessibilityEventBus getInstance() {
+        if (instance == null) {
+            instance = new AccessibilityEventBus();
+        }
+        return instance;
+    }
+
+    /**
+     * Copies the event into the buffer. Must only be called from a single thread.
+     */
+    public void publish(AccessibilityEvent event) {
+        final long sequence = cursor + 1;
+        slots.set((int) (sequence & MASK), new AccessibilityEventRecord(sequence, event));
+        cursor = sequence;
+        if (waitersCount.get() > 0) {
+            synchronized (publishMonitor) {
+                publishMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return The sequence number of the most recently published event or -1
+     * if no events have been published yet
+     */
+    public long getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return A consumer, which only receives events published after this call
+     */
+    public Consumer newConsumer() {
+        return new Consumer(cursor + 1);
+    }
+
+    /**
+     * @param fromSequence the sequence number of the first event to read
+     * @return A consumer starting at the given sequence number
+     */
+    public Consumer newConsumer(long fromSequence) {
+        return new Consumer(Math.max(0, fromSequence));
+    }
+
+    /**
+     * Blocks until an event with the given sequence number is published or the timeout expires.
+     *
+     * @return true if the event has been published
+     */
+    public boolean awaitSequence(long sequence, long timeoutMs) {
+        if (cursor >= sequence) {
+            return true;
+        }
+        final long deadline = System.currentTimeMillis() + timeoutMs;
+        waitersCount.incrementAndGet();
+        try {
+            synchronized (publishMonitor) {
+                long remainingMs = deadline - System.currentTimeMillis();
+                while (cursor < sequence && remainingMs > 0) {
+                    publishMonitor.wait(remainingMs);
+                    remainingMs = deadline - System.currentTimeMillis();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waitersCount.decrementAndGet();
+        }
+        return cursor >= sequence;
+    }
+
+    /**
+     * Subscribes to events of the given types. Subscribers are called from a dedicated
+     * dispatcher thread, so they never block the accessibility events thread.
+     *
+     * @param eventTypesMask bitmask of {@link AccessibilityEvent} types to dispatch
+     * @param subscriber the subscriber to be called for matching events
+     */
+    public void subscribe(int eventTypesMask, AccessibilityEventSubscriber subscriber) {
+        subscriptions.add(new Subscription(eventTypesMask, subscriber));
+        ensureDispatcherStarted();
+    }
+
+    public void unsubscribe(AccessibilityEventSubscriber subscriber) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.subscriber == subscriber) {
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    private void ensureDispatcherStarted() {
+        synchronized (dispatchGuard) {
+            if (dispatchConsumer != null) {
+                return;
+            }
+            dispatchConsumer = newConsumer();
+        }
+        final Thread dispatcher = new Thread("appium-accessibility-events") {
+            @Override
+            public void run() {
+                //noinspection InfiniteLoopStatement
+                while (true) {
+                    dispatchPending();
+                    dispatchConsumer.await(Long.MAX_VALUE / 2);
+                }
+            }
+        };
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Synchronously dispatches all the events, which have not been delivered to subscribers yet.
+     * This is normally done by the dispatcher thread, although it might be useful to call
+     * this method in order to make sure subscribers have seen all the events published so far.
+     */
+    public void dispatchPending() {
+        synchronized (dispatchGuard) {
+            if (dispatchConsumer == null) {
+                return;
+            }
+            AccessibilityEventRecord record;
+            while ((record = dispatchConsumer.poll()) != null) {
+                for (Subscription subscription : subscriptions) {
+                    if ((subscription.eventTypesMask & record.eventType) == 0) {
+                        continue;
+                    }
+                    try {
+                        subscription.subscriber.onAccessibilityEvent(record);
+                    } catch (Exception e) {
+                        Logger.error("Accessibility event subscriber has failed", e);
+                    }
+                }
+            }
+        }
+    }
+
+    public class Consumer {
+        private long nextSequence;
+        private long droppedCount = 0;
+
+        private Consumer(long nextSequence) {
+            this.nextSequence = nextSequence;
+        }
+
+        /**
+         * @return The next available event or null if there are no new events
+         */
+        public AccessibilityEventRecord poll() {
+            while (true) {
+                final long published = cursor;
+                if (nextSequence > published) {
+                    return null;
+                }
+                if (published - nextSequence >= CAPACITY) {
+                    final long oldestAvailable = published - CAPACITY + 1;
+                    droppedCount += oldestAvailable - nextSequence;
+                    nextSequence = oldestAvailable;
+                }
+                final AccessibilityEventRecord record = slots.get((int) (nextSequence & MASK));
+                if (record != null && record.sequence == nextSequence) {
+                    ++nextSequence;
+                    return record;
+                }
+                // The producer has already lapped us
+                ++droppedCount;
+                ++nextSequence;
+            }
+        }
+
+        /**
+         * Blocks until at least one unread event is available or the timeout expires.
+         *
+         * @return true if there are unread events
+         */
+        public boolean await(long timeoutMs) {
+            return awaitSequence(nextSequence, timeoutMs);
+        }
+
+        public long getNextSequence() {
+            return nextSequence;
+        }
+
+        public long getDroppedCount() {
+            return droppedCount;
+        }
+    }
+
+    private static class Subscription {
+        final int eventTypesMask;
+        final AccessibilityEventSubscriber subscriber;
+
+        Subscription(int eventTypesMask, AccessibilityEventSubscriber subscriber) {
+            this.eventTypesMask = eventTypesMask;
+            this.subscriber = subscriber;
+        }
+    }
+}
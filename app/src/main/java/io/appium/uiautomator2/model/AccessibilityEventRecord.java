@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.model;
+
+import android.view.accessibility.AccessibilityEvent;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.appium.uiautomator2.core.ScrollExtentsCache;
+
+/**
+ * An immutable copy of the {@link AccessibilityEvent} properties, which are interesting
+ * for the server. Unlike the original event, a record stays valid after the event is recycled
+ * and can be safely shared between threads.
+ */
+public class AccessibilityEventRecord {
+    public final long sequence;
+    public final int eventType;
+    public final long eventTime;
+    public final int windowId;
+    public final int action;
+    public final int contentChangeTypes;
+    public final CharSequence packageName;
+    public final CharSequence className;
+    public final int scrollX;
+    public final int scrollY;
+    public final int maxScrollX;
+    public final int maxScrollY;
+    public final int fromIndex;
+    public final int toIndex;
+    public final int itemCount;
+    public final long sourceNodeId;
+    public final List<CharSequence> text;
+
+    AccessibilityEventRecord(long sequence, AccessibilityEvent event) {
+        this.sequence = sequence;
+        eventType = event.getEventType();
+        eventTime = event.getEventTime();
+        windowId = event.getWindowId();
+        action = event.getAction();
+        contentChangeTypes = event.getContentChangeTypes();
+        packageName = event.getPackageName();
+        className = event.getClassName();
+        scrollX = event.getScrollX();
+        scrollY = event.getScrollY();
+        maxScrollX = event.getMaxScrollX();
+        maxScrollY = event.getMaxScrollY();
+        fromIndex = event.getFromIndex();
+        toIndex = event.getToIndex();
+        itemCount = event.getItemCount();
+        // Only scroll events need to be matched to their source views
+        sourceNodeId = eventType == AccessibilityEvent.TYPE_VIEW_SCROLLED
+                ? ScrollExtentsCache.getSourceNodeId(event)
+                : ScrollExtentsCache.UNDEFINED_NODE_ID;
+        final List<CharSequence> eventText = event.getText();
+        text = eventText == null || eventText.isEmpty()
+                ? Collections.<CharSequence>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(eventText));
+    }
+
+    public JSONObject toJSON() throws JSONException {
+        final JSONObject result = new JSONObject();
+        result.put("sequence", sequence);
+        result.put("eventType", AccessibilityEvent.eventTypeToString(eventType));
+        result.put("eventTime", eventTime);
+        result.put("windowId", windowId);
+        result.put("packageName", packageName == null ? null : packageName.toString());
+        result.put("className", className == null ? null : className.toString());
+        if (contentChangeTypes != 0) {
+            result.put("contentChangeTypes", contentChangeTypes);
+        }
+        if (eventType == AccessibilityEvent.TYPE_VIEW_SCROLLED) {
+            result.put("scrollX", scrollX);
+            result.put("scrollY", scrollY);
+            result.put("maxScrollX", maxScrollX);
+            result.put("maxScrollY", maxScrollY);
+            result.put("fromIndex", fromIndex);
+            result.put("toIndex", toIndex);
+            result.put("itemCount", itemCount);
+        }
+        if (!text.isEmpty()) {
+            final JSONArray textArray = new JSONArray();
+            for (CharSequence item : text) {
+                textArray.put(item == null ? null : item.toString());
+            }
+            result.put("text", textArray);
+        }
+        return result;
+    }
+}
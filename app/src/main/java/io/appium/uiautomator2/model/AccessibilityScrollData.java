@@ -24,6 +24,16 @@ public class AccessibilityScrollData {
         this.itemCount = event.getItemCount();
     }
 
+    public AccessibilityScrollData(AccessibilityEventRecord event) {
+        this.scrollX = event.scrollX;
+        this.scrollY = event.scrollY;
+        this.maxScrollX = event.maxScrollX;
+        this.maxScrollY = event.maxScrollY;
+        this.fromIndex = event.fromIndex;
+        this.toIndex = event.toIndex;
+        this.itemCount = event.itemCount;
+    }
+
     public String toString() {
         return getAsMap().toString();
     }
@@ -19,6 +19,7 @@ package io.appium.uiautomator2.model;
 import android.view.accessibility.AccessibilityNodeInfo;
 
 import androidx.test.uiautomator.UiSelector;
+import io.appium.uiautomator2.core.UiSnapshot;
 import io.appium.uiautomator2.utils.Attribute;
 
 import static io.appium.uiautomator2.utils.AXWindowHelpers.getCachedWindowRoots;
@@ -36,9 +37,14 @@ public class CustomUiSelector {
      * @return UiSelector object, based on UiAutomationElement attributes
      */
     public UiSelector getUiSelector(AccessibilityNodeInfo node) {
-        UiAutomationElement uiAutomationElement = UiAutomationElement.getCachedElement(node, getCachedWindowRoots());
+        UiAutomationElement uiAutomationElement = UiSnapshot.get().getElement(node);
         if (uiAutomationElement == null) {
-            throw new IllegalArgumentException(String.format("The '%s' node is not found in the cache", node));
+            // The node might have appeared after the snapshot has been taken
+            uiAutomationElement = UiAutomationElement.rebuildForNewRoots(getCachedWindowRoots())
+                    .findElement(node);
+        }
+        if (uiAutomationElement == null) {
+            throw new IllegalArgumentException(String.format("The '%s' node is not found in the hierarchy", node));
         }
         put(Attribute.PACKAGE, uiAutomationElement.getPackageName());
         put(Attribute.CLASS, uiAutomationElement.getClassName());
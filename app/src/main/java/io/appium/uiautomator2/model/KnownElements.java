@@ -16,12 +16,18 @@
 
 package io.appium.uiautomator2.model;
 
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import androidx.annotation.Nullable;
+import androidx.test.uiautomator.UiObject2;
 import androidx.test.uiautomator.UiSelector;
 import io.appium.uiautomator2.common.exceptions.StaleElementReferenceException;
+import io.appium.uiautomator2.core.UiChangesTracker;
+import io.appium.uiautomator2.core.UiSnapshot;
 import io.appium.uiautomator2.model.internal.CustomUiDevice;
 import io.appium.uiautomator2.utils.Logger;
 import io.appium.uiautomator2.utils.NodeInfoList;
@@ -30,9 +36,12 @@ import static io.appium.uiautomator2.utils.Device.getAndroidElement;
 import static io.appium.uiautomator2.utils.ElementLocationHelpers.getXPathNodeMatch;
 import static io.appium.uiautomator2.utils.ElementLocationHelpers.rewriteIdLocator;
 import static io.appium.uiautomator2.utils.ElementLocationHelpers.toSelector;
+import static io.appium.uiautomator2.utils.ReflectionUtils.getField;
 
 public class KnownElements {
     private final Map<String, AndroidElement> cache = new HashMap<>();
+    // The UI state (see getUiState()) at which each cached element has been proven to exist
+    private final Map<String, long[]> validatedStates = new HashMap<>();
 
     KnownElements() {
     }
@@ -108,19 +117,69 @@ public class KnownElements {
         cache.put(restoredElement.getId(), restoredElement);
     }
 
+    /**
+     * @return The generation of UI changes tracker combined with the count of
+     * UI-mutating commands or null if UI changes cannot be tracked
+     */
+    @Nullable
+    private static long[] getUiState() {
+        // The generation is only fed while accessibility events are being received
+        if (!NotificationListener.getInstance().isListening()) {
+            return null;
+        }
+        // The tracker is fed asynchronously, so it must see all the events received so far
+        AccessibilityEventBus.getInstance().dispatchPending();
+        return new long[]{
+                UiChangesTracker.getInstance().getGeneration(),
+                UiSnapshot.getInvalidationsCount()
+        };
+    }
+
+    private boolean isValidatedAt(String id, @Nullable long[] state) {
+        return state != null && Arrays.equals(validatedStates.get(id), state);
+    }
+
+    /**
+     * Checks whether the element still exists on the screen. UiObject2 instances are
+     * verified by refreshing their own accessibility node, while legacy UiObject
+     * instances have no node attached and need to be looked up again.
+     */
+    private static boolean isAlive(AndroidElement element) {
+        try {
+            final Object uiObject = element.getUiObject();
+            if (uiObject instanceof UiObject2) {
+                final AccessibilityNodeInfo node = (AccessibilityNodeInfo) getField(UiObject2.class,
+                        "mCachedNode", uiObject);
+                return node != null && node.refresh();
+            }
+            element.getName();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     @Nullable
     public AndroidElement getElementFromCache(String id) {
         AndroidElement result = cache.get(id);
         if (result != null) {
+            // The state must be retrieved before the check,
+            // so changes happening while it is running cause another check next time
+            final long[] state = getUiState();
+            if (isValidatedAt(id, state)) {
+                return result;
+            }
             // It might be that cached UI object has been invalidated
             // after AX cache reset has been performed. So we try to recreate
             // the cached object automatically
             // in order to avoid an unexpected StaleElementReferenceException
-            try {
-                result.getName();
-            } catch (Exception e) {
+            if (!isAlive(result)) {
+                validatedStates.remove(id);
                 restoreCachedElement(result);
             }
+            if (state != null) {
+                validatedStates.put(id, state);
+            }
         }
         return cache.get(id);
     }
@@ -130,6 +189,11 @@ public class KnownElements {
             return getCacheKey(element);
         }
         cache.put(element.getId(), element);
+        // The element has just been found, so there is no need to check it until the UI changes
+        final long[] state = getUiState();
+        if (state != null) {
+            validatedStates.put(element.getId(), state);
+        }
         return element.getId();
     }
 }
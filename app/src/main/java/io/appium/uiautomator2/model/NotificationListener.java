@@ -34,12 +34,24 @@ public class NotificationListener implements OnAccessibilityEventListener {
 
     private final UiAutomation uiAutomation;
     private List<CharSequence> toastMessage = new CopyOnWriteArrayList<>();
-    private long recentToastTimestamp = currentTimeMillis();
+    private volatile long recentToastTimestamp = currentTimeMillis();
     private OnAccessibilityEventListener originalListener = null;
     private volatile boolean isListening;
+    private final AccessibilityEventBus eventBus = AccessibilityEventBus.getInstance();
+    // Toasts are recorded as soon as they arrive, so bursts of other events cannot push them out of the bus
+    private final AccessibilityEventSubscriber toastEventsSubscriber = new AccessibilityEventSubscriber() {
+        @Override
+        public void onAccessibilityEvent(AccessibilityEventRecord event) {
+            if (!event.text.isEmpty()) {
+                Logger.debug("Catch toast message: " + event.text);
+                setToastMessage(event.text);
+            }
+        }
+    };
 
     protected NotificationListener() {
         uiAutomation = UiAutomation.getInstance();
+        eventBus.subscribe(AccessibilityEvent.TYPE_NOTIFICATION_STATE_CHANGED, toastEventsSubscriber);
     }
 
     public static NotificationListener getInstance() {
@@ -75,14 +87,8 @@ public class NotificationListener implements OnAccessibilityEventListener {
     }
 
     @Override
-    public synchronized void onAccessibilityEvent(AccessibilityEvent event) {
-        if (event.getEventType() == AccessibilityEvent.TYPE_NOTIFICATION_STATE_CHANGED) {
-            Logger.debug("Catch toast message: " + event);
-            List<CharSequence> text = event.getText();
-            if (text != null && !text.isEmpty()) {
-                setToastMessage(text);
-            }
-        }
+    public void onAccessibilityEvent(AccessibilityEvent event) {
+        eventBus.publish(event);
 
         if (originalListener != null) {
             originalListener.onAccessibilityEvent(event);
@@ -99,6 +105,8 @@ public class NotificationListener implements OnAccessibilityEventListener {
 
     @NonNull
     public List<CharSequence> getToastMessage() {
+        // Make sure toasts published right before this call have been recorded
+        eventBus.dispatchPending();
         if (!toastMessage.isEmpty() && currentTimeMillis() - recentToastTimestamp > getToastClearTimeout()) {
             Logger.debug("Clearing toast message: " + toastMessage);
             toastMessage.clear();
@@ -19,8 +19,12 @@ package io.appium.uiautomator2.model;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import androidx.annotation.Nullable;
+import io.appium.uiautomator2.core.SourceTree;
+import io.appium.uiautomator2.utils.w3c.ActionsSchedule;
 
 import static io.appium.uiautomator2.model.settings.Settings.ELEMENT_RESPONSE_ATTRIBUTES;
 import static io.appium.uiautomator2.model.settings.Settings.SHOULD_USE_COMPACT_RESPONSES;
@@ -30,7 +34,9 @@ public class Session {
     private final Map<String, Object> capabilities = new HashMap<>();
     private final String sessionId;
     private final KnownElements knownElements = new KnownElements();
-    private AccessibilityScrollData lastScrollData;
+    private final Map<String, ActionsSchedule> actionChains = new ConcurrentHashMap<>();
+    private volatile AccessibilityScrollData lastScrollData;
+    private final AtomicReference<SourceTree> lastSourceTree = new AtomicReference<>();
 
     Session(String sessionId, Map<String, Object> capabilities) {
         this.sessionId = sessionId;
@@ -90,4 +96,27 @@ public class Session {
     public KnownElements getKnownElements() {
         return this.knownElements;
     }
+
+    public void putActionChain(String name, ActionsSchedule schedule) {
+        actionChains.put(name, schedule);
+    }
+
+    @Nullable
+    public ActionsSchedule getActionChain(String name) {
+        return actionChains.get(name);
+    }
+
+    @Nullable
+    public ActionsSchedule removeActionChain(String name) {
+        return actionChains.remove(name);
+    }
+
+    /**
+     * @param sourceTree the tree to remember
+     * @return The previously remembered tree or null if there was none
+     */
+    @Nullable
+    public SourceTree replaceLastSourceTree(SourceTree sourceTree) {
+        return lastSourceTree.getAndSet(sourceTree);
+    }
 }
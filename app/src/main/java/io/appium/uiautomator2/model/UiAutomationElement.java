@@ -17,6 +17,8 @@
 package io.appium.uiautomator2.model;
 
 import android.annotation.TargetApi;
+import android.graphics.Rect;
+import android.os.SystemClock;
 import android.util.Range;
 import android.view.accessibility.AccessibilityNodeInfo;
 import android.widget.Toast;
@@ -26,15 +28,30 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import androidx.annotation.Nullable;
+import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
+import io.appium.uiautomator2.core.AccessibilityIpcCounter;
 import io.appium.uiautomator2.core.AccessibilityNodeInfoHelpers;
+import io.appium.uiautomator2.core.LookupMetrics;
+import io.appium.uiautomator2.model.settings.BulkNodesPrefetch;
+import io.appium.uiautomator2.model.settings.ParallelWindowsCapture;
 import io.appium.uiautomator2.utils.Attribute;
 import io.appium.uiautomator2.utils.Logger;
 
 import static androidx.test.internal.util.Checks.checkNotNull;
 import static io.appium.uiautomator2.model.settings.Settings.ALLOW_INVISIBLE_ELEMENTS;
+import static io.appium.uiautomator2.model.settings.Settings.BULK_NODES_PREFETCH;
+import static io.appium.uiautomator2.model.settings.Settings.PARALLEL_WINDOWS_CAPTURE;
 import static io.appium.uiautomator2.utils.ReflectionUtils.setField;
 import static io.appium.uiautomator2.utils.StringHelpers.charSequenceToNullableString;
 
@@ -47,7 +64,10 @@ public class UiAutomationElement extends UiElement<AccessibilityNodeInfo, UiAuto
     // https://github.com/appium/appium/issues/12545
     private final static int MAX_DEPTH = 70;
 
-    private final static Map<AccessibilityNodeInfo, UiAutomationElement> cache = new WeakHashMap<>();
+    private final static int MAX_CAPTURE_THREADS = 4;
+    private final static long CAPTURE_THREAD_KEEP_ALIVE_SEC = 30;
+
+    private final static ExecutorService WINDOWS_CAPTURE_EXECUTOR = createWindowsCaptureExecutor();
     private final Map<Attribute, Object> attributes;
     private final List<UiAutomationElement> children;
     private int depth = 0;
@@ -57,9 +77,14 @@ public class UiAutomationElement extends UiElement<AccessibilityNodeInfo, UiAuto
      * {@code UiAutomationElement} instance are immutable. If the underlying
      * {@link AccessibilityNodeInfo} is updated, a new {@code UiAutomationElement}
      * instance will be created in
+     *
+     * @param displayRect              the display area, which is the same for all elements of the tree
+     * @param scrollableAncestorBounds visible bounds of the closest scrollable ancestor or null
      */
-    private UiAutomationElement(AccessibilityNodeInfo node, int index) {
+    private UiAutomationElement(AccessibilityNodeInfo node, int index, Rect displayRect,
+                                @Nullable Rect scrollableAncestorBounds) {
         super(checkNotNull(node));
+        LookupMetrics.onNodeVisited();
 
         Map<Attribute, Object> attributes = new LinkedHashMap<>();
         // The same sequence will be used for node attributes in xml page source
@@ -85,24 +110,86 @@ public class UiAutomationElement extends UiElement<AccessibilityNodeInfo, UiAuto
             attributes.put(Attribute.SELECTION_END, selectionRange.getUpper());
         }
         put(attributes, Attribute.SELECTED, node.isSelected());
-        put(attributes, Attribute.BOUNDS, AccessibilityNodeInfoHelpers.getVisibleBounds(node).toShortString());
+        // Visible bounds are computed top-down to avoid walking the ancestors of each node
+        Rect visibleBounds = AccessibilityNodeInfoHelpers.getVisibleBounds(node, displayRect,
+                scrollableAncestorBounds);
+        put(attributes, Attribute.BOUNDS, visibleBounds.toShortString());
         put(attributes, Attribute.DISPLAYED, node.isVisibleToUser());
         // Skip CONTENT_SIZE as it is quite expensive to compute it for each element
         this.attributes = Collections.unmodifiableMap(attributes);
-        this.children = buildChildren(node);
+        this.children = buildChildren(node, displayRect,
+                node.isScrollable() ? visibleBounds : scrollableAncestorBounds);
     }
 
-    private UiAutomationElement(String hierarchyClassName, AccessibilityNodeInfo[] childNodes, int index) {
+    private UiAutomationElement(String hierarchyClassName, AccessibilityNodeInfo[] childNodes, int index,
+                                Rect displayRect) {
         super(null);
         Map<Attribute, Object> attribs = new LinkedHashMap<>();
         put(attribs, Attribute.INDEX, index);
         put(attribs, Attribute.CLASS, hierarchyClassName);
         this.attributes = Collections.unmodifiableMap(attribs);
-        List<UiAutomationElement> children = new ArrayList<>();
-        for (AccessibilityNodeInfo childNode : childNodes) {
-            children.add(new UiAutomationElement(childNode, children.size()));
+        this.children = childNodes.length > 1
+                && ((ParallelWindowsCapture) PARALLEL_WINDOWS_CAPTURE.getSetting()).getValue()
+                ? buildWindowsConcurrently(childNodes, displayRect)
+                : buildWindows(childNodes, displayRect);
+    }
+
+    private static List<UiAutomationElement> buildWindows(AccessibilityNodeInfo[] windowRoots,
+                                                          Rect displayRect) {
+        List<UiAutomationElement> windows = new ArrayList<>(windowRoots.length);
+        for (AccessibilityNodeInfo windowRoot : windowRoots) {
+            windows.add(new WindowBuilder(windowRoot, windows.size(), displayRect).call());
+        }
+        return windows;
+    }
+
+    /**
+     * Builds window subtrees on the capture pool. Windows are merged in the same order
+     * they would be built sequentially.
+     */
+    private static List<UiAutomationElement> buildWindowsConcurrently(AccessibilityNodeInfo[] windowRoots,
+                                                                      Rect displayRect) {
+        List<Future<UiAutomationElement>> futures = new ArrayList<>(windowRoots.length);
+        List<WindowBuilder> builders = new ArrayList<>(windowRoots.length);
+        for (int i = 0; i < windowRoots.length; ++i) {
+            WindowBuilder builder = new WindowBuilder(windowRoots[i], i, displayRect);
+            builders.add(builder);
+            futures.add(WINDOWS_CAPTURE_EXECUTOR.submit(builder));
+        }
+        List<UiAutomationElement> windows = new ArrayList<>(windowRoots.length);
+        try {
+            for (Future<UiAutomationElement> future : futures) {
+                windows.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UiAutomator2Exception(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new UiAutomator2Exception(e.getCause());
+        } finally {
+            for (Future<UiAutomationElement> future : futures) {
+                future.cancel(true);
+            }
+        }
+        // Nodes fetched by the pool threads are not visible to the lookup running on this thread
+        for (UiAutomationElement window : windows) {
+            LookupMetrics.onNodesVisited(window.countElements());
+        }
+        for (WindowBuilder builder : builders) {
+            AccessibilityIpcCounter.addDelegatedCalls(builder.ipcCalls);
         }
-        this.children = children;
+        return windows;
+    }
+
+    private int countElements() {
+        int result = 1;
+        for (UiAutomationElement child : children) {
+            result += child.countElements();
+        }
+        return result;
     }
 
     private int getDepth() {
@@ -117,51 +204,116 @@ public class UiAutomationElement extends UiElement<AccessibilityNodeInfo, UiAuto
         return rebuildForNewRoots(roots, Collections.<CharSequence>emptyList());
     }
 
+    /**
+     * Builds a new tree. There is no state shared between trees, so each of them
+     * could be safely read by multiple threads after it has been built.
+     */
     public static UiAutomationElement rebuildForNewRoots(AccessibilityNodeInfo[] roots, List<CharSequence> toastMSGs) {
-        cache.clear();
-        UiAutomationElement root = new UiAutomationElement(ROOT_NODE_NAME, roots, 0);
+        // Display metrics are only retrieved once per tree
+        Rect displayRect = AccessibilityNodeInfoHelpers.getDisplayRect();
+        UiAutomationElement root = new UiAutomationElement(ROOT_NODE_NAME, roots, 0, displayRect);
         for (CharSequence toastMSG : toastMSGs) {
             Logger.debug(String.format("Adding toast message to root: %s", toastMSG));
-            root.addToastMsgToRoot(toastMSG);
+            root.addToastMsgToRoot(toastMSG, displayRect);
         }
         return root;
     }
 
+    /**
+     * @param node the node to look for
+     * @return The element wrapping the given node in this subtree or null if there is none
+     */
     @Nullable
-    public static UiAutomationElement getCachedElement(AccessibilityNodeInfo rawElement, AccessibilityNodeInfo[] windowRoots) {
-        if (cache.get(rawElement) == null) {
-            rebuildForNewRoots(windowRoots);
+    public UiAutomationElement findElement(AccessibilityNodeInfo node) {
+        if (node.equals(getNode())) {
+            return this;
+        }
+        for (UiAutomationElement child : children) {
+            UiAutomationElement result = child.findElement(node);
+            if (result != null) {
+                return result;
+            }
         }
-        return cache.get(rawElement);
+        return null;
     }
 
-    private static UiAutomationElement getOrCreateElement(AccessibilityNodeInfo rawElement, int index, int depth) {
-        UiAutomationElement element = cache.get(rawElement);
-        if (element == null) {
-            element = new UiAutomationElement(rawElement, index);
-            element.setDepth(depth);
-            cache.put(rawElement, element);
-        }
+    private static UiAutomationElement createElement(AccessibilityNodeInfo rawElement, int index, int depth,
+                                                     Rect displayRect,
+                                                     @Nullable Rect scrollableAncestorBounds) {
+        UiAutomationElement element = new UiAutomationElement(rawElement, index, displayRect,
+                scrollableAncestorBounds);
+        element.setDepth(depth);
         return element;
     }
 
+    private static class WindowBuilder implements Callable<UiAutomationElement> {
+        private final AccessibilityNodeInfo windowRoot;
+        private final int index;
+        private final Rect displayRect;
+        // Accessibility requests sent while the window has been built
+        private long ipcCalls = 0;
+
+        WindowBuilder(AccessibilityNodeInfo windowRoot, int index, Rect displayRect) {
+            this.windowRoot = windowRoot;
+            this.index = index;
+            this.displayRect = displayRect;
+        }
+
+        @Override
+        public UiAutomationElement call() {
+            long startTime = SystemClock.uptimeMillis();
+            long ipcCallsBefore = AccessibilityIpcCounter.getCount();
+            // Context roots might have scrollable ancestors outside of the tree
+            UiAutomationElement window = new UiAutomationElement(windowRoot, index, displayRect,
+                    AccessibilityNodeInfoHelpers.getScrollableAncestorBounds(windowRoot));
+            if (ipcCallsBefore >= 0) {
+                ipcCalls = AccessibilityIpcCounter.getCount() - ipcCallsBefore;
+            }
+            Logger.debug(String.format("The hierarchy of the window #%s (%s) has been built in %sms " +
+                            "with %s accessibility requests", index, window.get(Attribute.PACKAGE),
+                    SystemClock.uptimeMillis() - startTime, ipcCallsBefore >= 0 ? ipcCalls : "unknown"));
+            return window;
+        }
+    }
+
+    private static ExecutorService createWindowsCaptureExecutor() {
+        int poolSize = Math.max(2, Math.min(MAX_CAPTURE_THREADS,
+                Runtime.getRuntime().availableProcessors()));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize,
+                CAPTURE_THREAD_KEEP_ALIVE_SEC, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger threadsCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable,
+                        "appium-windows-capture-" + threadsCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private void put(Map<Attribute, Object> attribs, Attribute key, Object value) {
         if (value != null) {
             attribs.put(key, value);
         }
     }
 
-    private void addToastMsgToRoot(CharSequence tokenMSG) {
+    private void addToastMsgToRoot(CharSequence tokenMSG, Rect displayRect) {
         AccessibilityNodeInfo node = AccessibilityNodeInfo.obtain();
         node.setText(tokenMSG);
         node.setClassName(Toast.class.getName());
         node.setPackageName("com.android.settings");
         setField("mSealed", true, node);
 
-        this.children.add(new UiAutomationElement(node, this.children.size()));
+        this.children.add(new UiAutomationElement(node, this.children.size(), displayRect, null));
     }
 
-    private List<UiAutomationElement> buildChildren(AccessibilityNodeInfo node) {
+    private List<UiAutomationElement> buildChildren(AccessibilityNodeInfo node, Rect displayRect,
+                                                    @Nullable Rect scrollableAncestorBounds) {
         final int childCount = node.getChildCount();
         if (childCount == 0 || getDepth() >= MAX_DEPTH) {
             if (getDepth() >= MAX_DEPTH) {
@@ -176,11 +328,15 @@ public class UiAutomationElement extends UiElement<AccessibilityNodeInfo, UiAuto
                 .getInstance()
                 .getSessionOrThrow()
                 .getCapability(ALLOW_INVISIBLE_ELEMENTS.toString(), false);
+        boolean shouldPrefetchNodes = ((BulkNodesPrefetch) BULK_NODES_PREFETCH.getSetting()).getValue();
         for (int i = 0; i < childCount; i++) {
-            AccessibilityNodeInfo child = node.getChild(i);
+            AccessibilityNodeInfo child = shouldPrefetchNodes
+                    ? AccessibilityNodeInfoHelpers.getChildWithPrefetch(node, i)
+                    : node.getChild(i);
             //Ignore if element is not visible on the screen
             if (child != null && (child.isVisibleToUser() || areInvisibleElementsAllowed)) {
-                children.add(getOrCreateElement(child, i, getDepth() + 1));
+                children.add(createElement(child, i, getDepth() + 1, displayRect,
+                        scrollableAncestorBounds));
             }
         }
         return children;
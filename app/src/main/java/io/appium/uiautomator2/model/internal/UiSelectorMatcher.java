@@ -0,0 +1,406 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.model.internal;
+
+import android.util.SparseArray;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import androidx.test.uiautomator.UiSelector;
+import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
+import io.appium.uiautomator2.core.LookupMetrics;
+import io.appium.uiautomator2.core.UiSnapshot;
+import io.appium.uiautomator2.model.UiAutomationElement;
+import io.appium.uiautomator2.utils.Attribute;
+import io.appium.uiautomator2.utils.Logger;
+import io.appium.uiautomator2.utils.NodeInfoList;
+
+import static io.appium.uiautomator2.utils.ElementLocationHelpers.copySelector;
+import static io.appium.uiautomator2.utils.ReflectionUtils.getField;
+import static io.appium.uiautomator2.utils.ReflectionUtils.invoke;
+import static io.appium.uiautomator2.utils.ReflectionUtils.method;
+
+/**
+ * Evaluates {@link UiSelector} instances directly against accessibility node trees
+ * and collects all the matching nodes during a single traversal.
+ * <p>
+ * Node attributes (text, description, class name, resource id, their regex variants,
+ * checkable state, index, etc.) are matched using the selector's own predicate, so the
+ * result is consistent with UiAutomator's query controller. Child and parent selector chains
+ * are followed the same way. The predicate also counts instances by modifying the selector,
+ * so matching is always done on a private copy with the instance attribute stripped, and the
+ * instance is applied once to the collected matches. The given selectors are never modified.
+ * Container and pattern selectors, as well as instances inside of selector chains,
+ * are not supported.
+ */
+public class UiSelectorMatcher {
+    private static Method METHOD_IS_MATCH_FOR;
+    private static Method METHOD_IS_LEAF;
+    private static Method METHOD_HAS_CHILD_SELECTOR;
+    private static Method METHOD_GET_CHILD_SELECTOR;
+    private static Method METHOD_HAS_PARENT_SELECTOR;
+    private static Method METHOD_GET_PARENT_SELECTOR;
+    private static Method METHOD_HAS_CONTAINER_SELECTOR;
+    private static Method METHOD_HAS_PATTERN_SELECTOR;
+    private static Field FIELD_SELECTOR_ATTRIBUTES;
+    private static int SELECTOR_INSTANCE;
+    private static int SELECTOR_COUNT;
+    private static int SELECTOR_CHILD;
+    private static int SELECTOR_PARENT;
+    private static Boolean isAvailable = null;
+
+    private UiSelectorMatcher() {
+    }
+
+    private static synchronized boolean bindMethods() {
+        if (isAvailable == null) {
+            try {
+                METHOD_IS_MATCH_FOR = method(UiSelector.class, "isMatchFor",
+                        AccessibilityNodeInfo.class, int.class);
+                METHOD_IS_LEAF = method(UiSelector.class, "isLeaf");
+                METHOD_HAS_CHILD_SELECTOR = method(UiSelector.class, "hasChildSelector");
+                METHOD_GET_CHILD_SELECTOR = method(UiSelector.class, "getChildSelector");
+                METHOD_HAS_PARENT_SELECTOR = method(UiSelector.class, "hasParentSelector");
+                METHOD_GET_PARENT_SELECTOR = method(UiSelector.class, "getParentSelector");
+                METHOD_HAS_CONTAINER_SELECTOR = method(UiSelector.class, "hasContainerSelector");
+                METHOD_HAS_PATTERN_SELECTOR = method(UiSelector.class, "hasPatternSelector");
+                FIELD_SELECTOR_ATTRIBUTES = UiSelector.class.getDeclaredField("mSelectorAttributes");
+                FIELD_SELECTOR_ATTRIBUTES.setAccessible(true);
+                SELECTOR_INSTANCE = (Integer) getField(UiSelector.class, "SELECTOR_INSTANCE", null);
+                SELECTOR_COUNT = (Integer) getField(UiSelector.class, "SELECTOR_COUNT", null);
+                SELECTOR_CHILD = (Integer) getField(UiSelector.class, "SELECTOR_CHILD", null);
+                SELECTOR_PARENT = (Integer) getField(UiSelector.class, "SELECTOR_PARENT", null);
+                isAvailable = true;
+            } catch (UiAutomator2Exception | NoSuchFieldException e) {
+                Logger.warn("UiSelector internals are not accessible. " +
+                        "Falling back to the default elements lookup");
+                isAvailable = false;
+            }
+        }
+        return isAvailable;
+    }
+
+    private static boolean call(Method method, UiSelector selector) {
+        return (Boolean) invoke(method, selector);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SparseArray<Object> getAttributes(UiSelector selector) {
+        try {
+            return (SparseArray<Object>) FIELD_SELECTOR_ATTRIBUTES.get(selector);
+        } catch (IllegalAccessException e) {
+            throw new UiAutomator2Exception(e);
+        }
+    }
+
+    /**
+     * @return The child or the parent selector stored in the given attributes
+     * (not a copy of it) or null if there is none
+     */
+    private static UiSelector getSubSelector(SparseArray<Object> attributes) {
+        final Object child = attributes.get(SELECTOR_CHILD);
+        return (UiSelector) (child == null ? attributes.get(SELECTOR_PARENT) : child);
+    }
+
+    /**
+     * @return true if all the matches of the given selector could be found
+     * with {@link #findMatches(UiSelector, UiSnapshot)}
+     */
+    public static boolean isSupported(UiSelector selector) {
+        if (!bindMethods()) {
+            return false;
+        }
+        final boolean hasSubSelectors = getSubSelector(getAttributes(selector)) != null;
+        UiSelector current = selector;
+        while (current != null) {
+            if (call(METHOD_HAS_CONTAINER_SELECTOR, current)
+                    || call(METHOD_HAS_PATTERN_SELECTOR, current)) {
+                return false;
+            }
+            final SparseArray<Object> attributes = getAttributes(current);
+            // UiAutomator restarts instance counting for each match of the outer
+            // selector in a chain, which cannot be represented by a single list of matches
+            if (hasSubSelectors && attributes.get(SELECTOR_INSTANCE) != null) {
+                return false;
+            }
+            current = getSubSelector(attributes);
+        }
+        return true;
+    }
+
+    /**
+     * @param selector the selector to check. Must be supported (see {@link #isSupported(UiSelector)})
+     * @return true if the selector has child or parent selectors
+     */
+    public static boolean hasSubSelectors(UiSelector selector) {
+        return getSubSelector(getAttributes(selector)) != null;
+    }
+
+    /**
+     * @param selector the selector to check. Must be supported (see {@link #isSupported(UiSelector)})
+     * @return true if the selector has the instance attribute set
+     */
+    public static boolean hasInstance(UiSelector selector) {
+        return getAttributes(selector).get(SELECTOR_INSTANCE) != null;
+    }
+
+    private static int getInstance(UiSelector selector) {
+        final Object instance = getAttributes(selector).get(SELECTOR_INSTANCE);
+        return instance == null ? 0 : (Integer) instance;
+    }
+
+    /**
+     * @return A copy of the given selector, which could be matched without modifying it.
+     * All instance attributes and counters are removed from the copy
+     */
+    private static UiSelector toMatchingSelector(UiSelector selector) {
+        final UiSelector result = copySelector(selector);
+        UiSelector current = result;
+        while (current != null) {
+            final SparseArray<Object> attributes = getAttributes(current);
+            attributes.remove(SELECTOR_INSTANCE);
+            attributes.remove(SELECTOR_COUNT);
+            current = getSubSelector(attributes);
+        }
+        return result;
+    }
+
+    /**
+     * Finds all nodes matching the given selector in the given UI snapshot.
+     * The instance attribute of the selector is ignored, since all the matches are returned.
+     *
+     * @param selector the selector to match. Must be supported (see {@link #isSupported(UiSelector)})
+     * @param snapshot the snapshot to search in
+     * @return The list of matched nodes in the document order
+     */
+    public static NodeInfoList findMatches(UiSelector selector, UiSnapshot snapshot) {
+        final UiSelector matchingSelector = toMatchingSelector(selector);
+        final Set<AccessibilityNodeInfo> matches = new LinkedHashSet<>();
+        for (UiAutomationElement window : snapshot.getWindows()) {
+            // Window roots always have zero index in UiAutomator queries
+            collect(matchingSelector, window, 0, snapshot, matches);
+        }
+        return toNodeInfoList(matches);
+    }
+
+    /**
+     * Finds all nodes matching the given selector in a single window of the given UI snapshot.
+     * The instance attribute of the selector is ignored, since all the matches are returned.
+     * If the snapshot does not contain the window then its live tree is traversed instead.
+     *
+     * @param selector   the selector to match. Must be supported (see {@link #isSupported(UiSelector)})
+     * @param snapshot   the snapshot to search in
+     * @param windowRoot the root node of the window to search in
+     * @return The list of matched nodes in the document order
+     */
+    public static NodeInfoList findMatches(UiSelector selector, UiSnapshot snapshot,
+                                           AccessibilityNodeInfo windowRoot) {
+        final UiSelector matchingSelector = toMatchingSelector(selector);
+        final Set<AccessibilityNodeInfo> matches = new LinkedHashSet<>();
+        final UiAutomationElement window = snapshot.getElement(windowRoot);
+        // Window roots always have zero index in UiAutomator queries
+        if (window == null) {
+            collect(matchingSelector, windowRoot, 0, matches, Integer.MAX_VALUE);
+        } else {
+            collect(matchingSelector, window, 0, snapshot, matches);
+        }
+        return toNodeInfoList(matches);
+    }
+
+    /**
+     * Finds the node matching the given selector in the given UI snapshot.
+     * The instance attribute of the selector is respected.
+     *
+     * @param selector the selector to match. Must be supported (see {@link #isSupported(UiSelector)})
+     * @param snapshot the snapshot to search in
+     * @return The list containing the matched node or an empty list
+     */
+    public static NodeInfoList findMatch(UiSelector selector, UiSnapshot snapshot) {
+        return pickInstance(findMatches(selector, snapshot).getAll(), getInstance(selector));
+    }
+
+    /**
+     * Finds the node matching the given selector in a single window of the given UI snapshot.
+     * The instance attribute of the selector is respected and counted in that window only.
+     *
+     * @param selector   the selector to match. Must be supported (see {@link #isSupported(UiSelector)})
+     * @param snapshot   the snapshot to search in
+     * @param windowRoot the root node of the window to search in
+     * @return The list containing the matched node or an empty list
+     */
+    public static NodeInfoList findMatch(UiSelector selector, UiSnapshot snapshot,
+                                         AccessibilityNodeInfo windowRoot) {
+        return pickInstance(findMatches(selector, snapshot, windowRoot).getAll(), getInstance(selector));
+    }
+
+    /**
+     * Finds all descendants of the given node matching the given selector.
+     * The instance attribute of the selector is ignored, since all the matches are returned.
+     *
+     * @param selector the selector to match. Must be supported (see {@link #isSupported(UiSelector)})
+     * @param parent   the node whose descendants are going to be matched
+     * @return The list of matched nodes in the document order
+     */
+    public static NodeInfoList findChildMatches(UiSelector selector, AccessibilityNodeInfo parent) {
+        final Set<AccessibilityNodeInfo> matches = new LinkedHashSet<>();
+        collectChildren(toMatchingSelector(selector), parent, matches, Integer.MAX_VALUE);
+        return toNodeInfoList(matches);
+    }
+
+    /**
+     * Finds the descendant of the given node matching the given selector.
+     * The instance attribute of the selector is respected and counted among the
+     * descendants of the given node only. The traversal stops as soon as the requested
+     * instance is found.
+     *
+     * @param selector the selector to match. Must be supported (see {@link #isSupported(UiSelector)})
+     * @param parent   the node whose descendants are going to be matched
+     * @return The list containing the matched node or an empty list
+     */
+    public static NodeInfoList findFirstChildMatch(UiSelector selector, AccessibilityNodeInfo parent) {
+        final int instance = getInstance(selector);
+        final Set<AccessibilityNodeInfo> matches = new LinkedHashSet<>();
+        if (instance >= 0) {
+            collectChildren(toMatchingSelector(selector), parent, matches, instance + 1);
+        }
+        return pickInstance(matches, instance);
+    }
+
+    /**
+     * Finds the node matching the given selector in the given windows.
+     * The instance attribute of the selector is respected. Unlike
+     * {@link #findMatch(UiSelector, UiSnapshot)} the tree is traversed lazily
+     * and the traversal stops as soon as the requested instance is found.
+     *
+     * @param selector    the selector to match. Must be supported (see {@link #isSupported(UiSelector)})
+     * @param windowRoots the root nodes of windows to search in
+     * @return The list containing the matched node or an empty list
+     */
+    public static NodeInfoList findFirstMatch(UiSelector selector, AccessibilityNodeInfo[] windowRoots) {
+        final int instance = getInstance(selector);
+        final Set<AccessibilityNodeInfo> matches = new LinkedHashSet<>();
+        if (instance >= 0) {
+            final UiSelector matchingSelector = toMatchingSelector(selector);
+            for (AccessibilityNodeInfo windowRoot : windowRoots) {
+                // Window roots always have zero index in UiAutomator queries
+                if (collect(matchingSelector, windowRoot, 0, matches, instance + 1)) {
+                    break;
+                }
+            }
+        }
+        return pickInstance(matches, instance);
+    }
+
+    /**
+     * The only place where the instance attribute is applied to the collected matches.
+     */
+    private static NodeInfoList pickInstance(Iterable<AccessibilityNodeInfo> matches, int instance) {
+        final NodeInfoList result = new NodeInfoList();
+        int index = 0;
+        for (AccessibilityNodeInfo node : matches) {
+            if (index++ == instance) {
+                result.add(node);
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static NodeInfoList toNodeInfoList(Set<AccessibilityNodeInfo> matches) {
+        final NodeInfoList result = new NodeInfoList();
+        for (AccessibilityNodeInfo node : matches) {
+            result.add(node);
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the limit of matches has been reached and the traversal must be stopped
+     */
+    private static boolean collect(UiSelector selector, AccessibilityNodeInfo node, int index,
+                                   Set<AccessibilityNodeInfo> matches, int limit) {
+        LookupMetrics.onNodeVisited();
+        UiSelector subSelector = selector;
+        AccessibilityNodeInfo fromNode = node;
+        if ((Boolean) invoke(METHOD_IS_MATCH_FOR, selector, node, index)) {
+            if (call(METHOD_IS_LEAF, selector)) {
+                matches.add(node);
+                if (matches.size() >= limit) {
+                    return true;
+                }
+            }
+            if (call(METHOD_HAS_CHILD_SELECTOR, selector)) {
+                subSelector = (UiSelector) invoke(METHOD_GET_CHILD_SELECTOR, selector);
+            } else if (call(METHOD_HAS_PARENT_SELECTOR, selector)) {
+                subSelector = (UiSelector) invoke(METHOD_GET_PARENT_SELECTOR, selector);
+                fromNode = node.getParent();
+            }
+            if (subSelector == null || fromNode == null) {
+                return false;
+            }
+        }
+        return collectChildren(subSelector, fromNode, matches, limit);
+    }
+
+    private static void collect(UiSelector selector, UiAutomationElement element, int index,
+                                UiSnapshot snapshot, Set<AccessibilityNodeInfo> matches) {
+        UiSelector subSelector = selector;
+        UiAutomationElement fromElement = element;
+        final AccessibilityNodeInfo node = element.getNode();
+        if (node != null && (Boolean) invoke(METHOD_IS_MATCH_FOR, selector, node, index)) {
+            if (call(METHOD_IS_LEAF, selector)) {
+                matches.add(node);
+            }
+            if (call(METHOD_HAS_CHILD_SELECTOR, selector)) {
+                subSelector = (UiSelector) invoke(METHOD_GET_CHILD_SELECTOR, selector);
+            } else if (call(METHOD_HAS_PARENT_SELECTOR, selector)) {
+                subSelector = (UiSelector) invoke(METHOD_GET_PARENT_SELECTOR, selector);
+                fromElement = snapshot.getParent(element);
+            }
+            // Window roots have no parent nodes
+            if (subSelector == null || fromElement == null || fromElement.getNode() == null) {
+                return;
+            }
+        }
+        for (UiAutomationElement child : fromElement.getChildren()) {
+            if (Boolean.TRUE.equals(child.get(Attribute.DISPLAYED))) {
+                collect(subSelector, child, child.getIndex(), snapshot, matches);
+            }
+        }
+    }
+
+    private static boolean collectChildren(UiSelector selector, AccessibilityNodeInfo parent,
+                                           Set<AccessibilityNodeInfo> matches, int limit) {
+        final int childCount = parent.getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            final AccessibilityNodeInfo child = parent.getChild(i);
+            // Invisible nodes are skipped by UiAutomator's query controller as well
+            if (child == null || !child.isVisibleToUser()) {
+                continue;
+            }
+            if (collect(selector, child, i, matches, limit)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
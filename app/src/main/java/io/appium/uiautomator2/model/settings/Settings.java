@@ -20,15 +20,21 @@ import java.util.ArrayList;
 import java.util.List;
 
 public enum Settings {
+    ACCESSIBILITY_SCROLLING(new AccessibilityScrolling()),
     ACTION_ACKNOWLEDGMENT_TIMEOUT(new ActionAcknowledgmentTimeout()),
     ALLOW_INVISIBLE_ELEMENTS(new AllowInvisibleElements()),
+    BULK_NODES_PREFETCH(new BulkNodesPrefetch()),
     COMPRESSED_LAYOUT_HIERARCHY(new CompressedLayoutHierarchy()),
     ELEMENT_RESPONSE_ATTRIBUTES(new ElementResponseAttributes()),
+    ELEMENT_WAIT_POLL_INTERVAL(new ElementWaitPollInterval()),
+    ELEMENT_WAIT_TIMEOUT(new ElementWaitTimeout()),
     ENABLE_MULTI_WINDOWS(new EnableMultiWindows()),
     ENABLE_NOTIFICATION_LISTENER(new EnableNotificationListener()),
     KEY_INJECTION_DELAY(new KeyInjectionDelay()),
+    PARALLEL_WINDOWS_CAPTURE(new ParallelWindowsCapture()),
     SCROLL_ACKNOWLEDGMENT_TIMEOUT(new ScrollAcknowledgmentTimeout()),
     SHOULD_USE_COMPACT_RESPONSES(new ShouldUseCompactResponses()),
+    SPECULATIVE_SNAPSHOTS(new SpeculativeSnapshots()),
     WAIT_FOR_IDLE_TIMEOUT(new WaitForIdleTimeout()),
     WAIT_FOR_SELECTOR_TIMEOUT(new WaitForSelectorTimeout()),
     NORMALIZE_TAG_NAMES(new NormalizeTagNames()),
@@ -22,18 +22,25 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import androidx.annotation.Nullable;
+import io.appium.uiautomator2.core.SnapshotPrefetcher;
+import io.appium.uiautomator2.core.UiSnapshot;
 import io.appium.uiautomator2.handler.AcceptAlert;
+import io.appium.uiautomator2.handler.CancelAsyncActions;
 import io.appium.uiautomator2.handler.CaptureScreenshot;
 import io.appium.uiautomator2.handler.Clear;
 import io.appium.uiautomator2.handler.Click;
+import io.appium.uiautomator2.handler.DeleteActionsChain;
 import io.appium.uiautomator2.handler.DeleteSession;
 import io.appium.uiautomator2.handler.DismissAlert;
 import io.appium.uiautomator2.handler.Drag;
 import io.appium.uiautomator2.handler.FindElement;
+import io.appium.uiautomator2.handler.FindElementAndAct;
 import io.appium.uiautomator2.handler.FindElements;
 import io.appium.uiautomator2.handler.FirstVisibleView;
 import io.appium.uiautomator2.handler.Flick;
+import io.appium.uiautomator2.handler.GetAccessibilityEvents;
 import io.appium.uiautomator2.handler.GetAlertText;
+import io.appium.uiautomator2.handler.GetAsyncActionsStatus;
 import io.appium.uiautomator2.handler.GetBatteryInfo;
 import io.appium.uiautomator2.handler.GetClipboard;
 import io.appium.uiautomator2.handler.GetDeviceInfo;
@@ -41,6 +48,7 @@ import io.appium.uiautomator2.handler.GetDevicePixelRatio;
 import io.appium.uiautomator2.handler.GetDeviceSize;
 import io.appium.uiautomator2.handler.GetElementAttribute;
 import io.appium.uiautomator2.handler.GetElementScreenshot;
+import io.appium.uiautomator2.handler.GetLookupMetrics;
 import io.appium.uiautomator2.handler.GetName;
 import io.appium.uiautomator2.handler.GetRect;
 import io.appium.uiautomator2.handler.GetRotation;
@@ -49,6 +57,7 @@ import io.appium.uiautomator2.handler.GetSessionDetails;
 import io.appium.uiautomator2.handler.GetSessions;
 import io.appium.uiautomator2.handler.GetSettings;
 import io.appium.uiautomator2.handler.GetSize;
+import io.appium.uiautomator2.handler.GetSourceDiff;
 import io.appium.uiautomator2.handler.GetSystemBars;
 import io.appium.uiautomator2.handler.GetText;
 import io.appium.uiautomator2.handler.Location;
@@ -57,8 +66,11 @@ import io.appium.uiautomator2.handler.MultiPointerGesture;
 import io.appium.uiautomator2.handler.NetworkConnection;
 import io.appium.uiautomator2.handler.NewSession;
 import io.appium.uiautomator2.handler.OpenNotification;
+import io.appium.uiautomator2.handler.PerformActionsAsync;
+import io.appium.uiautomator2.handler.PerformActionsChain;
 import io.appium.uiautomator2.handler.PressBack;
 import io.appium.uiautomator2.handler.PressKeyCode;
+import io.appium.uiautomator2.handler.RegisterActionsChain;
 import io.appium.uiautomator2.handler.RotateScreen;
 import io.appium.uiautomator2.handler.ScrollTo;
 import io.appium.uiautomator2.handler.ScrollToElement;
@@ -73,6 +85,7 @@ import io.appium.uiautomator2.handler.TouchMove;
 import io.appium.uiautomator2.handler.TouchUp;
 import io.appium.uiautomator2.handler.UpdateSettings;
 import io.appium.uiautomator2.handler.W3CActions;
+import io.appium.uiautomator2.handler.WaitForAsyncActions;
 import io.appium.uiautomator2.handler.request.BaseRequestHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
@@ -107,6 +120,8 @@ public class AppiumServlet implements IHttpServlet {
 
     private void registerDeleteHandler() {
         register(deleteHandler, new DeleteSession("/wd/hub/session/:sessionId"));
+        register(deleteHandler, new DeleteActionsChain("/wd/hub/session/:sessionId/appium/actions/chains/:name"));
+        register(deleteHandler, new CancelAsyncActions("/wd/hub/session/:sessionId/appium/actions/async/:name"));
     }
 
     private void registerPostHandler() {
@@ -131,6 +146,11 @@ public class AppiumServlet implements IHttpServlet {
         register(postHandler, new ScrollTo("/wd/hub/session/:sessionId/touch/scroll"));
         register(postHandler, new MultiPointerGesture("/wd/hub/session/:sessionId/touch/multi/perform"));
         register(postHandler, new W3CActions("/wd/hub/session/:sessionId/actions"));
+        register(postHandler, new RegisterActionsChain("/wd/hub/session/:sessionId/appium/actions/chains/:name"));
+        register(postHandler, new PerformActionsChain("/wd/hub/session/:sessionId/appium/actions/chains/:name/perform"));
+        register(postHandler, new FindElementAndAct("/wd/hub/session/:sessionId/appium/element/find_and_act"));
+        register(postHandler, new PerformActionsAsync("/wd/hub/session/:sessionId/appium/actions/async"));
+        register(postHandler, new WaitForAsyncActions("/wd/hub/session/:sessionId/appium/actions/async/:name/wait"));
         register(postHandler, new TouchDown("/wd/hub/session/:sessionId/touch/down"));
         register(postHandler, new TouchUp("/wd/hub/session/:sessionId/touch/up"));
         register(postHandler, new TouchMove("/wd/hub/session/:sessionId/touch/move"));
@@ -162,6 +182,7 @@ public class AppiumServlet implements IHttpServlet {
         register(getHandler, new Location("/wd/hub/session/:sessionId/element/:id/location"));
         register(getHandler, new GetDeviceSize("/wd/hub/session/:sessionId/window/:windowHandle/size"));
         register(getHandler, new Source("/wd/hub/session/:sessionId/source"));
+        register(getHandler, new GetSourceDiff("/wd/hub/session/:sessionId/appium/source/diff"));
         register(getHandler, new GetSystemBars("/wd/hub/session/:sessionId/appium/device/system_bars"));
         register(getHandler, new GetBatteryInfo("/wd/hub/session/:sessionId/appium/device/battery_info"));
         register(getHandler, new GetSettings("/wd/hub/session/:sessionId/appium/settings"));
@@ -169,6 +190,9 @@ public class AppiumServlet implements IHttpServlet {
         register(getHandler, new FirstVisibleView("/wd/hub/session/:sessionId/appium/element/:id/first_visible"));
         register(getHandler, new GetAlertText("/wd/hub/session/:sessionId/alert/text"));
         register(getHandler, new GetDeviceInfo("/wd/hub/session/:sessionId/appium/device/info"));
+        register(getHandler, new GetAsyncActionsStatus("/wd/hub/session/:sessionId/appium/actions/async/:name"));
+        register(getHandler, new GetAccessibilityEvents("/wd/hub/session/:sessionId/appium/events"));
+        register(getHandler, new GetLookupMetrics("/wd/hub/session/:sessionId/appium/lookup_metrics"));
     }
 
     private void register(Map<String, BaseRequestHandler> registerOn, BaseRequestHandler handler) {
@@ -249,7 +273,15 @@ public class AppiumServlet implements IHttpServlet {
             return;
         }
         addHandlerAttributesToRequest(request, handler.getMappedUri());
-        AppiumResponse result = handler.handle(request);
+        AppiumResponse result;
+        try {
+            result = handler.handle(request);
+        } finally {
+            if (!"GET".equals(request.method()) && handler.mutatesUi(request)) {
+                UiSnapshot.invalidate();
+                SnapshotPrefetcher.schedule();
+            }
+        }
         handleResponse(response, result);
     }
 
@@ -31,7 +31,7 @@ import io.appium.uiautomator2.model.settings.Settings;
 
 public class AXWindowHelpers {
     private static final long AX_ROOT_RETRIEVAL_TIMEOUT = 10000;
-    private static AccessibilityNodeInfo[] cachedWindowRoots = null;
+    private static volatile AccessibilityNodeInfo[] cachedWindowRoots = null;
 
     /**
      * Clears the in-process Accessibility cache, removing any stale references. Because the
@@ -57,7 +57,20 @@ public class AXWindowHelpers {
         cachedWindowRoots = null;
     }
 
-    private static AccessibilityNodeInfo getActiveWindowRoot() {
+    /**
+     * Drops the cached window roots, so they are retrieved again on the next lookup.
+     * Unlike {@link #refreshAccessibilityCache()} this call never blocks.
+     */
+    public static void invalidateWindowRoots() {
+        cachedWindowRoots = null;
+    }
+
+    /**
+     * @return The root node of the active window. This is the only window UiAutomator's
+     * query controller looks for {@link androidx.test.uiautomator.UiObject} matches in,
+     * no matter if multi-window searches are enabled or not
+     */
+    public static AccessibilityNodeInfo getActiveWindowRoot() {
         long end = SystemClock.uptimeMillis() + AX_ROOT_RETRIEVAL_TIMEOUT;
         while (end > SystemClock.uptimeMillis()) {
             try {
@@ -98,7 +111,8 @@ public class AXWindowHelpers {
     }
 
     public static AccessibilityNodeInfo[] getCachedWindowRoots() {
-        if (cachedWindowRoots == null) {
+        AccessibilityNodeInfo[] windowRoots = cachedWindowRoots;
+        if (windowRoots == null) {
             // Multi-window searches are supported since API level 21
             boolean shouldRetrieveAllWindowRoots = CustomUiDevice.getInstance()
                     .getApiLevelActual() >= Build.VERSION_CODES.LOLLIPOP
@@ -109,10 +123,11 @@ public class AXWindowHelpers {
              * end users always rely on its output while writing their tests.
              * https://code.google.com/p/android/issues/detail?id=207569
              */
-            cachedWindowRoots = shouldRetrieveAllWindowRoots
+            windowRoots = shouldRetrieveAllWindowRoots
                     ? getWindowRoots()
                     : new AccessibilityNodeInfo[]{getActiveWindowRoot()};
+            cachedWindowRoots = windowRoots;
         }
-        return cachedWindowRoots;
+        return windowRoots;
     }
 }
@@ -12,6 +12,7 @@ import androidx.test.uiautomator.UiScrollable;
 import androidx.test.uiautomator.UiSelector;
 
 import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
+import io.appium.uiautomator2.core.AccessibilityScroller;
 import io.appium.uiautomator2.model.AndroidElement;
 import io.appium.uiautomator2.model.By;
 import io.appium.uiautomator2.model.UiObject2Element;
@@ -67,6 +68,14 @@ public abstract class Device {
         }
 
         try {
+            final Boolean isFoundByActions = AccessibilityScroller.tryScrollIntoView(uiScrollable,
+                    selector, uiScrollable.getMaxSearchSwipes());
+            if (isFoundByActions != null) {
+                if (!isFoundByActions) {
+                    throw new UiObjectNotFoundException("Cannot scroll to the element.");
+                }
+                return;
+            }
             if (!uiScrollable.scrollIntoView(selector)) {
                 throw new UiObjectNotFoundException("Cannot scroll to the element.");
             }
@@ -49,6 +49,7 @@ import io.appium.uiautomator2.core.AccessibilityNodeInfoGetter;
 import io.appium.uiautomator2.core.AccessibilityNodeInfoHelpers;
 import io.appium.uiautomator2.core.EventRegister;
 import io.appium.uiautomator2.core.ReturningRunnable;
+import io.appium.uiautomator2.core.ScrollExtentsCache;
 import io.appium.uiautomator2.core.UiObjectChildGenerator;
 import io.appium.uiautomator2.handler.GetRect;
 import io.appium.uiautomator2.model.AccessibilityScrollData;
@@ -245,10 +246,62 @@ public abstract class ElementHelpers {
         } catch (ReflectiveOperationException e) {
             throw new UiAutomator2Exception(e);
         }
-        contentSize.scrollableOffset = getScrollableOffset(element);
+        final Integer passiveScrollableOffset = getPassiveScrollableOffset(element);
+        contentSize.scrollableOffset = passiveScrollableOffset == null
+                ? getScrollableOffset(element)
+                : passiveScrollableOffset;
         return contentSize.toString();
     }
 
+    /**
+     * Calculates the scrollable offset from the data, which has already been reported
+     * by the view itself, without performing any gestures.
+     *
+     * @return the offset or null if the view does not expose enough information
+     */
+    @Nullable
+    private static Integer getPassiveScrollableOffset(AndroidElement uiScrollable) {
+        final AccessibilityNodeInfo nodeInfo;
+        try {
+            nodeInfo = AccessibilityNodeInfoGetter.fromUiObjectDefaultTimeout(uiScrollable.getUiObject());
+        } catch (UiAutomator2Exception e) {
+            return null;
+        }
+        if (nodeInfo == null) {
+            return null;
+        }
+
+        final ScrollExtentsCache cache = ScrollExtentsCache.getInstance();
+        final Integer cachedOffset = cache.getScrollableOffset(nodeInfo);
+        if (cachedOffset != null) {
+            Logger.debug("Got scrollableOffset of " + cachedOffset + " from the cache");
+            return cachedOffset;
+        }
+
+        Integer result = null;
+        final AccessibilityScrollData scrollData = cache.getScrollData(nodeInfo);
+        if (scrollData != null && scrollData.getMaxScrollY() != -1) {
+            result = scrollData.getMaxScrollY();
+        } else {
+            int itemCount = scrollData == null ? -1 : scrollData.getItemCount();
+            if (itemCount == -1) {
+                itemCount = ScrollExtentsCache.getCollectionItemsCount(nodeInfo);
+            }
+            if (itemCount != -1) {
+                result = getScrollableOffsetByItemCount(uiScrollable, itemCount);
+            } else {
+                final int rangeExtent = ScrollExtentsCache.getRangeExtent(nodeInfo);
+                if (rangeExtent != -1) {
+                    result = rangeExtent;
+                }
+            }
+        }
+        if (result != null) {
+            cache.putScrollableOffset(nodeInfo, result);
+        }
+        return result;
+    }
+
     private static Rect getElementBoundsInScreen(AndroidElement element) {
         return getElementBoundsInScreen(element.getUiObject());
     }
@@ -415,7 +468,7 @@ public abstract class ElementHelpers {
 
     private static boolean swipe(final int startX, final int startY, final int endX, final int endY) {
         Logger.debug(String.format("Swiping from [%s, %s] to [%s, %s]", startX, startY, endX, endY));
-        return EventRegister.runAndRegisterScrollEvents(new ReturningRunnable<Boolean>() {
+        return EventRegister.runAndWaitForScrollEvents(new ReturningRunnable<Boolean>() {
             @Override
             public void run() {
                 setResult(getUiDevice().swipe(startX, startY, endX, endY, MINI_SWIPE_STEPS));
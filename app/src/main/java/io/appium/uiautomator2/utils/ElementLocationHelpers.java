@@ -16,6 +16,10 @@
 
 package io.appium.uiautomator2.utils;
 
+import android.util.LruCache;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -30,6 +34,8 @@ import io.appium.uiautomator2.model.AppiumUIA2Driver;
 import io.appium.uiautomator2.model.By;
 
 import static io.appium.uiautomator2.core.AccessibilityNodeInfoGetter.fromUiObject;
+import static io.appium.uiautomator2.utils.ReflectionUtils.invoke;
+import static io.appium.uiautomator2.utils.ReflectionUtils.method;
 import static org.apache.commons.lang.StringUtils.isBlank;
 
 public class ElementLocationHelpers {
@@ -51,6 +57,13 @@ public class ElementLocationHelpers {
     private static final Pattern resourceIdRegex = Pattern
             .compile("^[a-zA-Z_][a-zA-Z0-9._]*:[^/]+/[\\S]+$");
 
+    private static final int PARSED_SELECTORS_CACHE_SIZE = 128;
+    // UiSelector instances get modified by lookups (instance counters, instance() calls),
+    // so the cache only keeps private copies and hands out copies of them
+    private static final LruCache<String, List<UiSelector>> parsedSelectorsCache =
+            new LruCache<>(PARSED_SELECTORS_CACHE_SIZE);
+    private static Method cloneSelectorMethod;
+
     @Nullable
     private static String getPackageName() {
         String pkg = AppiumUIA2Driver.getInstance()
@@ -93,8 +106,42 @@ public class ElementLocationHelpers {
         return selectors.isEmpty() ? null : selectors.get(0);
     }
 
+    /**
+     * Creates a deep copy of the given selector including its child and parent selectors.
+     *
+     * @param selector the selector to copy
+     * @return The copy, which could be modified without affecting the original selector
+     */
+    public static UiSelector copySelector(UiSelector selector) {
+        synchronized (ElementLocationHelpers.class) {
+            if (cloneSelectorMethod == null) {
+                cloneSelectorMethod = method(UiSelector.class, "cloneSelector");
+            }
+        }
+        return (UiSelector) invoke(cloneSelectorMethod, selector);
+    }
+
+    private static List<UiSelector> copySelectors(List<UiSelector> selectors) {
+        final List<UiSelector> result = new ArrayList<>(selectors.size());
+        for (UiSelector selector : selectors) {
+            result.add(copySelector(selector));
+        }
+        return result;
+    }
+
     public static List<UiSelector> toSelectors(String uiaExpression) throws UiSelectorSyntaxException,
             UiObjectNotFoundException {
-        return new UiAutomatorParser().parse(uiaExpression);
+        final List<UiSelector> cachedSelectors = parsedSelectorsCache.get(uiaExpression);
+        if (cachedSelectors != null) {
+            return copySelectors(cachedSelectors);
+        }
+        final UiAutomatorParser parser = new UiAutomatorParser();
+        final List<UiSelector> selectors = parser.parse(uiaExpression);
+        // UiScrollable statements scroll the container while being parsed,
+        // so their result cannot be reused
+        if (!parser.hasScrollables()) {
+            parsedSelectorsCache.put(uiaExpression, copySelectors(selectors));
+        }
+        return selectors;
     }
 }
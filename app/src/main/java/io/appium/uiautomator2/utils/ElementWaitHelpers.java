@@ -0,0 +1,114 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.utils;
+
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+import androidx.test.uiautomator.UiObjectNotFoundException;
+import io.appium.uiautomator2.common.exceptions.ElementNotFoundException;
+import io.appium.uiautomator2.core.UiChangesTracker;
+import io.appium.uiautomator2.model.NotificationListener;
+import io.appium.uiautomator2.model.settings.Settings;
+
+/**
+ * Server-side implicit wait for element lookups.
+ * <p>
+ * The lookup is only repeated after the accessibility events stream reports a window or content
+ * change, although never more often than the configured poll interval. If the notification
+ * listener is disabled then the lookup is simply repeated every poll interval.
+ */
+public class ElementWaitHelpers {
+
+    public interface Lookup<T> {
+        /**
+         * @return The lookup result or null if nothing has been found
+         */
+        @Nullable
+        T find() throws ClassNotFoundException, UiObjectNotFoundException;
+    }
+
+    /**
+     * Runs the lookup until it returns a result or the element wait timeout
+     * setting value expires.
+     *
+     * @param lookup the lookup to run
+     * @return The lookup result or null if nothing has been found in time
+     */
+    @Nullable
+    public static <T> T waitFor(Lookup<T> lookup) throws ClassNotFoundException,
+            UiObjectNotFoundException {
+        return waitFor(lookup,
+                (Long) Settings.ELEMENT_WAIT_TIMEOUT.getSetting().getValue(),
+                (Long) Settings.ELEMENT_WAIT_POLL_INTERVAL.getSetting().getValue());
+    }
+
+    @Nullable
+    public static <T> T waitFor(Lookup<T> lookup, long timeoutMs, long pollIntervalMs)
+            throws ClassNotFoundException, UiObjectNotFoundException {
+        if (timeoutMs <= 0) {
+            return findOrNull(lookup);
+        }
+
+        final UiChangesTracker uiChangesTracker = UiChangesTracker.getInstance();
+        final long deadline = SystemClock.uptimeMillis() + timeoutMs;
+        int attempt = 0;
+        while (true) {
+            final long attemptStart = SystemClock.uptimeMillis();
+            // Changes happening during the lookup must trigger the next attempt
+            final long generation = uiChangesTracker.getGeneration();
+            T result = null;
+            UiObjectNotFoundException lookupError = null;
+            try {
+                result = findOrNull(lookup);
+            } catch (UiObjectNotFoundException e) {
+                lookupError = e;
+            }
+            ++attempt;
+            long now = SystemClock.uptimeMillis();
+            if (result != null || now >= deadline) {
+                Logger.debug(String.format("The lookup has %s after %s attempt(s) in %sms",
+                        result == null ? "timed out" : "succeeded", attempt,
+                        now - deadline + timeoutMs));
+                if (result == null && lookupError != null) {
+                    throw lookupError;
+                }
+                return result;
+            }
+
+            final long pollDelayMs = Math.min(attemptStart + pollIntervalMs, deadline) - now;
+            if (pollDelayMs > 0) {
+                SystemClock.sleep(pollDelayMs);
+                now = SystemClock.uptimeMillis();
+            }
+            if (NotificationListener.getInstance().isListening() && now < deadline) {
+                uiChangesTracker.awaitChange(generation, deadline - now);
+            }
+        }
+    }
+
+    @Nullable
+    private static <T> T findOrNull(Lookup<T> lookup) throws ClassNotFoundException,
+            UiObjectNotFoundException {
+        try {
+            return lookup.find();
+        } catch (ElementNotFoundException e) {
+            return null;
+        }
+    }
+}
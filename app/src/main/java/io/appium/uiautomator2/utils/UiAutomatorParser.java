@@ -29,22 +29,26 @@ import io.appium.uiautomator2.common.exceptions.UiSelectorSyntaxException;
  */
 public class UiAutomatorParser {
 
-    private static final String STATEMENT_DELIMITER = ";";
+    private static final char STATEMENT_DELIMITER = ';';
     private final List<UiSelector> selectors = new ArrayList<>();
     private String text;
+    private int position;
+    private boolean hasScrollables;
 
     public List<UiSelector> parse(String textToParse) throws UiSelectorSyntaxException,
             UiObjectNotFoundException {
         selectors.clear();
+        hasScrollables = false;
         if (textToParse.isEmpty()) {
             throw new UiSelectorSyntaxException(textToParse, "Tried to parse an empty string. " +
                     "Expected to see a string consisting of text to be interpreted as " +
                     "UiAutomator java code.");
         }
         text = textToParse.trim();
+        position = 0;
         removeTailingSemicolon();
 
-        while (text.length() > 0) {
+        while (position < text.length()) {
             consumeStatement();
             consumeSemicolon();
         }
@@ -52,50 +56,61 @@ public class UiAutomatorParser {
         return selectors;
     }
 
+    /**
+     * @return true if the most recently parsed text contained UiScrollable statements.
+     * The result of such statements depends on the actual UI state, because the scrollable
+     * container is scrolled while the statement is being parsed.
+     */
+    public boolean hasScrollables() {
+        return hasScrollables;
+    }
+
     private void removeTailingSemicolon() {
-        if (text.endsWith(STATEMENT_DELIMITER)) {
+        if (!text.isEmpty() && text.charAt(text.length() - 1) == STATEMENT_DELIMITER) {
             text = text.substring(0, text.length() - 1);
         }
     }
 
     private void consumeSemicolon() {
-        if (text.startsWith(STATEMENT_DELIMITER)) {
-            text = text.substring(1);
+        if (position < text.length() && text.charAt(position) == STATEMENT_DELIMITER) {
+            position++;
         }
     }
 
     private void consumeStatement() throws UiSelectorSyntaxException, UiObjectNotFoundException {
-        text = text.trim();
-        String statement;
-        int index = 0;
+        while (position < text.length() && text.charAt(position) <= ' ') {
+            position++;
+        }
+        final int statementStart = position;
+        int index = statementStart;
         boolean isInsideStringLiteral = false;
         while (index < text.length()) {
             final char currentChar = text.charAt(index);
 
             if (currentChar == '"') {
                 /* Skip escaped quotes */
-                isInsideStringLiteral = !(isInsideStringLiteral && index > 0
+                isInsideStringLiteral = !(isInsideStringLiteral && index > statementStart
                         && text.charAt(index - 1) != '\\');
             }
 
-            if (STATEMENT_DELIMITER.equals(String.valueOf(text.charAt(index)))
-                    && !isInsideStringLiteral) {
+            if (currentChar == STATEMENT_DELIMITER && !isInsideStringLiteral) {
                 break;
             }
             index++;
         }
 
-        statement = text.substring(0, index).trim();
+        final String statement = text.substring(statementStart, index).trim();
         UiScrollableParser uiScrollableParser = createUiScrollableParser(statement);
         if (uiScrollableParser.isUiScrollable()) {
             Logger.debug("Parsing scrollable: " + statement);
+            hasScrollables = true;
             selectors.add(uiScrollableParser.parse());
         } else {
             Logger.debug("Parsing selector: " + statement);
             selectors.add(createUiSelectorParser(statement).parse());
         }
 
-        text = text.substring(index);
+        position = index;
     }
 
     public UiSelectorParser createUiSelectorParser(String statement) {
@@ -23,8 +23,13 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 import androidx.test.uiautomator.UiObjectNotFoundException;
 import androidx.test.uiautomator.UiSelector;
@@ -32,6 +37,11 @@ import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
 import io.appium.uiautomator2.common.exceptions.UiSelectorSyntaxException;
 
 abstract class UiExpressionParser<T, U> {
+    private static final Pattern BOOLEAN_PATTERN = Pattern.compile("^(true|false)$");
+    private static final Pattern STRING_PATTERN = Pattern.compile("^\"[\\s\\S]*\"$");
+    private static final Map<Class<?>, ReflectiveSignatures> SIGNATURES_CACHE =
+            new ConcurrentHashMap<>();
+
     protected final Class<T> clazz;
     protected final StringBuilderWrapper expression;
     private int currentIndex;
@@ -184,12 +194,7 @@ abstract class UiExpressionParser<T, U> {
 
     protected Pair<Method, List<Object>> findMethod(String methodName, List<String> arguments)
             throws UiSelectorSyntaxException, UiObjectNotFoundException {
-        final List<Method> candidates = new ArrayList<>();
-        for (final Method method : clazz.getDeclaredMethods()) {
-            if (method.getName().equals(methodName)) {
-                candidates.add(method);
-            }
-        }
+        final List<Pair<Method, Type[]>> candidates = getSignatures(clazz).getMethods(methodName);
 
         if (candidates.isEmpty()) {
             throw new UiSelectorSyntaxException(expression.toString(),
@@ -198,11 +203,10 @@ abstract class UiExpressionParser<T, U> {
         }
 
         UiSelectorSyntaxException exThrown = null;
-        for (final Method method : candidates) {
+        for (final Pair<Method, Type[]> method : candidates) {
             try {
-                final Type[] parameterTypes = method.getGenericParameterTypes();
-                final List<Object> args = coerceArgsToTypes(parameterTypes, arguments);
-                return new Pair<>(method, args);
+                final List<Object> args = coerceArgsToTypes(method.second, arguments);
+                return new Pair<>(method.first, args);
             } catch (UiSelectorSyntaxException e) {
                 exThrown = e;
             }
@@ -218,11 +222,10 @@ abstract class UiExpressionParser<T, U> {
     private Pair<Constructor, List<Object>> findConstructor(List<String> arguments) throws
             UiSelectorSyntaxException, UiObjectNotFoundException {
         UiSelectorSyntaxException exThrown = null;
-        for (final Constructor constructor : clazz.getConstructors()) {
+        for (final Pair<Constructor, Type[]> constructor : getSignatures(clazz).constructors) {
             try {
-                final Type[] parameterTypes = constructor.getGenericParameterTypes();
-                final List<Object> args = coerceArgsToTypes(parameterTypes, arguments);
-                return new Pair<>(constructor, args);
+                final List<Object> args = coerceArgsToTypes(constructor.second, arguments);
+                return new Pair<>(constructor.first, args);
             } catch (UiSelectorSyntaxException e) {
                 exThrown = e;
             }
@@ -270,7 +273,7 @@ abstract class UiExpressionParser<T, U> {
             UiObjectNotFoundException {
         Logger.debug(String.format("UiSelector coerce type:%s arg:%s", type, argument));
         if (type == boolean.class) {
-            if (argument.matches("^(true|false)$")) {
+            if (BOOLEAN_PATTERN.matcher(argument).matches()) {
                 return Boolean.valueOf(argument);
             }
             throw new UiSelectorSyntaxException(expression.toString(),
@@ -278,8 +281,8 @@ abstract class UiExpressionParser<T, U> {
         }
 
         if (type == String.class) {
-            if (argument.matches("^\"[\\s\\S]*\"$")) {
-                return argument.substring(1, argument.length() - 1).replaceAll("\\\\\"", "\"");
+            if (STRING_PATTERN.matcher(argument).matches()) {
+                return argument.substring(1, argument.length() - 1).replace("\\\"", "\"");
             }
             throw new UiSelectorSyntaxException(expression.toString(),
                     argument + " is not a string");
@@ -317,6 +320,45 @@ abstract class UiExpressionParser<T, U> {
     }
 
 
+    private static ReflectiveSignatures getSignatures(Class<?> clazz) {
+        ReflectiveSignatures result = SIGNATURES_CACHE.get(clazz);
+        if (result == null) {
+            result = new ReflectiveSignatures(clazz);
+            SIGNATURES_CACHE.put(clazz, result);
+        }
+        return result;
+    }
+
+    /**
+     * Public constructors and declared methods of a class together with their
+     * parameter types. Reflective lookups are relatively expensive, so they are
+     * only done once per class.
+     */
+    private static class ReflectiveSignatures {
+        final List<Pair<Constructor, Type[]>> constructors = new ArrayList<>();
+        final Map<String, List<Pair<Method, Type[]>>> methodsByName = new HashMap<>();
+
+        ReflectiveSignatures(Class<?> clazz) {
+            for (Constructor constructor : clazz.getConstructors()) {
+                constructors.add(new Pair<Constructor, Type[]>(constructor,
+                        constructor.getGenericParameterTypes()));
+            }
+            for (Method method : clazz.getDeclaredMethods()) {
+                List<Pair<Method, Type[]>> methods = methodsByName.get(method.getName());
+                if (methods == null) {
+                    methods = new ArrayList<>();
+                    methodsByName.put(method.getName(), methods);
+                }
+                methods.add(new Pair<>(method, method.getGenericParameterTypes()));
+            }
+        }
+
+        List<Pair<Method, Type[]>> getMethods(String name) {
+            List<Pair<Method, Type[]>> result = methodsByName.get(name);
+            return result == null ? Collections.<Pair<Method, Type[]>>emptyList() : result;
+        }
+    }
+
     protected T getTarget() {
         return target;
     }
@@ -49,8 +49,26 @@ public abstract class XMLHelpers {
 
     @Nullable
     public static String toSafeString(@Nullable Object source, String replacement) {
-        return source == null ? null : XML10_PATTERN
-                .matcher(String.valueOf(source))
-                .replaceAll(replacement);
+        if (source == null) {
+            return null;
+        }
+        final String str = String.valueOf(source);
+        // Most of the strings do not contain any illegal chars, so there is no need to run the regex
+        return isXml10Safe(str) ? str : XML10_PATTERN.matcher(str).replaceAll(replacement);
+    }
+
+    private static boolean isXml10Safe(String str) {
+        for (int i = 0; i < str.length(); ) {
+            final int codePoint = str.codePointAt(i);
+            final boolean isLegal = codePoint == 0x9 || codePoint == 0xA || codePoint == 0xD
+                    || (codePoint >= 0x20 && codePoint <= 0xD7FF)
+                    || (codePoint >= 0xE000 && codePoint <= 0xFFFD)
+                    || (codePoint >= 0x10000 && codePoint <= 0x10FFFF);
+            if (!isLegal) {
+                return false;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return true;
     }
 }
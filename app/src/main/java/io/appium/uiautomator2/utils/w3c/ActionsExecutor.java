@@ -17,15 +17,13 @@
 package io.appium.uiautomator2.utils.w3c;
 
 import android.os.SystemClock;
-import android.view.InputDevice;
+import android.util.Log;
 import android.view.KeyCharacterMap;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
@@ -33,49 +31,34 @@ import io.appium.uiautomator2.core.InteractionController;
 import io.appium.uiautomator2.core.UiAutomatorBridge;
 import io.appium.uiautomator2.utils.Logger;
 
-import static io.appium.uiautomator2.utils.w3c.ActionHelpers.normalizeSequence;
 import static io.appium.uiautomator2.utils.w3c.ActionsConstants.EVENT_INJECTION_DELAY_MS;
 
 public class ActionsExecutor {
     private final KeyCharacterMap keyCharacterMap;
-    private static final List<Integer> HOVERING_ACTIONS = Arrays.asList(
-            MotionEvent.ACTION_HOVER_ENTER, MotionEvent.ACTION_HOVER_EXIT, MotionEvent.ACTION_HOVER_MOVE
-    );
-    private final ActionTokens actionTokens;
+    private final ActionsSchedule schedule;
     private final InteractionController interactionController;
+    private volatile boolean isCancelled = false;
+    // Whether the most recent execution has been stopped before all the ticks were injected
+    private volatile boolean isInterrupted = false;
+    // Android key codes, which have been pressed, but not released yet
+    private final Set<Integer> pressedKeyCodes = new LinkedHashSet<>();
+    // The state of pointers after the most recent motion tick
+    private ActionsSchedule.MotionTick lastMotionTick = null;
+    private int activePointersCount = 0;
+    private long lastDownTime = 0;
 
     public ActionsExecutor(ActionTokens actionTokens) {
-        this.actionTokens = actionTokens;
-        this.keyCharacterMap = KeyCharacterMap.load(KeyCharacterMap.VIRTUAL_KEYBOARD);
-        this.interactionController = UiAutomatorBridge.getInstance().getInteractionController();
+        this(ActionsSchedule.compile(actionTokens));
     }
 
-    private static MotionEvent.PointerProperties[] filterPointerProperties(
-            final List<MotionInputEventParams> motionEventsParams, final boolean shouldHovering) {
-        final List<MotionEvent.PointerProperties> result = new ArrayList<>();
-        for (final MotionInputEventParams eventParams : motionEventsParams) {
-            if (shouldHovering && HOVERING_ACTIONS.contains(eventParams.actionCode)
-                    && eventParams.properties.toolType == MotionEvent.TOOL_TYPE_MOUSE) {
-                result.add(eventParams.properties);
-            } else if (!shouldHovering && !HOVERING_ACTIONS.contains(eventParams.actionCode)) {
-                result.add(eventParams.properties);
-            }
-        }
-        return result.toArray(new MotionEvent.PointerProperties[0]);
+    public ActionsExecutor(ActionsSchedule schedule) {
+        this(schedule, UiAutomatorBridge.getInstance().getInteractionController());
     }
 
-    private static MotionEvent.PointerCoords[] filterPointerCoordinates(
-            final List<MotionInputEventParams> motionEventsParams, final boolean shouldHovering) {
-        final List<MotionEvent.PointerCoords> result = new ArrayList<>();
-        for (final MotionInputEventParams eventParams : motionEventsParams) {
-            if (shouldHovering && HOVERING_ACTIONS.contains(eventParams.actionCode) &&
-                    eventParams.properties.toolType == MotionEvent.TOOL_TYPE_MOUSE) {
-                result.add(eventParams.coordinates);
-            } else if (!shouldHovering && !HOVERING_ACTIONS.contains(eventParams.actionCode)) {
-                result.add(eventParams.coordinates);
-            }
-        }
-        return result.toArray(new MotionEvent.PointerCoords[0]);
+    ActionsExecutor(ActionsSchedule schedule, InteractionController interactionController) {
+        this.schedule = schedule;
+        this.keyCharacterMap = KeyCharacterMap.load(KeyCharacterMap.VIRTUAL_KEYBOARD);
+        this.interactionController = interactionController;
     }
 
     private static int metaKeysToState(final Set<Integer> metaKeys) {
@@ -87,6 +70,10 @@ public class ActionsExecutor {
     }
 
     private static void logEvent(Object event, long eventTime, boolean result) {
+        // Do not format the (quite verbose) event description if it is not going to be logged
+        if (!Log.isLoggable(Logger.TAG, Log.DEBUG)) {
+            return;
+        }
         Logger.debug(String.format("[%s (%s)] Synthesized: %s", eventTime, result ? "success" : "fail", event.toString()));
     }
 
@@ -118,6 +105,7 @@ public class ActionsExecutor {
                             KeyCharacterMap.VIRTUAL_KEYBOARD, 0, 0);
                     result &= interactionController.injectEventSync(keyEvent, false);
                     logEvent(keyEvent, eventTime, result);
+                    trackPressedKey(keyAction, event.getKeyCode());
                 }
             }
             return result;
@@ -139,69 +127,53 @@ public class ActionsExecutor {
                 metaKeysToState(depressedMetaKeys), KeyCharacterMap.VIRTUAL_KEYBOARD, 0, 0);
         result = interactionController.injectEventSync(keyEvent, false);
         logEvent(keyEvent, eventTime, result);
+        trackPressedKey(keyAction, w3CKeyCode.getAndroidCodePoint());
         return result;
     }
 
-    private boolean executeKeyEvents(List<KeyInputEventParams> events, long startTimestamp,
-                                     Set<Integer> depressedMetaKeys) {
-        boolean result = true;
-        for (KeyInputEventParams event : events) {
-            result &= injectKeyEvent(event, startTimestamp, depressedMetaKeys);
+    private void trackPressedKey(int keyAction, int keyCode) {
+        if (keyAction == KeyEvent.ACTION_DOWN) {
+            pressedKeyCodes.add(keyCode);
+        } else {
+            pressedKeyCodes.remove(keyCode);
         }
-        return result;
     }
 
-    private static int toolTypeToInputSource(final int toolType) {
-        switch (toolType) {
-            case MotionEvent.TOOL_TYPE_MOUSE:
-                return InputDevice.SOURCE_MOUSE;
-            case MotionEvent.TOOL_TYPE_STYLUS:
-                return InputDevice.SOURCE_STYLUS;
-            case MotionEvent.TOOL_TYPE_FINGER:
-                return InputDevice.SOURCE_TOUCHSCREEN;
-            default:
-                return InputDevice.SOURCE_TOUCHSCREEN;
-        }
-    }
-
-    private static int extractInputSource(List<MotionInputEventParams> events) {
-        Set<Integer> result = new HashSet<>();
-        for (MotionInputEventParams event : events) {
-            result.add(toolTypeToInputSource(event.properties.toolType));
+    private void releasePressedKeys() {
+        for (int keyCode : pressedKeyCodes) {
+            final long eventTime = SystemClock.uptimeMillis();
+            final KeyEvent keyEvent = new KeyEvent(eventTime, eventTime, KeyEvent.ACTION_UP, keyCode, 0,
+                    0, KeyCharacterMap.VIRTUAL_KEYBOARD, 0, KeyEvent.FLAG_CANCELED);
+            logEvent(keyEvent, eventTime, interactionController.injectEventSync(keyEvent, false));
         }
-        return result.iterator().next();
+        pressedKeyCodes.clear();
     }
 
-    private static int getInitialPointersCount(List<MotionInputEventParams> events) {
-        final Set<Integer> uniquePointerIds = new HashSet<>();
-        for (MotionInputEventParams event : events) {
-            if (event.actionCode == MotionEvent.ACTION_MOVE || event.actionCode == MotionEvent.ACTION_UP) {
-                uniquePointerIds.add(event.properties.id);
-            }
-        }
-        for (MotionInputEventParams event : events) {
-            if (event.actionCode == MotionEvent.ACTION_DOWN) {
-                uniquePointerIds.remove(event.properties.id);
-            }
+    private boolean executeKeyEvents(KeyInputEventParams[] events, long startTimestamp,
+                                     Set<Integer> depressedMetaKeys) {
+        boolean result = true;
+        for (KeyInputEventParams event : events) {
+            result &= injectKeyEvent(event, startTimestamp, depressedMetaKeys);
         }
-        return uniquePointerIds.size();
+        return result;
     }
 
     private static int getPointerAction(int motionEvent, int index) {
         return motionEvent + (index << MotionEvent.ACTION_POINTER_INDEX_SHIFT);
     }
 
-    private boolean executeMotionEvents(List<MotionInputEventParams> events, long startTimestamp, Set<Integer> depressedMetaKeys) {
-        final MotionEvent.PointerProperties[] nonHoveringProps = filterPointerProperties(events, false);
-        final MotionEvent.PointerProperties[] hoveringProps = filterPointerProperties(events, true);
-        final MotionEvent.PointerCoords[] nonHoveringCoords = filterPointerCoordinates(events, false);
-        final MotionEvent.PointerCoords[] hoveringCoords = filterPointerCoordinates(events, true);
-        final int inputSource = extractInputSource(events);
+    private boolean executeMotionEvents(ActionsSchedule.MotionTick tick, long startTimestamp,
+                                        Set<Integer> depressedMetaKeys) {
+        final MotionEvent.PointerProperties[] nonHoveringProps = tick.nonHoveringProps;
+        final MotionEvent.PointerProperties[] hoveringProps = tick.hoveringProps;
+        final MotionEvent.PointerCoords[] nonHoveringCoords = tick.nonHoveringCoords;
+        final MotionEvent.PointerCoords[] hoveringCoords = tick.hoveringCoords;
+        final int inputSource = tick.inputSource;
         final int metaState = metaKeysToState(depressedMetaKeys);
-        int pointersCount = getInitialPointersCount(events);
+        int pointersCount = tick.initialPointersCount;
         boolean result = true;
         boolean isMoveActionTriggered = false;
-        for (final MotionInputEventParams event : normalizeSequence(events)) {
+        for (final MotionInputEventParams event : tick.events) {
             final int actionCode = event.actionCode;
             final long downTime = startTimestamp + event.startDelta;
             final long eventTime = SystemClock.uptimeMillis();
@@ -248,55 +220,127 @@ public class ActionsExecutor {
                     break;
             } // switch
             if (synthesizedEvent != null) {
-                result &= interactionController.injectEventSync(synthesizedEvent, false);
-                logEvent(synthesizedEvent, eventTime, result);
+                try {
+                    result &= interactionController.injectEventSync(synthesizedEvent, false);
+                    logEvent(synthesizedEvent, eventTime, result);
+                } finally {
+                    synthesizedEvent.recycle();
+                }
             }
+            lastDownTime = downTime;
         }
+        lastMotionTick = tick;
+        activePointersCount = pointersCount;
         return result;
     }
 
-    private static void sleepTillNextEvent(long nextEventTimestamp) {
-        final long currentTimestamp = SystemClock.uptimeMillis();
-        if (currentTimestamp < nextEventTimestamp) {
-            SystemClock.sleep(nextEventTimestamp - currentTimestamp);
+    private void cancelActivePointers() {
+        if (lastMotionTick == null) {
+            return;
+        }
+        final int pointersCount = Math.min(activePointersCount, lastMotionTick.nonHoveringProps.length);
+        if (pointersCount <= 0) {
+            return;
+        }
+        final MotionEvent cancelEvent = MotionEvent.obtain(lastDownTime, SystemClock.uptimeMillis(),
+                MotionEvent.ACTION_CANCEL, pointersCount,
+                lastMotionTick.nonHoveringProps, lastMotionTick.nonHoveringCoords,
+                0, 0, 1, 1, 0, 0, lastMotionTick.inputSource, 0);
+        try {
+            interactionController.injectEventSync(cancelEvent, false);
+        } finally {
+            cancelEvent.recycle();
+        }
+        activePointersCount = 0;
+    }
+
+    private void sleepTillNextEvent(long nextEventTimestamp) {
+        long currentTimestamp = SystemClock.uptimeMillis();
+        // Sleep in short slices, so the cancellation request is noticed in time
+        while (!isCancelled && currentTimestamp < nextEventTimestamp) {
+            SystemClock.sleep(Math.min(nextEventTimestamp - currentTimestamp, EVENT_INJECTION_DELAY_MS));
+            currentTimestamp = SystemClock.uptimeMillis();
         }
     }
 
+    /**
+     * Requests the currently running chain to stop as soon as possible.
+     * Pointers, which are still touching the screen, get released with
+     * {@link MotionEvent#ACTION_CANCEL} event.
+     */
+    public void cancel() {
+        isCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    /**
+     * @return true if the most recent execution has been cancelled before all the events
+     * were injected. Unlike {@link #isCancelled()} this is false if the cancellation
+     * has been requested after the last tick
+     */
+    public boolean isInterrupted() {
+        return isInterrupted;
+    }
+
     public boolean execute() {
-        if (actionTokens.isEmpty()) {
+        return execute(0, 0);
+    }
+
+    /**
+     * Replays the schedule with all pointer coordinates shifted by the given offset.
+     *
+     * @param offsetX horizontal offset in pixels
+     * @param offsetY vertical offset in pixels
+     * @return true if all the events have been successfully injected
+     */
+    public boolean execute(float offsetX, float offsetY) {
+        if (schedule.isEmpty()) {
             return true;
         }
 
+        // The whole chain is injected while holding the input lock, so other gestures
+        // cannot interleave with it. Replays of the same schedule share its coordinates arrays
+        synchronized (InteractionController.INPUT_GUARD) {
+            synchronized (schedule) {
+                schedule.setOffset(offsetX, offsetY);
+                return executeSchedule();
+            }
+        }
+    }
+
+    private boolean executeSchedule() {
+        lastMotionTick = null;
+        activePointersCount = 0;
+        isInterrupted = false;
+        pressedKeyCodes.clear();
         boolean result = true;
         final Set<Integer> depressedMetaKeys = new HashSet<>();
         final long startTimestamp = SystemClock.uptimeMillis();
-        final long maxDelta = actionTokens.maxTimeDelta();
+        final long maxDelta = schedule.maxTimeDelta();
         Logger.debug(String.format("Max actions chain time delta: %sms", maxDelta));
-        for (long currentDelta = 0; currentDelta <= maxDelta; currentDelta += EVENT_INJECTION_DELAY_MS) {
-            final List<InputEventParams> events = actionTokens.eventsAt(currentDelta);
-            if (events == null || events.isEmpty()) {
-                sleepTillNextEvent(startTimestamp + currentDelta + EVENT_INJECTION_DELAY_MS);
-                continue;
+        for (int i = 0; i < schedule.size(); ++i) {
+            final ActionsSchedule.Tick tick = schedule.tickAt(i);
+            sleepTillNextEvent(startTimestamp + tick.timeDelta);
+            if (isCancelled) {
+                Logger.info("The actions chain execution has been cancelled");
+                isInterrupted = true;
+                cancelActivePointers();
+                // Meta keys only exist in the state of the chain, so dropping it releases them
+                depressedMetaKeys.clear();
+                releasePressedKeys();
+                return false;
             }
-
-            final List<MotionInputEventParams> motionEvents = new ArrayList<>();
-            final List<KeyInputEventParams> keyEvents = new ArrayList<>();
-            for (final InputEventParams eventParam : events) {
-                if (eventParam instanceof KeyInputEventParams) {
-                    keyEvents.add((KeyInputEventParams) eventParam);
-                } else if (eventParam instanceof MotionInputEventParams) {
-                    motionEvents.add((MotionInputEventParams) eventParam);
-                }
+            if (tick.keyEvents.length > 0) {
+                result &= executeKeyEvents(tick.keyEvents, startTimestamp, depressedMetaKeys);
             }
-            if (!keyEvents.isEmpty()) {
-                result &= executeKeyEvents(keyEvents, startTimestamp, depressedMetaKeys);
+            if (tick.motion != null) {
+                result &= executeMotionEvents(tick.motion, startTimestamp, depressedMetaKeys);
             }
-            if (!motionEvents.isEmpty()) {
-                result &= executeMotionEvents(motionEvents, startTimestamp, depressedMetaKeys);
-            }
-
-            sleepTillNextEvent(startTimestamp + currentDelta + EVENT_INJECTION_DELAY_MS);
         }
+        sleepTillNextEvent(startTimestamp + maxDelta + EVENT_INJECTION_DELAY_MS);
         return result;
     }
 }
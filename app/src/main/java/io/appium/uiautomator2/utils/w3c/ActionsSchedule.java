@@ -0,0 +1,240 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.utils.w3c;
+
+import android.view.InputDevice;
+import android.view.MotionEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static io.appium.uiautomator2.utils.w3c.ActionHelpers.normalizeSequence;
+
+/**
+ * Compact, ready-to-inject representation of a tokenized actions chain.
+ * <p>
+ * All the per-tick work (splitting key and motion events, sequence normalization
+ * and building of pointer properties/coordinates arrays) is done once while the
+ * schedule is compiled, so the same chain could be replayed multiple times
+ * without going through the parsing and tokenization steps again.
+ * Pointer coordinates are private copies of the tokenized ones, which makes it possible
+ * to shift the whole chain by a constant offset before each replay.
+ */
+public class ActionsSchedule {
+    private static final List<Integer> HOVERING_ACTIONS = Arrays.asList(
+            MotionEvent.ACTION_HOVER_ENTER, MotionEvent.ACTION_HOVER_EXIT, MotionEvent.ACTION_HOVER_MOVE
+    );
+    private static final KeyInputEventParams[] NO_KEY_EVENTS = new KeyInputEventParams[0];
+
+    private final Tick[] ticks;
+    private final long maxTimeDelta;
+    private float offsetX = 0;
+    private float offsetY = 0;
+
+    private ActionsSchedule(Tick[] ticks, long maxTimeDelta) {
+        this.ticks = ticks;
+        this.maxTimeDelta = maxTimeDelta;
+    }
+
+    public static ActionsSchedule compile(ActionTokens actionTokens) {
+        final List<Tick> ticks = new ArrayList<>();
+        for (int i = 0; i < actionTokens.size(); ++i) {
+            final List<InputEventParams> events = actionTokens.eventsAtIndex(i);
+            if (events == null || events.isEmpty()) {
+                continue;
+            }
+
+            final List<MotionInputEventParams> motionEvents = new ArrayList<>();
+            final List<KeyInputEventParams> keyEvents = new ArrayList<>();
+            for (final InputEventParams eventParam : events) {
+                if (eventParam instanceof KeyInputEventParams) {
+                    keyEvents.add((KeyInputEventParams) eventParam);
+                } else if (eventParam instanceof MotionInputEventParams) {
+                    motionEvents.add((MotionInputEventParams) eventParam);
+                }
+            }
+            ticks.add(new Tick(actionTokens.timeDeltaAt(i),
+                    keyEvents.toArray(NO_KEY_EVENTS),
+                    motionEvents.isEmpty() ? null : new MotionTick(motionEvents)));
+        }
+        return new ActionsSchedule(ticks.toArray(new Tick[0]), actionTokens.maxTimeDelta());
+    }
+
+    /**
+     * @return true if the source chain contains no actions at all. Chains consisting
+     * only of pauses have no ticks, but they are not empty, since their duration
+     * must still be respected.
+     */
+    public boolean isEmpty() {
+        return maxTimeDelta < 0;
+    }
+
+    public int size() {
+        return ticks.length;
+    }
+
+    public long maxTimeDelta() {
+        return maxTimeDelta;
+    }
+
+    Tick tickAt(int index) {
+        return ticks[index];
+    }
+
+    /**
+     * Shifts all pointer coordinates of the schedule by the given offset
+     * relatively to their original (compiled) values.
+     *
+     * @param offsetX horizontal offset in pixels
+     * @param offsetY vertical offset in pixels
+     */
+    public void setOffset(float offsetX, float offsetY) {
+        if (this.offsetX == offsetX && this.offsetY == offsetY) {
+            return;
+        }
+        for (Tick tick : ticks) {
+            if (tick.motion != null) {
+                tick.motion.applyOffset(offsetX, offsetY);
+            }
+        }
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+    }
+
+    static class Tick {
+        final long timeDelta;
+        final KeyInputEventParams[] keyEvents;
+        final MotionTick motion;
+
+        Tick(long timeDelta, KeyInputEventParams[] keyEvents, MotionTick motion) {
+            this.timeDelta = timeDelta;
+            this.keyEvents = keyEvents;
+            this.motion = motion;
+        }
+    }
+
+    static class MotionTick {
+        final MotionInputEventParams[] events;
+        final int inputSource;
+        final int initialPointersCount;
+        final MotionEvent.PointerProperties[] nonHoveringProps;
+        final MotionEvent.PointerCoords[] nonHoveringCoords;
+        final MotionEvent.PointerProperties[] hoveringProps;
+        final MotionEvent.PointerCoords[] hoveringCoords;
+        private final float[] nonHoveringBase;
+        private final float[] hoveringBase;
+
+        MotionTick(List<MotionInputEventParams> motionEvents) {
+            this.events = normalizeSequence(motionEvents).toArray(new MotionInputEventParams[0]);
+            this.inputSource = extractInputSource(motionEvents);
+            this.initialPointersCount = getInitialPointersCount(motionEvents);
+
+            final List<MotionInputEventParams> nonHovering = new ArrayList<>();
+            final List<MotionInputEventParams> hovering = new ArrayList<>();
+            for (final MotionInputEventParams eventParams : motionEvents) {
+                if (!HOVERING_ACTIONS.contains(eventParams.actionCode)) {
+                    nonHovering.add(eventParams);
+                } else if (eventParams.properties.toolType == MotionEvent.TOOL_TYPE_MOUSE) {
+                    hovering.add(eventParams);
+                }
+            }
+            this.nonHoveringProps = toProperties(nonHovering);
+            this.nonHoveringCoords = toCoordinates(nonHovering);
+            this.nonHoveringBase = toBasePositions(nonHoveringCoords);
+            this.hoveringProps = toProperties(hovering);
+            this.hoveringCoords = toCoordinates(hovering);
+            this.hoveringBase = toBasePositions(hoveringCoords);
+        }
+
+        void applyOffset(float offsetX, float offsetY) {
+            shift(nonHoveringCoords, nonHoveringBase, offsetX, offsetY);
+            shift(hoveringCoords, hoveringBase, offsetX, offsetY);
+        }
+
+        private static void shift(MotionEvent.PointerCoords[] coords, float[] base,
+                                  float offsetX, float offsetY) {
+            for (int i = 0; i < coords.length; ++i) {
+                coords[i].x = base[2 * i] + offsetX;
+                coords[i].y = base[2 * i + 1] + offsetY;
+            }
+        }
+
+        private static MotionEvent.PointerProperties[] toProperties(List<MotionInputEventParams> events) {
+            final MotionEvent.PointerProperties[] result = new MotionEvent.PointerProperties[events.size()];
+            for (int i = 0; i < result.length; ++i) {
+                result[i] = events.get(i).properties;
+            }
+            return result;
+        }
+
+        private static MotionEvent.PointerCoords[] toCoordinates(List<MotionInputEventParams> events) {
+            final MotionEvent.PointerCoords[] result = new MotionEvent.PointerCoords[events.size()];
+            for (int i = 0; i < result.length; ++i) {
+                result[i] = new MotionEvent.PointerCoords(events.get(i).coordinates);
+            }
+            return result;
+        }
+
+        private static float[] toBasePositions(MotionEvent.PointerCoords[] coords) {
+            final float[] result = new float[2 * coords.length];
+            for (int i = 0; i < coords.length; ++i) {
+                result[2 * i] = coords[i].x;
+                result[2 * i + 1] = coords[i].y;
+            }
+            return result;
+        }
+
+        private static int toolTypeToInputSource(final int toolType) {
+            switch (toolType) {
+                case MotionEvent.TOOL_TYPE_MOUSE:
+                    return InputDevice.SOURCE_MOUSE;
+                case MotionEvent.TOOL_TYPE_STYLUS:
+                    return InputDevice.SOURCE_STYLUS;
+                case MotionEvent.TOOL_TYPE_FINGER:
+                    return InputDevice.SOURCE_TOUCHSCREEN;
+                default:
+                    return InputDevice.SOURCE_TOUCHSCREEN;
+            }
+        }
+
+        private static int extractInputSource(List<MotionInputEventParams> events) {
+            Set<Integer> result = new HashSet<>();
+            for (MotionInputEventParams event : events) {
+                result.add(toolTypeToInputSource(event.properties.toolType));
+            }
+            return result.iterator().next();
+        }
+
+        private static int getInitialPointersCount(List<MotionInputEventParams> events) {
+            final Set<Integer> uniquePointerIds = new HashSet<>();
+            for (MotionInputEventParams event : events) {
+                if (event.actionCode == MotionEvent.ACTION_MOVE || event.actionCode == MotionEvent.ACTION_UP) {
+                    uniquePointerIds.add(event.properties.id);
+                }
+            }
+            for (MotionInputEventParams event : events) {
+                if (event.actionCode == MotionEvent.ACTION_DOWN) {
+                    uniquePointerIds.remove(event.properties.id);
+                }
+            }
+            return uniquePointerIds.size();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.utils.w3c;
+
+import android.os.SystemClock;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.appium.uiautomator2.utils.Logger;
+
+/**
+ * The state of an actions chain, which is executed asynchronously by {@link AsyncActionsRunner}.
+ */
+public class AsyncActionsHandle {
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+        public boolean isFinal() {
+            return this != PENDING && this != RUNNING;
+        }
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final ActionsExecutor executor;
+    private final float offsetX;
+    private final float offsetY;
+    private final CountDownLatch completion = new CountDownLatch(1);
+    private final long createdAt = SystemClock.uptimeMillis();
+    private Status status = Status.PENDING;
+    private long startedAt = -1;
+    private long finishedAt = -1;
+    private String error = null;
+
+    AsyncActionsHandle(ActionsExecutor executor, float offsetX, float offsetY) {
+        this.executor = executor;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    void run() {
+        synchronized (this) {
+            if (status != Status.PENDING) {
+                return;
+            }
+            status = Status.RUNNING;
+            startedAt = SystemClock.uptimeMillis();
+        }
+        Status finalStatus;
+        String errorMessage = null;
+        try {
+            final boolean isSuccessful = executor.execute(offsetX, offsetY);
+            // A cancellation requested after the last tick does not affect the result
+            if (executor.isInterrupted()) {
+                finalStatus = Status.CANCELLED;
+            } else if (isSuccessful) {
+                finalStatus = Status.COMPLETED;
+            } else {
+                finalStatus = Status.FAILED;
+                errorMessage = "Unable to perform W3C actions. Check the logcat output " +
+                        "for possible error reports and make sure your input actions chain is valid.";
+            }
+        } catch (Throwable e) {
+            Logger.error(String.format("Asynchronous actions chain '%s' has failed", id), e);
+            finalStatus = Status.FAILED;
+            errorMessage = e.getMessage();
+        }
+        finish(finalStatus, errorMessage);
+    }
+
+    private void finish(Status finalStatus, String errorMessage) {
+        synchronized (this) {
+            status = finalStatus;
+            error = errorMessage;
+            finishedAt = SystemClock.uptimeMillis();
+        }
+        completion.countDown();
+    }
+
+    /**
+     * Requests the chain to be cancelled. A pending chain is dropped immediately,
+     * while a running one stops before its next scheduled tick.
+     */
+    public void cancel() {
+        synchronized (this) {
+            if (status.isFinal()) {
+                return;
+            }
+            if (status == Status.RUNNING) {
+                executor.cancel();
+                return;
+            }
+        }
+        finish(Status.CANCELLED, null);
+    }
+
+    /**
+     * Blocks until the chain is finished or the timeout expires.
+     *
+     * @param timeoutMs the maximum time to wait in milliseconds
+     * @return true if the chain has been finished
+     */
+    public boolean await(long timeoutMs) throws InterruptedException {
+        return completion.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized JSONObject toJSON() throws JSONException {
+        final JSONObject result = new JSONObject();
+        result.put("handle", id);
+        result.put("status", status.name().toLowerCase());
+        if (startedAt >= 0) {
+            result.put("queuedMs", startedAt - createdAt);
+        }
+        if (finishedAt >= 0 && startedAt >= 0) {
+            result.put("durationMs", finishedAt - startedAt);
+        }
+        if (error != null) {
+            result.put("error", error);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.utils.w3c;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Executes actions chains on a dedicated input thread, so HTTP requests
+ * do not have to wait until the whole chain is injected.
+ * Chains are executed one by one in the order they have been submitted.
+ */
+public class AsyncActionsRunner {
+    private static final int MAX_HANDLES = 32;
+    private static AsyncActionsRunner instance;
+
+    private final ExecutorService inputThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "appium-input");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final Map<String, AsyncActionsHandle> handles =
+            new LinkedHashMap<String, AsyncActionsHandle>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, AsyncActionsHandle> eldest) {
+                    return size() > MAX_HANDLES && eldest.getValue().getStatus().isFinal();
+                }
+            };
+
+    private AsyncActionsRunner() {
+    }
+
+    public static synchronized AsyncActionsRunner getInstance() {
+        if (instance == null) {
+            instance = new AsyncActionsRunner();
+        }
+        return instance;
+    }
+
+    public AsyncActionsHandle submit(ActionsExecutor executor, float offsetX, float offsetY) {
+        final AsyncActionsHandle handle = new AsyncActionsHandle(executor, offsetX, offsetY);
+        synchronized (handles) {
+            handles.put(handle.getId(), handle);
+        }
+        inputThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                handle.run();
+            }
+        });
+        return handle;
+    }
+
+    @Nullable
+    public AsyncActionsHandle getHandle(String id) {
+        synchronized (handles) {
+            return handles.get(id);
+        }
+    }
+
+    public void cancelAll() {
+        final List<AsyncActionsHandle> pendingHandles;
+        synchronized (handles) {
+            pendingHandles = new ArrayList<>(handles.values());
+            handles.clear();
+        }
+        for (AsyncActionsHandle handle : pendingHandles) {
+            handle.cancel();
+        }
+    }
+}
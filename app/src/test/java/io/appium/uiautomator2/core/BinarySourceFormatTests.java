@@ -0,0 +1,164 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.utils.Attribute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BinarySourceFormatTests {
+
+    private static class TestElement extends UiElement<Object, TestElement> {
+        private final Map<Attribute, Object> attributes = new LinkedHashMap<>();
+        private final List<TestElement> children = new ArrayList<>();
+
+        TestElement() {
+            super(null);
+        }
+
+        TestElement with(Attribute attribute, Object value) {
+            attributes.put(attribute, value);
+            return this;
+        }
+
+        TestElement withChildren(TestElement... children) {
+            this.children.addAll(Arrays.asList(children));
+            return this;
+        }
+
+        @Override
+        public List<TestElement> getChildren() {
+            return children;
+        }
+
+        @Override
+        protected Map<Attribute, Object> getAttributes() {
+            return attributes;
+        }
+    }
+
+    private static TestElement button(int index, String text) {
+        return new TestElement()
+                .with(Attribute.INDEX, index)
+                .with(Attribute.PACKAGE, "com.example")
+                .with(Attribute.CLASS, "android.widget.Button")
+                .with(Attribute.TEXT, text)
+                .with(Attribute.ORIGINAL_TEXT, text)
+                .with(Attribute.RESOURCE_ID, "com.example:id/button")
+                .with(Attribute.CLICKABLE, true)
+                .with(Attribute.ENABLED, true)
+                .with(Attribute.FOCUSED, false)
+                .with(Attribute.BOUNDS, String.format("[%s,100][1080,%s]", -index, 200 + index));
+    }
+
+    @Test
+    public void shouldRoundTripTree() {
+        TestElement root = new TestElement()
+                .with(Attribute.INDEX, 0)
+                .with(Attribute.CLASS, "hierarchy")
+                .withChildren(new TestElement()
+                        .with(Attribute.INDEX, 0)
+                        .with(Attribute.CLASS, "android.widget.FrameLayout")
+                        .with(Attribute.SCROLLABLE, true)
+                        .withChildren(button(0, "OK"), button(1, "\u041e\u0442\u043c\u0435\u043d\u0430 \ud83d\ude00")));
+
+        BinarySourceDecoder.Source source = BinarySourceDecoder.decode(
+                new BinarySourceEncoder(70).encode(root, 1, 1080, 1920));
+
+        assertEquals(1, source.getRotation());
+        assertEquals(1080, source.getWidth());
+        assertEquals(1920, source.getHeight());
+        BinarySourceDecoder.Node decodedRoot = source.getRoot();
+        assertEquals("hierarchy", decodedRoot.getClassName());
+        assertEquals(1, decodedRoot.getChildren().size());
+        BinarySourceDecoder.Node layout = decodedRoot.getChildren().get(0);
+        assertEquals(true, layout.getAttribute("scrollable"));
+        assertEquals(2, layout.getChildren().size());
+
+        BinarySourceDecoder.Node second = layout.getChildren().get(1);
+        assertEquals(1L, second.getAttribute("index"));
+        assertEquals("com.example", second.getAttribute("package"));
+        assertEquals("android.widget.Button", second.getClassName());
+        assertEquals("\u041e\u0442\u043c\u0435\u043d\u0430 \ud83d\ude00", second.getAttribute("text"));
+        assertEquals("com.example:id/button", second.getAttribute("resource-id"));
+        assertEquals(true, second.getAttribute("clickable"));
+        assertEquals(false, second.getAttribute("focused"));
+        assertEquals("[-1,100][1080,201]", second.getAttribute("bounds"));
+        // The same attributes as in the XML source are encoded
+        assertFalse(second.getAttributes().containsKey("original-text"));
+        assertNull(second.getAttribute("checked"));
+        assertTrue(second.getChildren().isEmpty());
+    }
+
+    @Test
+    public void shouldRespectMaxDepth() {
+        TestElement root = new TestElement()
+                .with(Attribute.CLASS, "hierarchy")
+                .withChildren(new TestElement()
+                        .with(Attribute.CLASS, "android.widget.FrameLayout")
+                        .withChildren(button(0, "OK")));
+
+        BinarySourceDecoder.Source source = BinarySourceDecoder.decode(
+                new BinarySourceEncoder(1).encode(root, -1, -1, -1));
+
+        assertEquals(-1, source.getRotation());
+        assertEquals(1, source.getRoot().getChildren().size());
+        assertTrue(source.getRoot().getChildren().get(0).getChildren().isEmpty());
+    }
+
+    @Test
+    public void shouldInternRepeatedStrings() {
+        List<TestElement> buttons = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            buttons.add(button(i, "OK"));
+        }
+        TestElement root = new TestElement()
+                .with(Attribute.CLASS, "hierarchy")
+                .withChildren(buttons.toArray(new TestElement[0]));
+
+        byte[] encoded = new BinarySourceEncoder(70).encode(root, 0, 1080, 1920);
+
+        // Each button only takes a few bytes for masks, string indexes and bounds
+        assertTrue(encoded.length < 100 * 20);
+        assertEquals(100, BinarySourceDecoder.decode(encoded).getRoot().getChildren().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidData() {
+        BinarySourceDecoder.decode("<hierarchy/>".getBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTruncatedData() {
+        TestElement root = new TestElement().with(Attribute.CLASS, "hierarchy");
+        byte[] encoded = new BinarySourceEncoder(70).encode(root, 0, 1080, 1920);
+        BinarySourceDecoder.decode(Arrays.copyOf(encoded, encoded.length - 1));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.utils.Attribute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JsonSourceWriterTests {
+
+    private static class TestElement extends UiElement<Object, TestElement> {
+        private final Map<Attribute, Object> attributes = new LinkedHashMap<>();
+        private final List<TestElement> children = new ArrayList<>();
+
+        TestElement() {
+            super(null);
+        }
+
+        TestElement with(Attribute attribute, Object value) {
+            attributes.put(attribute, value);
+            return this;
+        }
+
+        TestElement withChildren(TestElement... children) {
+            this.children.addAll(Arrays.asList(children));
+            return this;
+        }
+
+        @Override
+        public List<TestElement> getChildren() {
+            return children;
+        }
+
+        @Override
+        protected Map<Attribute, Object> getAttributes() {
+            return attributes;
+        }
+    }
+
+    private static TestElement createTree() {
+        return new TestElement()
+                .with(Attribute.INDEX, 0)
+                .with(Attribute.CLASS, "hierarchy")
+                .withChildren(new TestElement()
+                        .with(Attribute.INDEX, 0)
+                        .with(Attribute.CLASS, "android.widget.FrameLayout")
+                        .with(Attribute.SCROLLABLE, true)
+                        .withChildren(new TestElement()
+                                .with(Attribute.INDEX, 0)
+                                .with(Attribute.CLASS, "android.widget.Button")
+                                .with(Attribute.TEXT, "\"OK\"\n")
+                                .with(Attribute.ORIGINAL_TEXT, "\"OK\"\n")
+                                .with(Attribute.RESOURCE_ID, "com.example:id/button")
+                                .with(Attribute.BOUNDS, "[0,100][1080,200]")));
+    }
+
+    private static JSONObject write(JsonSourceWriter writer) throws IOException, JSONException {
+        StringWriter result = new StringWriter();
+        writer.writeTo(result);
+        return new JSONObject(result.toString());
+    }
+
+    @Test
+    public void shouldWriteWholeTree() throws Exception {
+        JSONObject root = write(new JsonSourceWriter(createTree(), null, 70)
+                .withDisplayInfo(1, 1080, 1920));
+
+        assertEquals("hierarchy", root.getString("class"));
+        assertEquals(1, root.getInt("rotation"));
+        assertEquals(1920, root.getInt("height"));
+        JSONObject layout = root.getJSONArray("children").getJSONObject(0);
+        assertTrue(layout.getBoolean("scrollable"));
+        JSONObject button = layout.getJSONArray("children").getJSONObject(0);
+        assertEquals(0, button.getInt("index"));
+        assertEquals("\"OK\"\n", button.getString("text"));
+        assertEquals("[0,100][1080,200]", button.getString("bounds"));
+        // The same attributes as in the XML source are written
+        assertFalse(button.has("original-text"));
+        assertEquals(0, button.getJSONArray("children").length());
+        assertFalse(layout.has("rotation"));
+    }
+
+    @Test
+    public void shouldOnlyWriteProjectedAttributes() throws Exception {
+        JSONObject root = write(new JsonSourceWriter(createTree(),
+                EnumSet.of(Attribute.CLASS, Attribute.BOUNDS), 70));
+
+        JSONObject button = root.getJSONArray("children").getJSONObject(0)
+                .getJSONArray("children").getJSONObject(0);
+        assertEquals(3, button.length());
+        assertEquals("android.widget.Button", button.getString("class"));
+        assertEquals("[0,100][1080,200]", button.getString("bounds"));
+        assertFalse(root.has("rotation"));
+    }
+
+    @Test
+    public void shouldRespectMaxDepth() throws Exception {
+        JSONObject root = write(new JsonSourceWriter(createTree(), null, 1));
+
+        JSONArray children = root.getJSONArray("children");
+        assertEquals(1, children.length());
+        assertFalse(children.getJSONObject(0).has("children"));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LookupMetricsTests {
+
+    @Before
+    public void setUp() {
+        LookupMetrics.reset();
+    }
+
+    @Test
+    public void shouldCountNodesVisitedDuringLookup() {
+        LookupMetrics.beginLookup();
+        LookupMetrics.onNodeVisited();
+        LookupMetrics.onNodeVisited();
+        assertEquals(2, LookupMetrics.endLookup("id", "foo"));
+    }
+
+    @Test
+    public void shouldIgnoreNodesVisitedOutsideOfLookups() {
+        LookupMetrics.onNodeVisited();
+        assertEquals(0, LookupMetrics.endLookup("id", "foo"));
+        LookupMetrics.beginLookup();
+        assertEquals(0, LookupMetrics.endLookup("id", "foo"));
+        LookupMetrics.onNodeVisited();
+        assertEquals(0, LookupMetrics.endLookup("id", "foo"));
+    }
+
+    @Test
+    public void shouldAccumulateTotals() throws JSONException {
+        LookupMetrics.beginLookup();
+        LookupMetrics.onNodeVisited();
+        LookupMetrics.endLookup("id", "foo");
+        LookupMetrics.beginLookup();
+        LookupMetrics.onNodeVisited();
+        LookupMetrics.onNodeVisited();
+        LookupMetrics.endLookup("xpath", "//*");
+
+        JSONObject metrics = LookupMetrics.toJSON();
+        assertEquals(2, metrics.getLong("lookups"));
+        assertEquals(3, metrics.getLong("nodesVisited"));
+        JSONObject lastLookup = metrics.getJSONObject("lastLookup");
+        assertEquals("xpath", lastLookup.getString("strategy"));
+        assertEquals("//*", lastLookup.getString("selector"));
+        assertEquals(2, lastLookup.getLong("nodesVisited"));
+    }
+
+    @Test
+    public void shouldCountUiObjectResolutions() throws JSONException {
+        LookupMetrics.beginLookup();
+        LookupMetrics.onNodeVisited();
+        LookupMetrics.onUiObjectResolution();
+        assertEquals(1, LookupMetrics.endLookup("-android uiautomator", "new UiSelector()"));
+        LookupMetrics.onUiObjectResolution();
+
+        JSONObject metrics = LookupMetrics.toJSON();
+        assertEquals(1, metrics.getLong("uiObjectResolutions"));
+        assertEquals(1, metrics.getJSONObject("lastLookup").getLong("uiObjectResolutions"));
+    }
+
+    @Test
+    public void shouldHaveNoLastLookupAfterReset() throws JSONException {
+        LookupMetrics.beginLookup();
+        LookupMetrics.endLookup("id", "foo");
+        LookupMetrics.reset();
+        assertTrue(LookupMetrics.toJSON().isNull("lastLookup"));
+    }
+
+    @Test
+    public void shouldStoreLastSnapshotDetails() throws JSONException {
+        assertTrue(LookupMetrics.toJSON().isNull("lastSnapshot"));
+        LookupMetrics.onSnapshotTaken(10, 3, 5);
+        LookupMetrics.onSnapshotTaken(20, -1, 7);
+
+        JSONObject metrics = LookupMetrics.toJSON();
+        assertEquals(2, metrics.getLong("snapshots"));
+        JSONObject lastSnapshot = metrics.getJSONObject("lastSnapshot");
+        assertEquals(20, lastSnapshot.getLong("elements"));
+        assertTrue(lastSnapshot.isNull("ipcCalls"));
+        assertEquals(7, lastSnapshot.getLong("duration"));
+    }
+
+    @Test
+    public void shouldCountSpeculativeSnapshots() throws JSONException {
+        LookupMetrics.onSpeculativeSnapshotTaken();
+        LookupMetrics.onSpeculativeSnapshotTaken();
+        LookupMetrics.onSpeculativeSnapshotHit();
+        LookupMetrics.onSpeculativeSnapshotWasted();
+
+        JSONObject speculativeSnapshots = LookupMetrics.toJSON().getJSONObject("speculativeSnapshots");
+        assertEquals(2, speculativeSnapshots.getLong("taken"));
+        assertEquals(1, speculativeSnapshots.getLong("hits"));
+        assertEquals(1, speculativeSnapshots.getLong("wasted"));
+    }
+}
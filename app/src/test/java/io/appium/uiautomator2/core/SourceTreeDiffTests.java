@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.utils.Attribute;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SourceTreeDiffTests {
+
+    private static class TestElement extends UiElement<Object, TestElement> {
+        private final Map<Attribute, Object> attributes = new LinkedHashMap<>();
+        private final List<TestElement> children = new ArrayList<>();
+
+        TestElement(String className) {
+            this(className, null);
+        }
+
+        TestElement(String className, AccessibilityNodeInfo node) {
+            super(node);
+            attributes.put(Attribute.CLASS, className);
+        }
+
+        TestElement with(Attribute attribute, Object value) {
+            attributes.put(attribute, value);
+            return this;
+        }
+
+        TestElement withChildren(TestElement... children) {
+            this.children.addAll(Arrays.asList(children));
+            return this;
+        }
+
+        @Override
+        public List<TestElement> getChildren() {
+            return children;
+        }
+
+        @Override
+        protected Map<Attribute, Object> getAttributes() {
+            return attributes;
+        }
+    }
+
+    private static TestElement button(String text) {
+        return new TestElement("android.widget.Button")
+                .with(Attribute.TEXT, text)
+                .with(Attribute.ENABLED, true);
+    }
+
+    private static SourceTree capture(TestElement... buttons) {
+        return SourceTree.capture(new TestElement("hierarchy")
+                .withChildren(new TestElement("android.widget.FrameLayout")
+                        .withChildren(new TestElement("android.widget.LinearLayout")
+                                .withChildren(buttons))));
+    }
+
+    @Test
+    public void shouldReportWholeTreeAsBaseline() {
+        SourceTreeDiff diff = SourceTreeDiff.compute(null, capture(button("OK")));
+
+        assertTrue(diff.isBaseline());
+        assertEquals(1, diff.getInserted().size());
+        assertEquals("hierarchy", diff.getInserted().get(0).getId());
+        assertEquals(4, diff.getInserted().get(0).getSubtreeSize());
+    }
+
+    @Test
+    public void shouldSerializeInsertedSubtreesRecursively() throws Exception {
+        JSONObject json = SourceTreeDiff.compute(null, capture(button("OK"))).toJSON();
+
+        JSONObject root = json.getJSONArray("inserted").getJSONObject(0);
+        assertEquals(4, root.getInt("subtreeSize"));
+        JSONObject button = root.getJSONArray("children").getJSONObject(0)
+                .getJSONArray("children").getJSONObject(0)
+                .getJSONArray("children").getJSONObject(0);
+        assertEquals("OK", button.getJSONObject("attributes").getString("text"));
+        assertTrue(button.getString("id").endsWith("android.widget.Button[1]"));
+        assertEquals(0, button.getJSONArray("children").length());
+    }
+
+    @Test
+    public void shouldAssignUniqueIdsToNodesWithoutWindowIds() {
+        AccessibilityNodeInfo toastNode = mock(AccessibilityNodeInfo.class);
+        when(toastNode.getWindowId()).thenReturn(-1);
+        SourceTree tree = SourceTree.capture(new TestElement("hierarchy").withChildren(
+                new TestElement("android.widget.Toast", toastNode).with(Attribute.TEXT, "first"),
+                new TestElement("android.widget.Toast", toastNode).with(Attribute.TEXT, "second")));
+
+        List<SourceTree.Node> windows = tree.getRoot().getChildren();
+        assertEquals("android.widget.Toast[1]", windows.get(0).getId());
+        assertEquals("android.widget.Toast[2]", windows.get(1).getId());
+        SourceTreeDiff diff = SourceTreeDiff.compute(null, tree);
+        assertEquals(3, diff.getInserted().get(0).getSubtreeSize());
+    }
+
+    @Test
+    public void shouldSkipUnchangedTree() {
+        SourceTreeDiff diff = SourceTreeDiff.compute(capture(button("OK")), capture(button("OK")));
+
+        assertFalse(diff.isBaseline());
+        assertTrue(diff.isEmpty());
+        assertEquals(1, diff.getSkippedSubtrees());
+    }
+
+    @Test
+    public void shouldReportChangedAttributes() {
+        SourceTreeDiff diff = SourceTreeDiff.compute(
+                capture(button("OK"), button("Cancel")),
+                capture(button("OK"), button("Close")));
+
+        assertEquals(1, diff.getChanged().size());
+        SourceTreeDiff.Change change = diff.getChanged().get(0);
+        assertEquals("android.widget.FrameLayout[1]/android.widget.LinearLayout[1]/android.widget.Button[2]",
+                change.getId());
+        assertEquals(1, change.getDeltas().size());
+        assertArrayEquals(new Object[]{"Cancel", "Close"}, change.getDeltas().get("text"));
+        // The first button is not visited
+        assertEquals(1, diff.getSkippedSubtrees());
+    }
+
+    @Test
+    public void shouldReportInsertedAndRemovedNodes() throws Exception {
+        SourceTreeDiff diff = SourceTreeDiff.compute(
+                capture(button("OK"), button("Cancel")),
+                capture(button("OK")));
+
+        assertTrue(diff.getInserted().isEmpty());
+        assertEquals(1, diff.getRemoved().size());
+        assertTrue(diff.getRemoved().get(0).getId().endsWith("android.widget.Button[2]"));
+
+        diff = SourceTreeDiff.compute(capture(button("OK")), capture(button("OK"), button("Cancel")));
+        assertEquals(1, diff.getInserted().size());
+        JSONObject json = diff.toJSON();
+        assertEquals("Cancel", json.getJSONArray("inserted").getJSONObject(0)
+                .getJSONObject("attributes").getString("text"));
+        assertEquals(0, json.getJSONArray("removed").length());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.core;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import io.appium.uiautomator2.utils.Attribute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class XPathQueryPlanTests {
+
+    @Test
+    public void shouldPlanAttributeEquality() {
+        XPathQueryPlan plan = XPathQueryPlan.compile("//*[@resource-id='com.example:id/button']");
+        assertNotNull(plan);
+        assertEquals("*", plan.getTagName());
+        assertEquals(Attribute.RESOURCE_ID, plan.getAttribute());
+        assertEquals(XPathQueryPlan.Operator.EQUALS, plan.getOperator());
+        assertEquals("com.example:id/button", plan.getValue());
+    }
+
+    @Test
+    public void shouldPlanTagWithDoubleQuotedValue() {
+        XPathQueryPlan plan = XPathQueryPlan.compile("//android.widget.TextView[ @text = \"Don't\" ]");
+        assertNotNull(plan);
+        assertEquals("android.widget.TextView", plan.getTagName());
+        assertEquals(Attribute.TEXT, plan.getAttribute());
+        assertEquals("Don't", plan.getValue());
+    }
+
+    @Test
+    public void shouldPlanStringFunctions() {
+        XPathQueryPlan plan = XPathQueryPlan.compile("//*[contains(@content-desc, 'Menu')]");
+        assertNotNull(plan);
+        assertEquals(Attribute.CONTENT_DESC, plan.getAttribute());
+        assertEquals(XPathQueryPlan.Operator.CONTAINS, plan.getOperator());
+        assertEquals("Menu", plan.getValue());
+
+        plan = XPathQueryPlan.compile("//android.widget.Button[starts-with(@text,'OK')]");
+        assertNotNull(plan);
+        assertEquals(XPathQueryPlan.Operator.STARTS_WITH, plan.getOperator());
+    }
+
+    @Test
+    public void shouldPlanPlainTag() {
+        XPathQueryPlan plan = XPathQueryPlan.compile("//android.widget.EditText");
+        assertNotNull(plan);
+        assertEquals("android.widget.EditText", plan.getTagName());
+        assertNull(plan.getAttribute());
+    }
+
+    @Test
+    public void shouldTreatMissingAttributesAsEmptyStringsInStringFunctions() {
+        // Content description is not set
+        AccessibilityNodeInfo node = AccessibilityNodeInfo.obtain();
+        assertTrue(XPathQueryPlan.compile("//*[contains(@content-desc, '')]").matches(node, 0));
+        assertTrue(XPathQueryPlan.compile("//*[starts-with(@content-desc, '')]").matches(node, 0));
+        assertFalse(XPathQueryPlan.compile("//*[contains(@content-desc, 'Menu')]").matches(node, 0));
+        assertFalse(XPathQueryPlan.compile("//*[@content-desc='']").matches(node, 0));
+    }
+
+    @Test
+    public void shouldNotPlanOtherExpressions() {
+        assertNull(XPathQueryPlan.compile("//*[@text='a']/.."));
+        assertNull(XPathQueryPlan.compile("(//*[@text='a'])[2]"));
+        assertNull(XPathQueryPlan.compile("//*[@text='a' and @enabled='true']"));
+        assertNull(XPathQueryPlan.compile("/hierarchy/*[@text='a']"));
+        assertNull(XPathQueryPlan.compile("//*[@width='1080']"));
+        assertNull(XPathQueryPlan.compile("//*[@original-text='a']"));
+        assertNull(XPathQueryPlan.compile("//*[@text='a'"));
+    }
+}
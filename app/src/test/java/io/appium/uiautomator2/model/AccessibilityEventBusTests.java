@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.model;
+
+import android.view.accessibility.AccessibilityEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+public class AccessibilityEventBusTests {
+    private static final int BUFFER_CAPACITY = 2048;
+
+    private AccessibilityEventBus eventBus;
+
+    @Before
+    public void setup() {
+        eventBus = new AccessibilityEventBus();
+    }
+
+    private static AccessibilityEvent mockEvent(int eventType, CharSequence... text) {
+        AccessibilityEvent event = mock(AccessibilityEvent.class);
+        when(event.getEventType()).thenReturn(eventType);
+        List<CharSequence> eventText = new ArrayList<>();
+        for (CharSequence item : text) {
+            eventText.add(item);
+        }
+        when(event.getText()).thenReturn(eventText);
+        return event;
+    }
+
+    @Test
+    public void shouldDeliverPublishedEventsToConsumers() {
+        AccessibilityEventBus.Consumer consumer = eventBus.newConsumer();
+        eventBus.publish(mockEvent(AccessibilityEvent.TYPE_VIEW_SCROLLED));
+        eventBus.publish(mockEvent(AccessibilityEvent.TYPE_NOTIFICATION_STATE_CHANGED, "toast"));
+
+        AccessibilityEventRecord record = consumer.poll();
+        assertNotNull(record);
+        assertEquals(0, record.sequence);
+        assertEquals(AccessibilityEvent.TYPE_VIEW_SCROLLED, record.eventType);
+        record = consumer.poll();
+        assertNotNull(record);
+        assertEquals(1, record.sequence);
+        assertEquals("toast", record.text.get(0));
+        assertNull(consumer.poll());
+        assertEquals(0, consumer.getDroppedCount());
+    }
+
+    @Test
+    public void shouldReadEventsIndependentlyForEachConsumer() {
+        AccessibilityEventBus.Consumer first = eventBus.newConsumer();
+        eventBus.publish(mockEvent(AccessibilityEvent.TYPE_VIEW_SCROLLED));
+        AccessibilityEventBus.Consumer second = eventBus.newConsumer();
+        eventBus.publish(mockEvent(AccessibilityEvent.TYPE_VIEW_CLICKED));
+
+        assertEquals(AccessibilityEvent.TYPE_VIEW_SCROLLED, first.poll().eventType);
+        assertEquals(AccessibilityEvent.TYPE_VIEW_CLICKED, second.poll().eventType);
+        assertNull(second.poll());
+        assertEquals(AccessibilityEvent.TYPE_VIEW_CLICKED, first.poll().eventType);
+    }
+
+    @Test
+    public void shouldCountEventsDroppedBySlowConsumers() {
+        AccessibilityEventBus.Consumer consumer = eventBus.newConsumer();
+        AccessibilityEvent event = mockEvent(AccessibilityEvent.TYPE_VIEW_SCROLLED);
+        int overflow = 10;
+        for (int i = 0; i < BUFFER_CAPACITY + overflow; ++i) {
+            eventBus.publish(event);
+        }
+
+        AccessibilityEventRecord record = consumer.poll();
+        assertNotNull(record);
+        assertEquals(overflow, record.sequence);
+        assertEquals(overflow, consumer.getDroppedCount());
+    }
+
+    @Test
+    public void shouldDispatchMatchingEventsToSubscribers() {
+        final List<Integer> receivedTypes = new ArrayList<>();
+        eventBus.subscribe(AccessibilityEvent.TYPE_VIEW_SCROLLED
+                | AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED, new AccessibilityEventSubscriber() {
+            @Override
+            public void onAccessibilityEvent(AccessibilityEventRecord event) {
+                synchronized (receivedTypes) {
+                    receivedTypes.add(event.eventType);
+                }
+            }
+        });
+        eventBus.publish(mockEvent(AccessibilityEvent.TYPE_VIEW_SCROLLED));
+        eventBus.publish(mockEvent(AccessibilityEvent.TYPE_NOTIFICATION_STATE_CHANGED));
+        eventBus.publish(mockEvent(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED));
+        eventBus.dispatchPending();
+
+        synchronized (receivedTypes) {
+            assertEquals(2, receivedTypes.size());
+            assertEquals(AccessibilityEvent.TYPE_VIEW_SCROLLED, (int) receivedTypes.get(0));
+            assertEquals(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED, (int) receivedTypes.get(1));
+        }
+    }
+
+    @Test
+    public void shouldNotDispatchEventsToUnsubscribedSubscribers() {
+        final List<Integer> receivedTypes = new ArrayList<>();
+        AccessibilityEventSubscriber subscriber = new AccessibilityEventSubscriber() {
+            @Override
+            public void onAccessibilityEvent(AccessibilityEventRecord event) {
+                synchronized (receivedTypes) {
+                    receivedTypes.add(event.eventType);
+                }
+            }
+        };
+        eventBus.subscribe(AccessibilityEvent.TYPE_VIEW_SCROLLED, subscriber);
+        eventBus.unsubscribe(subscriber);
+        eventBus.publish(mockEvent(AccessibilityEvent.TYPE_VIEW_SCROLLED));
+        eventBus.dispatchPending();
+
+        synchronized (receivedTypes) {
+            assertTrue(receivedTypes.isEmpty());
+        }
+    }
+
+    @Test
+    public void shouldKeepDeliveredRecordsIntactAfterOverwrites() {
+        AccessibilityEventBus.Consumer consumer = eventBus.newConsumer();
+        eventBus.publish(mockEvent(AccessibilityEvent.TYPE_NOTIFICATION_STATE_CHANGED, "first"));
+        AccessibilityEventRecord record = consumer.poll();
+        AccessibilityEvent event = mockEvent(AccessibilityEvent.TYPE_VIEW_SCROLLED, "second");
+        for (int i = 0; i < BUFFER_CAPACITY; ++i) {
+            eventBus.publish(event);
+        }
+
+        assertEquals(0, record.sequence);
+        assertEquals(AccessibilityEvent.TYPE_NOTIFICATION_STATE_CHANGED, record.eventType);
+        assertEquals("first", record.text.get(0));
+    }
+
+    @Test
+    public void shouldNotWaitIfEventIsAlreadyPublished() {
+        eventBus.publish(mockEvent(AccessibilityEvent.TYPE_VIEW_SCROLLED));
+        assertTrue(eventBus.awaitSequence(0, 0));
+        assertFalse(eventBus.awaitSequence(1, 0));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.model.internal;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import androidx.test.uiautomator.UiSelector;
+import io.appium.uiautomator2.utils.NodeInfoList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class UiSelectorMatcherTests {
+    private static final String ITEM_CLASS = "android.widget.TextView";
+    private static final int ITEMS_COUNT = 4;
+
+    private AccessibilityNodeInfo root;
+
+    private static AccessibilityNodeInfo createNode(String className, String text) {
+        final AccessibilityNodeInfo node = AccessibilityNodeInfo.obtain();
+        node.setClassName(className);
+        node.setText(text);
+        node.setVisibleToUser(true);
+        return node;
+    }
+
+    @Before
+    public void setUp() {
+        root = createNode("android.widget.FrameLayout", null);
+        for (int i = 0; i < ITEMS_COUNT; ++i) {
+            shadowOf(root).addChild(createNode(ITEM_CLASS, "item" + i));
+        }
+    }
+
+    private static String getText(NodeInfoList nodes, int index) {
+        return nodes.getAll().get(index).getText().toString();
+    }
+
+    @Test
+    public void shouldFindAllChildMatchesIgnoringInstance() {
+        final UiSelector selector = new UiSelector().className(ITEM_CLASS).instance(2);
+        assertTrue(UiSelectorMatcher.isSupported(selector));
+        final NodeInfoList matches = UiSelectorMatcher.findChildMatches(selector, root);
+        assertEquals(ITEMS_COUNT, matches.size());
+        assertEquals("item0", getText(matches, 0));
+        assertEquals("item3", getText(matches, ITEMS_COUNT - 1));
+    }
+
+    @Test
+    public void shouldNotModifyTheGivenSelector() {
+        final UiSelector selector = new UiSelector().className(ITEM_CLASS).instance(2);
+        final String selectorBefore = selector.toString();
+        UiSelectorMatcher.findChildMatches(selector, root);
+        UiSelectorMatcher.findChildMatches(selector, root);
+        assertEquals(selectorBefore, selector.toString());
+    }
+
+    @Test
+    public void shouldNotSupportInstancesInSelectorChains() {
+        final UiSelector chainWithInstance = new UiSelector().className("android.widget.FrameLayout")
+                .instance(1)
+                .childSelector(new UiSelector().className(ITEM_CLASS));
+        assertFalse(UiSelectorMatcher.isSupported(chainWithInstance));
+        final UiSelector chain = new UiSelector().className("android.widget.FrameLayout")
+                .childSelector(new UiSelector().className(ITEM_CLASS));
+        assertTrue(UiSelectorMatcher.isSupported(chain));
+        assertTrue(UiSelectorMatcher.hasSubSelectors(chain));
+    }
+
+    @Test
+    public void shouldApplyInstanceOnceWhileLookingForTheFirstMatch() {
+        final AccessibilityNodeInfo[] windowRoots = new AccessibilityNodeInfo[]{root};
+        for (int instance = 0; instance < ITEMS_COUNT; ++instance) {
+            final UiSelector selector = new UiSelector().className(ITEM_CLASS).instance(instance);
+            final NodeInfoList match = UiSelectorMatcher.findFirstMatch(selector, windowRoots);
+            assertEquals(1, match.size());
+            assertEquals("item" + instance, getText(match, 0));
+            // The same selector must give the same result again
+            assertEquals("item" + instance,
+                    getText(UiSelectorMatcher.findFirstMatch(selector, windowRoots), 0));
+        }
+    }
+
+    @Test
+    public void shouldFindNothingIfInstanceIsOutOfRange() {
+        final UiSelector selector = new UiSelector().className(ITEM_CLASS).instance(ITEMS_COUNT);
+        assertTrue(UiSelectorMatcher.findFirstMatch(selector,
+                new AccessibilityNodeInfo[]{root}).isEmpty());
+    }
+
+    @Test
+    public void shouldFindChildMatchWithoutModifyingTheSelector() {
+        final UiSelector selector = new UiSelector().className(ITEM_CLASS).instance(1);
+        final String selectorBefore = selector.toString();
+        assertTrue(UiSelectorMatcher.hasInstance(selector));
+        assertEquals("item1", getText(UiSelectorMatcher.findFirstChildMatch(selector, root), 0));
+        assertEquals("item1", getText(UiSelectorMatcher.findFirstChildMatch(selector, root), 0));
+        assertEquals(selectorBefore, selector.toString());
+        assertFalse(UiSelectorMatcher.hasInstance(new UiSelector().className(ITEM_CLASS)));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.model.settings;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulkNodesPrefetchTests {
+
+    private BulkNodesPrefetch bulkNodesPrefetch;
+
+    @Before
+    public void setup() {
+        bulkNodesPrefetch = new BulkNodesPrefetch();
+    }
+
+    @Test
+    public void shouldBeBoolean() {
+        Assert.assertEquals(Boolean.class, bulkNodesPrefetch.getValueType());
+    }
+
+    @Test
+    public void shouldReturnValidSettingName() {
+        Assert.assertEquals("bulkNodesPrefetch", bulkNodesPrefetch.getName());
+    }
+
+    @Test
+    public void shouldBeDisabledByDefault() {
+        Assert.assertEquals(false, bulkNodesPrefetch.getValue());
+    }
+
+    @Test
+    public void shouldBeAbleToEnableBulkNodesPrefetch() {
+        bulkNodesPrefetch.update(true);
+        Assert.assertEquals(true, bulkNodesPrefetch.getValue());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import androidx.test.uiautomator.UiObjectNotFoundException;
+import androidx.test.uiautomator.UiSelector;
+import io.appium.uiautomator2.common.exceptions.UiSelectorSyntaxException;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ElementLocationHelpersTests {
+
+    @Test
+    public void cachedSelectorsShouldNotBeAffectedByModifications() throws UiSelectorSyntaxException,
+            UiObjectNotFoundException {
+        final String expression = "new UiSelector().className(\"android.widget.Button\")";
+        final List<UiSelector> first = ElementLocationHelpers.toSelectors(expression);
+        first.get(0).instance(3);
+
+        final List<UiSelector> second = ElementLocationHelpers.toSelectors(expression);
+        assertEquals(1, second.size());
+        assertNotSame(first.get(0), second.get(0));
+        assertThat(second.get(0).toString(), not(containsString("INSTANCE")));
+
+        second.get(0).instance(5);
+        final List<UiSelector> third = ElementLocationHelpers.toSelectors(expression);
+        assertThat(third.get(0).toString(), not(containsString("INSTANCE")));
+    }
+
+    @Test
+    public void copiedSelectorShouldKeepChildSelectors() {
+        final UiSelector selector = new UiSelector().className("android.widget.ListView")
+                .childSelector(new UiSelector().text("item"));
+        final UiSelector copy = ElementLocationHelpers.copySelector(selector);
+        assertNotSame(selector, copy);
+        assertEquals(selector.toString(), copy.toString());
+    }
+}
@@ -29,6 +29,8 @@ import androidx.test.uiautomator.UiSelector;
 import io.appium.uiautomator2.common.exceptions.UiSelectorSyntaxException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -68,6 +70,21 @@ public class UiAutomatorParserTests {
         verify(uiAutomatorParser).createUiScrollableParser(firstStatement);
         verify(uiAutomatorParser).createUiSelectorParser(secondStatement);
         assertEquals(Arrays.asList(scrollableSelector, selector), selectors);
+        assertTrue(uiAutomatorParser.hasScrollables());
+    }
+
+    @Test
+    public void shouldNotReportScrollablesForPlainSelectors() throws UiSelectorSyntaxException,
+            UiObjectNotFoundException {
+        doReturn(false).when(uiScrollableParser).isUiScrollable();
+        doReturn(uiScrollableParser).when(uiAutomatorParser).createUiScrollableParser(anyString());
+        doReturn(uiSelectorParser).when(uiAutomatorParser).createUiSelectorParser(anyString());
+
+        List<UiSelector> selectors = uiAutomatorParser.parse("text(\"a\");text(\"b\")");
+        verify(uiAutomatorParser).createUiSelectorParser("text(\"a\")");
+        verify(uiAutomatorParser).createUiSelectorParser("text(\"b\")");
+        assertEquals(Arrays.asList(selector, selector), selectors);
+        assertFalse(uiAutomatorParser.hasScrollables());
     }
 
     @Test
@@ -43,4 +43,14 @@ public class XMLHelpersTests {
     public void replacesInvalidCharsInXml() {
         assertEquals(toSafeString("bl\uFFFFa", "?"), "bl?a");
     }
+
+    @Test
+    public void keepsValidCharsInXml() {
+        assertEquals(toSafeString("bla\t\n\u00e9\ud83d\ude00", "?"), "bla\t\n\u00e9\ud83d\ude00");
+    }
+
+    @Test
+    public void replacesUnpairedSurrogatesInXml() {
+        assertEquals(toSafeString("bl\ud83da", "?"), "bl?a");
+    }
 }
@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.utils.w3c;
+
+import android.view.InputEvent;
+import android.view.MotionEvent;
+import android.view.MotionEvent.PointerCoords;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+import io.appium.uiautomator2.core.InteractionController;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Verifies the amount of heap memory allocated by the injection thread
+ * per single synthesized motion event stays bounded. The actual injection is replaced by
+ * a stub, so the numbers only include the server-side overhead.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MotionEventsAllocationTests {
+    private static final int ITERATIONS = 20;
+    private static final int GESTURE_STEPS = 120;
+    // Generous enough for the Robolectric shadows, but catches per-event copies of the whole chain
+    private static final long MAX_BYTES_PER_EVENT = 16 * 1024;
+
+    private com.sun.management.ThreadMXBean threadMXBean;
+    private CountingInteractionController interactionController;
+
+    @Before
+    public void setUp() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        interactionController = new CountingInteractionController();
+    }
+
+    private long allocatedBytes() {
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void assertAllocationsAreBounded(String name, long bytes, int eventsCount) {
+        final long bytesPerEvent = bytes / eventsCount;
+        assertTrue(String.format(Locale.ROOT, "%s: %d bytes allocated per event, expected at most %d",
+                name, bytesPerEvent, MAX_BYTES_PER_EVENT), bytesPerEvent <= MAX_BYTES_PER_EVENT);
+    }
+
+    private static PointerCoords[][] buildPinch() {
+        final PointerCoords[][] result = new PointerCoords[2][GESTURE_STEPS];
+        for (int pointer = 0; pointer < result.length; ++pointer) {
+            for (int step = 0; step < GESTURE_STEPS; ++step) {
+                final PointerCoords coords = new PointerCoords();
+                coords.pressure = 1;
+                coords.size = 1;
+                coords.x = 500 + (pointer == 0 ? -step : step);
+                coords.y = 500;
+                result[pointer][step] = coords;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void verifyMultiPointerGestureAllocationsAreBounded() {
+        final PointerCoords[][] pinch = buildPinch();
+        // Warm up class initialization and the system events pool
+        interactionController.performMultiPointerGesture(pinch);
+        interactionController.reset();
+
+        final long startBytes = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            interactionController.performMultiPointerGesture(pinch);
+        }
+        final long allocated = allocatedBytes() - startBytes;
+
+        // 2 downs, (steps - 2) moves and 2 ups per gesture
+        assertThat(interactionController.injectedEventsCount, equalTo(ITERATIONS * (GESTURE_STEPS + 2)));
+        assertThat(interactionController.lastAction, equalTo(MotionEvent.ACTION_UP));
+        assertAllocationsAreBounded("performMultiPointerGesture", allocated, interactionController.injectedEventsCount);
+    }
+
+    @Test
+    public void verifyW3CActionsAllocationsAreBounded() throws JSONException {
+        final StringBuilder moves = new StringBuilder();
+        for (int step = 0; step < GESTURE_STEPS; ++step) {
+            moves.append(String.format(Locale.ROOT,
+                    "{\"type\": \"pointerMove\", \"duration\": 5, \"x\": %d, \"y\": 500},", 500 + step));
+        }
+        final String finger = "{" +
+                "\"type\": \"pointer\"," +
+                "\"id\": \"%s\"," +
+                "\"parameters\": {\"pointerType\": \"touch\"}," +
+                "\"actions\": [" +
+                "{\"type\": \"pointerMove\", \"duration\": 0, \"x\": 500, \"y\": %d}," +
+                "{\"type\": \"pointerDown\"}," +
+                moves +
+                "{\"type\": \"pointerUp\"}]" +
+                "}";
+        final JSONArray actions = new JSONArray("[" + String.format(finger, "finger1", 400) + ","
+                + String.format(finger, "finger2", 600) + "]");
+        final ActionsSchedule schedule = ActionsSchedule.compile(
+                new ActionsTokenizer().tokenize(new ActionsPreprocessor().preprocess(actions)));
+        final ActionsExecutor executor = new ActionsExecutor(schedule, interactionController);
+        executor.execute();
+        interactionController.reset();
+
+        final long startBytes = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            executor.execute();
+        }
+        final long allocated = allocatedBytes() - startBytes;
+
+        assertThat(interactionController.lastAction, equalTo(MotionEvent.ACTION_UP));
+        assertAllocationsAreBounded("W3C actions", allocated, interactionController.injectedEventsCount);
+    }
+
+    private static class CountingInteractionController extends InteractionController {
+        int injectedEventsCount = 0;
+        int lastAction = -1;
+
+        CountingInteractionController() {
+            super(null);
+        }
+
+        void reset() {
+            injectedEventsCount = 0;
+            lastAction = -1;
+        }
+
+        @Override
+        public boolean injectEventSync(InputEvent event, boolean shouldRegister) {
+            ++injectedEventsCount;
+            lastAction = ((MotionEvent) event).getActionMasked();
+            return true;
+        }
+
+        @Override
+        public boolean shouldTrackScrollEvents() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.utils.w3c;
+
+import android.view.MotionEvent;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class W3CActionsScheduleTests {
+    private static final ActionsPreprocessor actionsPreprocessor = new ActionsPreprocessor();
+    private static final ActionsTokenizer actionsTokenizer = new ActionsTokenizer();
+
+    private static ActionsSchedule compile(String json) throws JSONException {
+        return ActionsSchedule.compile(actionsTokenizer.tokenize(
+                actionsPreprocessor.preprocess(new JSONArray(json))));
+    }
+
+    @Test
+    public void verifyPauseOnlyTicksAreSkippedButKeepTheirDuration() throws JSONException {
+        final ActionsSchedule schedule = compile("[ {" +
+                "\"type\": \"none\"," +
+                "\"id\": \"none1\"," +
+                "\"actions\": [" +
+                "{\"type\": \"pause\", \"duration\": 200}," +
+                "{\"type\": \"pause\", \"duration\": 20}]" +
+                "} ]");
+        assertThat(schedule.size(), equalTo(0));
+        // Pauses must still be waited for while the schedule is executed
+        assertThat(schedule.isEmpty(), is(false));
+        assertThat(schedule.maxTimeDelta(), equalTo(220L));
+    }
+
+    @Test
+    public void verifyMultiTouchTicksArePrecompiled() throws JSONException {
+        final ActionsSchedule schedule = compile("[ {" +
+                "\"type\": \"pointer\"," +
+                "\"id\": \"finger1\"," +
+                "\"parameters\": {\"pointerType\": \"touch\"}," +
+                "\"actions\": [" +
+                "{\"type\": \"pointerMove\", \"duration\": 0, \"x\": 100, \"y\": 100}," +
+                "{\"type\": \"pointerDown\"}," +
+                "{\"type\": \"pointerUp\"}]" +
+                "}, {" +
+                "\"type\": \"pointer\"," +
+                "\"id\": \"finger2\"," +
+                "\"parameters\": {\"pointerType\": \"touch\"}," +
+                "\"actions\": [" +
+                "{\"type\": \"pointerMove\", \"duration\": 0, \"x\": 200, \"y\": 300}," +
+                "{\"type\": \"pointerDown\"}," +
+                "{\"type\": \"pointerUp\"}]" +
+                "} ]");
+        assertThat(schedule.isEmpty(), is(false));
+        final ActionsSchedule.Tick downTick = schedule.tickAt(0);
+        assertThat(downTick.keyEvents.length, equalTo(0));
+        assertThat(downTick.motion.events.length, equalTo(2));
+        assertThat(downTick.motion.events[0].actionCode, equalTo(MotionEvent.ACTION_DOWN));
+        assertThat(downTick.motion.nonHoveringProps.length, equalTo(2));
+        assertThat(downTick.motion.nonHoveringCoords.length, equalTo(2));
+        assertThat(downTick.motion.hoveringCoords.length, equalTo(0));
+        assertThat(downTick.motion.initialPointersCount, equalTo(0));
+        final ActionsSchedule.Tick lastTick = schedule.tickAt(schedule.size() - 1);
+        assertThat(lastTick.motion.events[0].actionCode, equalTo(MotionEvent.ACTION_UP));
+        assertThat(lastTick.motion.initialPointersCount, equalTo(2));
+    }
+
+    @Test
+    public void verifyOffsetIsAppliedRelativelyToOriginalCoordinates() throws JSONException {
+        final ActionsSchedule schedule = compile("[ {" +
+                "\"type\": \"pointer\"," +
+                "\"id\": \"finger1\"," +
+                "\"parameters\": {\"pointerType\": \"touch\"}," +
+                "\"actions\": [" +
+                "{\"type\": \"pointerMove\", \"duration\": 0, \"x\": 100, \"y\": 200}," +
+                "{\"type\": \"pointerDown\"}," +
+                "{\"type\": \"pointerUp\"}]" +
+                "} ]");
+        final MotionEvent.PointerCoords coords = schedule.tickAt(0).motion.nonHoveringCoords[0];
+        assertThat(coords.x, equalTo(100.0f));
+        assertThat(coords.y, equalTo(200.0f));
+
+        schedule.setOffset(10, -20);
+        assertThat(coords.x, equalTo(110.0f));
+        assertThat(coords.y, equalTo(180.0f));
+
+        schedule.setOffset(-5, 5);
+        assertThat(coords.x, equalTo(95.0f));
+        assertThat(coords.y, equalTo(205.0f));
+
+        schedule.setOffset(0, 0);
+        assertThat(coords.x, equalTo(100.0f));
+        assertThat(coords.y, equalTo(200.0f));
+    }
+
+    @Test
+    public void verifyKeyTicksHaveNoMotionPart() throws JSONException {
+        final ActionsSchedule schedule = compile("[ {" +
+                "\"type\": \"key\"," +
+                "\"id\": \"keyboard\"," +
+                "\"actions\": [" +
+                "{\"type\": \"keyDown\", \"value\": \"A\"}," +
+                "{\"type\": \"keyUp\", \"value\": \"A\"}]" +
+                "} ]");
+        assertThat(schedule.size(), equalTo(1));
+        assertThat(schedule.tickAt(0).keyEvents.length, equalTo(2));
+        assertThat(schedule.tickAt(0).motion, is(nullValue()));
+    }
+}